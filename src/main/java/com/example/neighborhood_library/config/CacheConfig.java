@@ -0,0 +1,40 @@
+package com.example.neighborhood_library.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.cache.CacheManagerCustomizer;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Cache view-modeli katalogu (Caffeine: rozmiar + TTL + statystyki, patrz spring.cache.* w application.properties).
+ * Statystyki trafień: /actuator/metrics/cache.gets?tag=name:publicationDetails (tylko ADMIN).
+ * Unieważnianie: CatalogCacheEvictionListener po commicie PublicationChangedEvent.
+ * Licznik nieprzeczytanych wiadomości ma własny, krótki TTL (UnreadMessagesCacheEvictionListener czyści
+ * tylko cache swojego węzła, TTL ogranicza nieaktualność na pozostałych).
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    public static final String PUBLICATION_DETAILS = "publicationDetails";
+    public static final String PUBLICATION_LIST_ITEMS = "publicationListItems";
+    public static final String CATALOG_CATEGORIES = "catalogCategories";
+    public static final String CATALOG_FACETS = "catalogFacets";
+    public static final String UNREAD_MESSAGES = "unreadMessages";
+
+    @Bean
+    CacheManagerCustomizer<CaffeineCacheManager> unreadMessagesCache(
+            @Value("${app.messages.unread-cache-ttl:PT30S}") Duration ttl,
+            @Value("${app.messages.unread-cache-size:20000}") long maximumSize) {
+        return cacheManager -> cacheManager.registerCustomCache(UNREAD_MESSAGES, Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build());
+    }
+}
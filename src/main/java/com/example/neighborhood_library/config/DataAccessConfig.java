@@ -0,0 +1,26 @@
+package com.example.neighborhood_library.config;
+
+import com.example.neighborhood_library.support.LibraryRuleExceptionTranslator;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+
+@Configuration
+public class DataAccessConfig {
+
+    // Dialekt JPA tłumaczy wyjątki repozytoriów i commitu transakcji - podpinamy tam własne SQLSTATE triggerów,
+    // zachowując konfigurację adaptera z Spring Boot
+    @Bean
+    static BeanPostProcessor libraryRuleExceptionTranslatorInstaller() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof HibernateJpaVendorAdapter adapter) {
+                    adapter.getJpaDialect().setJdbcExceptionTranslator(new LibraryRuleExceptionTranslator());
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.neighborhood_library.domain;
+
+import jakarta.persistence.*;
+import java.time.OffsetDateTime;
+
+/**
+ * Miejsce w kolejce oczekujących na publikację. Przekazanie egzemplarza (WAITING -> FULFILLED)
+ * robi fn_hand_off_copy w bazie, w transakcji zwalniającej egzemplarz.
+ */
+@Entity
+@Table(name = "holds")
+public class Hold {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "publication_id", nullable = false)
+    private Publication publication;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "user_id", nullable = false)
+    private User user;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false)
+    private HoldStatus status = HoldStatus.WAITING;
+
+    @Column(name = "created_at", nullable = false)
+    private OffsetDateTime createdAt;
+
+    @Column(name = "fulfilled_at")
+    private OffsetDateTime fulfilledAt;
+
+    @Column(name = "cancelled_at")
+    private OffsetDateTime cancelledAt;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "reservation_id")
+    private Reservation reservation;
+
+    @PrePersist
+    void prePersist() {
+        if (createdAt == null) createdAt = OffsetDateTime.now();
+        if (status == null) status = HoldStatus.WAITING;
+    }
+
+    // getters/setters
+
+    public Long getId() { return id; }
+    public Publication getPublication() { return publication; }
+    public void setPublication(Publication publication) { this.publication = publication; }
+    public User getUser() { return user; }
+    public void setUser(User user) { this.user = user; }
+    public HoldStatus getStatus() { return status; }
+    public void setStatus(HoldStatus status) { this.status = status; }
+    public OffsetDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(OffsetDateTime createdAt) { this.createdAt = createdAt; }
+    public OffsetDateTime getFulfilledAt() { return fulfilledAt; }
+    public OffsetDateTime getCancelledAt() { return cancelledAt; }
+    public void setCancelledAt(OffsetDateTime cancelledAt) { this.cancelledAt = cancelledAt; }
+    public Reservation getReservation() { return reservation; }
+}
@@ -0,0 +1,7 @@
+package com.example.neighborhood_library.domain;
+
+public enum HoldStatus {
+    WAITING,
+    FULFILLED,
+    CANCELLED
+}
@@ -0,0 +1,7 @@
+package com.example.neighborhood_library.domain;
+
+public enum JobOutcome {
+    RUNNING,
+    SUCCEEDED,
+    FAILED
+}
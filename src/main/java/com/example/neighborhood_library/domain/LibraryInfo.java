@@ -1,6 +1,9 @@
 package com.example.neighborhood_library.domain;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Generated;
+import org.hibernate.generator.EventType;
+
 import java.time.Instant;
 
 @Entity
@@ -19,16 +22,16 @@ public class LibraryInfo {
     @Column(nullable = false)
     private String rules;
 
-    @Column(name = "updated_at", nullable = false)
+    // oba nadaje trigger (library_info_before_change_version); Hibernate odczytuje je po INSERT/UPDATE
+    @Generated(event = {EventType.INSERT, EventType.UPDATE})
+    @Column(name = "updated_at", nullable = false, insertable = false, updatable = false)
     private Instant updatedAt;
 
-    public LibraryInfo() {}
+    @Generated(event = {EventType.INSERT, EventType.UPDATE})
+    @Column(nullable = false, insertable = false, updatable = false)
+    private Long version;
 
-    @PrePersist
-    @PreUpdate
-    void updateTimestamp() {
-        updatedAt = Instant.now();
-    }
+    public LibraryInfo() {}
 
     // getters & setters
     public Short getId() { return id; }
@@ -44,4 +47,6 @@ public class LibraryInfo {
     public void setRules(String rules) { this.rules = rules; }
 
     public Instant getUpdatedAt() { return updatedAt; }
+
+    public Long getVersion() { return version; }
 }
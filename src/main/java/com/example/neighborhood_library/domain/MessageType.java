@@ -5,5 +5,6 @@ public enum MessageType {
     DUE_SOON,
     OVERDUE,
     ACCOUNT_BANNED,
-    ACCOUNT_UNBANNED
+    ACCOUNT_UNBANNED,
+    HOLD_READY
 }
@@ -0,0 +1,47 @@
+package com.example.neighborhood_library.domain;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.Immutable;
+
+/**
+ * Liczniki egzemplarzy publikacji wg statusu. Tylko do odczytu - widok publication_availability_live
+ * (złożone liczniki + niezłożone delty, utrzymywane triggerami na copies - DB_FUNCTIONS.SQL),
+ * naprawa: fn_rebuild_publication_availability().
+ */
+@Entity
+@Immutable
+@Table(name = "publication_availability_live")
+public class PublicationAvailability {
+
+    @Id
+    @Column(name = "publication_id")
+    private Long publicationId;
+
+    @Column(nullable = false)
+    private int available;
+
+    @Column(nullable = false)
+    private int reserved;
+
+    @Column(nullable = false)
+    private int loaned;
+
+    @Column(nullable = false)
+    private int unavailable;
+
+    @Column(nullable = false)
+    private int deleted;
+
+    @Column(name = "live_count", insertable = false, updatable = false)
+    private int liveCount;
+
+    protected PublicationAvailability() {}
+
+    public Long getPublicationId() { return publicationId; }
+    public int getAvailable() { return available; }
+    public int getReserved() { return reserved; }
+    public int getLoaned() { return loaned; }
+    public int getUnavailable() { return unavailable; }
+    public int getDeleted() { return deleted; }
+    public int getLiveCount() { return liveCount; }
+}
@@ -0,0 +1,75 @@
+package com.example.neighborhood_library.domain;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+
+/**
+ * Ostatnie uruchomienie zadania okresowego (jeden wiersz na zadanie), zapisywane przez JobCoordinator.
+ */
+@Entity
+@Table(name = "scheduled_job_runs")
+public class ScheduledJobRun {
+
+    @Id
+    @Column(name = "job_name")
+    private String jobName;
+
+    @Column(nullable = false)
+    private String node;
+
+    @Column(name = "started_at", nullable = false)
+    private OffsetDateTime startedAt;
+
+    @Column(name = "finished_at")
+    private OffsetDateTime finishedAt;
+
+    @Column(name = "duration_ms")
+    private Long durationMs;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private JobOutcome outcome;
+
+    @Column
+    private String error;
+
+    @Column(name = "run_count", nullable = false)
+    private long runCount;
+
+    @Column(name = "completed_window")
+    private LocalDate completedWindow;
+
+    protected ScheduledJobRun() {}
+
+    public ScheduledJobRun(String jobName) {
+        this.jobName = jobName;
+    }
+
+    public String getJobName() { return jobName; }
+
+    public String getNode() { return node; }
+    public void setNode(String node) { this.node = node; }
+
+    public OffsetDateTime getStartedAt() { return startedAt; }
+    public void setStartedAt(OffsetDateTime startedAt) { this.startedAt = startedAt; }
+
+    public OffsetDateTime getFinishedAt() { return finishedAt; }
+    public void setFinishedAt(OffsetDateTime finishedAt) { this.finishedAt = finishedAt; }
+
+    public Long getDurationMs() { return durationMs; }
+    public void setDurationMs(Long durationMs) { this.durationMs = durationMs; }
+
+    public JobOutcome getOutcome() { return outcome; }
+    public void setOutcome(JobOutcome outcome) { this.outcome = outcome; }
+
+    public String getError() { return error; }
+    public void setError(String error) { this.error = error; }
+
+    public long getRunCount() { return runCount; }
+    public void setRunCount(long runCount) { this.runCount = runCount; }
+
+    public LocalDate getCompletedWindow() { return completedWindow; }
+    public void setCompletedWindow(LocalDate completedWindow) { this.completedWindow = completedWindow; }
+}
@@ -0,0 +1,34 @@
+package com.example.neighborhood_library.domain;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.Immutable;
+
+/**
+ * Liczniki aktywnych sztuk użytkownika (rezerwacje ACTIVE + niezwrócone wypożyczenia). Tylko do odczytu -
+ * tabelę utrzymują triggery na reservations i loans (DB_FUNCTIONS.SQL), naprawa: fn_rebuild_user_circulation().
+ */
+@Entity
+@Immutable
+@Table(name = "user_circulation")
+public class UserCirculation {
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "active_reservations", nullable = false)
+    private int activeReservations;
+
+    @Column(name = "open_loans", nullable = false)
+    private int openLoans;
+
+    @Column(name = "active_items", insertable = false, updatable = false)
+    private int activeItems;
+
+    protected UserCirculation() {}
+
+    public Long getUserId() { return userId; }
+    public int getActiveReservations() { return activeReservations; }
+    public int getOpenLoans() { return openLoans; }
+    public int getActiveItems() { return activeItems; }
+}
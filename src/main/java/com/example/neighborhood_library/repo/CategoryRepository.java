@@ -10,13 +10,16 @@ public interface CategoryRepository extends JpaRepository<Category, Long> {
 
     boolean existsByName(String name);
 
+    // Kategorie z co najmniej jednym nieusuniętym egzemplarzem + liczba takich tytułów - z liczników,
+    // bez skanowania copies. Wynik trzyma w cache CatalogCategoryService.
     @Query("""
-        select distinct c
+        select c.id as id, c.name as name, count(p) as liveTitles
         from Category c
-        join c.publications p
-        join p.copies cp
-        where cp.deletedAt is null
+        join c.publications p, PublicationAvailability pa
+        where pa.publicationId = p.id
+          and pa.liveCount > 0
+        group by c.id, c.name
         order by c.name
     """)
-    List<Category> findNonEmptyForCatalog();
+    List<CategoryTitleCountRow> findNonEmptyForCatalog();
 }
@@ -0,0 +1,8 @@
+package com.example.neighborhood_library.repo;
+
+/** Kategoria z liczbą tytułów, które mają co najmniej jeden nieusunięty egzemplarz. */
+public interface CategoryTitleCountRow {
+    Long getId();
+    String getName();
+    long getLiveTitles();
+}
@@ -19,6 +19,8 @@ public interface CopyRepository extends JpaRepository<Copy, Long> {
 
     boolean existsByPublicationIdAndStatusAndDeletedAtIsNull(Long publicationId, CopyStatus status);
 
+    long countByPublicationIdAndDeletedAtIsNull(Long publicationId);
+
     @Query(value = """
         SELECT c.*
         FROM copies c
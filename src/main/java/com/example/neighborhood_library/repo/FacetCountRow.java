@@ -0,0 +1,13 @@
+package com.example.neighborhood_library.repo;
+
+/**
+ * Jeden wiersz agregacji faset (GROUPING SETS): facet = CATEGORY / KIND / DECADE / AVAILABLE.
+ * total - bez filtra kategorii (dla fasety kategorii), inCategory - z filtrem (dla pozostałych).
+ */
+public interface FacetCountRow {
+    String getFacet();
+    String getValue();
+    String getLabel();
+    long getTotal();
+    long getInCategory();
+}
@@ -0,0 +1,10 @@
+package com.example.neighborhood_library.repo;
+
+/**
+ * Wynik fn_hand_off_copy: kto z kolejki dostał egzemplarz i jaka rezerwacja powstała.
+ */
+public interface HandOffRow {
+    Long getHoldId();
+    Long getUserId();
+    Long getReservationId();
+}
@@ -0,0 +1,10 @@
+package com.example.neighborhood_library.repo;
+
+/**
+ * Wpis kolejki oczekujących do budowy HoldQueueIndex: hold, jego publikacja i czy nadal czeka.
+ */
+public interface HoldQueueRow {
+    Long getId();
+    Long getPublicationId();
+    boolean getWaiting();
+}
@@ -0,0 +1,54 @@
+package com.example.neighborhood_library.repo;
+
+import com.example.neighborhood_library.domain.Hold;
+import com.example.neighborhood_library.domain.HoldStatus;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+public interface HoldRepository extends JpaRepository<Hold, Long> {
+
+    boolean existsByPublicationIdAndUserIdAndStatus(Long publicationId, Long userId, HoldStatus status);
+
+    Optional<Hold> findByPublicationIdAndUserIdAndStatus(Long publicationId, Long userId, HoldStatus status);
+
+    Optional<Hold> findByIdAndUserId(Long id, Long userId);
+
+    @EntityGraph(attributePaths = {"publication"})
+    List<Hold> findByUserIdAndStatusOrderByCreatedAtAsc(Long userId, HoldStatus status);
+
+    // Wszystkie kolejki w kolejności hold_queue_idx (publication_id, id) - budowa HoldQueueIndex
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query(value = """
+        select h.id as id, h.publication_id as publicationId, true as waiting
+        from holds h
+        where h.status = 'WAITING'
+        order by h.publication_id, h.id
+        """, nativeQuery = true)
+    Stream<HoldQueueRow> streamWaitingQueue();
+
+    // Bieżący stan jednego wpisu - zmiana z innego węzła
+    @Query(value = """
+        select h.id as id, h.publication_id as publicationId, (h.status = 'WAITING') as waiting
+        from holds h
+        where h.id = :id
+        """, nativeQuery = true)
+    Optional<HoldQueueRow> findQueueRow(@Param("id") long id);
+
+    // Przekazanie zwolnionego egzemplarza pierwszemu uprawnionemu z kolejki (DB_FUNCTIONS.SQL)
+    @Query(value = """
+        select h.hold_id as holdId,
+               h.hold_user_id as userId,
+               h.new_reservation_id as reservationId
+        from fn_hand_off_copy(:copyId, :pickupDays) h
+        """, nativeQuery = true)
+    Optional<HandOffRow> handOff(@Param("copyId") long copyId, @Param("pickupDays") int pickupDays);
+}
@@ -5,6 +5,8 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.time.LocalDate;
 import java.util.List;
@@ -17,8 +19,77 @@ public interface LoanRepository extends JpaRepository<Loan, Long> {
     @EntityGraph(attributePaths = {"copy", "copy.publication", "user", "reservation"})
     Page<Loan> findByReturnedAtIsNullOrderByDueDateAsc(Pageable pageable);
 
-    @EntityGraph(attributePaths = {"user", "copy", "copy.publication"})
-    List<Loan> findByDueDateAndReturnedAtIsNull(LocalDate dueDate);
+    // Porcja przypomnień "zbliża się termin" (termin w [fromDate, toDate]) jednym zapytaniem: wpis w rejestrze
+    // loan_notifications + wiadomość. Pomija już przypomniane (także przy ponownym przebiegu); zwraca liczbę wysłanych.
+    @Query(value = """
+        WITH due AS (
+            SELECT l.id AS loan_id, l.user_id, l.due_date, p.title
+            FROM loans l
+            JOIN copies c ON c.id = l.copy_id
+            JOIN publications p ON p.id = c.publication_id
+            WHERE l.returned_at IS NULL
+              AND l.due_date BETWEEN :fromDate AND :toDate
+              AND NOT EXISTS (SELECT 1 FROM loan_notifications n
+                              WHERE n.loan_id = l.id AND n.type = 'DUE_SOON' AND n.due_date = l.due_date)
+            ORDER BY l.id
+            LIMIT :limit
+        ), claimed AS (
+            INSERT INTO loan_notifications (loan_id, type, due_date)
+            SELECT loan_id, 'DUE_SOON', due_date FROM due
+            ON CONFLICT DO NOTHING
+            RETURNING loan_id
+        ), sent AS (
+            INSERT INTO messages (user_id, type, title, body)
+            SELECT d.user_id, 'DUE_SOON', 'Zbliża się termin zwrotu',
+                   'Przypominamy, że '
+                   || CASE d.due_date - CAST(:today AS date)
+                        WHEN 0 THEN 'dziś'
+                        WHEN 1 THEN 'jutro'
+                        ELSE 'za ' || (d.due_date - CAST(:today AS date)) || ' dni'
+                      END
+                   || ' (' || d.due_date || ') mija termin zwrotu pozycji: ' || d.title || '.'
+            FROM due d
+            JOIN claimed c ON c.loan_id = d.loan_id
+            RETURNING 1
+        )
+        SELECT count(*) FROM sent
+        """, nativeQuery = true)
+    long notifyDueSoon(@Param("today") LocalDate today,
+                       @Param("fromDate") LocalDate fromDate,
+                       @Param("toDate") LocalDate toDate,
+                       @Param("limit") int limit);
+
+    // Jak notifyDueSoon, dla terminów, które już minęły
+    @Query(value = """
+        WITH due AS (
+            SELECT l.id AS loan_id, l.user_id, l.due_date, p.title
+            FROM loans l
+            JOIN copies c ON c.id = l.copy_id
+            JOIN publications p ON p.id = c.publication_id
+            WHERE l.returned_at IS NULL
+              AND l.due_date BETWEEN :fromDate AND :toDate
+              AND NOT EXISTS (SELECT 1 FROM loan_notifications n
+                              WHERE n.loan_id = l.id AND n.type = 'OVERDUE' AND n.due_date = l.due_date)
+            ORDER BY l.id
+            LIMIT :limit
+        ), claimed AS (
+            INSERT INTO loan_notifications (loan_id, type, due_date)
+            SELECT loan_id, 'OVERDUE', due_date FROM due
+            ON CONFLICT DO NOTHING
+            RETURNING loan_id
+        ), sent AS (
+            INSERT INTO messages (user_id, type, title, body)
+            SELECT d.user_id, 'OVERDUE', 'Termin zwrotu minął!',
+                   'Minął termin zwrotu pozycji: ' || d.title || '. Prosimy o niezwłoczny zwrot.'
+            FROM due d
+            JOIN claimed c ON c.loan_id = d.loan_id
+            RETURNING 1
+        )
+        SELECT count(*) FROM sent
+        """, nativeQuery = true)
+    long notifyOverdue(@Param("fromDate") LocalDate fromDate,
+                       @Param("toDate") LocalDate toDate,
+                       @Param("limit") int limit);
 
     // Do dashboardu: licznik przetrzymanych (termin minął < dzisiaj i nie oddano)
     long countByDueDateBeforeAndReturnedAtIsNull(LocalDate date);
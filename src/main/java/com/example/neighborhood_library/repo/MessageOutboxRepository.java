@@ -0,0 +1,31 @@
+package com.example.neighborhood_library.repo;
+
+import com.example.neighborhood_library.domain.OutboxMessage;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface MessageOutboxRepository extends JpaRepository<OutboxMessage, Long> {
+
+    // Porcja do wysłania; SKIP LOCKED - kilka dyspozytorów (węzłów) bierze rozłączne porcje
+    @Query(value = """
+        SELECT *
+        FROM message_outbox o
+        WHERE o.failed_at IS NULL
+          AND o.next_attempt_at <= now()
+        ORDER BY o.next_attempt_at, o.id
+        LIMIT :limit
+        FOR UPDATE SKIP LOCKED
+        """, nativeQuery = true)
+    List<OutboxMessage> claimDue(@Param("limit") int limit);
+
+    @Query(value = """
+        SELECT count(*) AS pending,
+               COALESCE(EXTRACT(EPOCH FROM now() - min(o.created_at)), 0) AS lagSeconds
+        FROM message_outbox o
+        WHERE o.failed_at IS NULL
+        """, nativeQuery = true)
+    OutboxBacklogRow backlog();
+}
@@ -0,0 +1,9 @@
+package com.example.neighborhood_library.repo;
+
+import java.util.List;
+
+public interface MessageRepositoryCustom {
+
+    /** Jeden batch JDBC zamiast INSERT-u na encję (IDENTITY wyłącza batchowanie w Hibernate). */
+    void insertBatch(List<NewMessage> messages);
+}
@@ -0,0 +1,32 @@
+package com.example.neighborhood_library.repo;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+class MessageRepositoryImpl implements MessageRepositoryCustom {
+
+    private static final String INSERT = """
+        INSERT INTO messages (user_id, type, title, body, created_at)
+        VALUES (?, ?, ?, ?, ?)
+        """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    MessageRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void insertBatch(List<NewMessage> messages) {
+        if (messages.isEmpty()) return;
+        jdbcTemplate.batchUpdate(INSERT, messages, messages.size(), (ps, m) -> {
+            ps.setLong(1, m.userId());
+            ps.setString(2, m.type().name());
+            ps.setString(3, m.title());
+            ps.setString(4, m.body());
+            ps.setTimestamp(5, Timestamp.from(m.createdAt().toInstant()));
+        });
+    }
+}
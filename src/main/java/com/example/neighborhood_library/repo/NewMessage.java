@@ -0,0 +1,11 @@
+package com.example.neighborhood_library.repo;
+
+import com.example.neighborhood_library.domain.MessageType;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Wiadomość do wstawienia hurtem (MessageRepository.insertBatch) - bez encji i jej IDENTITY.
+ */
+public record NewMessage(long userId, MessageType type, String title, String body, OffsetDateTime createdAt) {
+}
@@ -0,0 +1,9 @@
+package com.example.neighborhood_library.repo;
+
+import java.time.Instant;
+
+/**
+ * Wpis historii operacji do wstawienia hurtem (OperationHistoryRepository.insertBatch) - bez encji i jej IDENTITY.
+ */
+public record NewOperation(Long actorUserId, Long targetUserId, String action, Long copyId, Instant happenedAt) {
+}
@@ -0,0 +1,9 @@
+package com.example.neighborhood_library.repo;
+
+import java.util.List;
+
+public interface OperationHistoryRepositoryCustom {
+
+    /** Wszystkie wpisy jednym batchem JDBC (jak MessageRepository.insertBatch) zamiast INSERT-u na encję. */
+    void insertBatch(List<NewOperation> entries);
+}
@@ -0,0 +1,33 @@
+package com.example.neighborhood_library.repo;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.List;
+
+class OperationHistoryRepositoryImpl implements OperationHistoryRepositoryCustom {
+
+    private static final String INSERT = """
+        INSERT INTO operations_history (actor_user_id, target_user_id, action, copy_id, happened_at)
+        VALUES (?, ?, ?, ?, ?)
+        """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    OperationHistoryRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void insertBatch(List<NewOperation> entries) {
+        if (entries.isEmpty()) return;
+        jdbcTemplate.batchUpdate(INSERT, entries, entries.size(), (ps, e) -> {
+            ps.setObject(1, e.actorUserId(), Types.BIGINT);
+            ps.setObject(2, e.targetUserId(), Types.BIGINT);
+            ps.setString(3, e.action());
+            ps.setObject(4, e.copyId(), Types.BIGINT);
+            ps.setTimestamp(5, Timestamp.from(e.happenedAt()));
+        });
+    }
+}
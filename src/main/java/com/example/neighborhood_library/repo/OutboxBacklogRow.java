@@ -0,0 +1,9 @@
+package com.example.neighborhood_library.repo;
+
+/**
+ * Zaległość outboxa: ile zdarzeń czeka i jak stare jest najstarsze (sekundy, 0 gdy pusto).
+ */
+public interface OutboxBacklogRow {
+    Long getPending();
+    Double getLagSeconds();
+}
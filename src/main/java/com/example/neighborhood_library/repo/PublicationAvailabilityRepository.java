@@ -0,0 +1,30 @@
+package com.example.neighborhood_library.repo;
+
+import com.example.neighborhood_library.domain.PublicationAvailability;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+public interface PublicationAvailabilityRepository extends JpaRepository<PublicationAvailability, Long> {
+
+    @Query("""
+        select pa.available > 0
+        from PublicationAvailability pa
+        where pa.publicationId = :publicationId
+    """)
+    Boolean hasAvailableCopy(@Param("publicationId") long publicationId);
+
+    // Blokada zwolnień egzemplarzy publikacji do końca transakcji (fn_lock_copy_releases): egzemplarz staje się
+    // wolny tylko pod nią, więc hasAvailableCopy wywołane PO niej (osobne zapytanie = nowy snapshot) widzi
+    // każde zatwierdzone zwolnienie, a trwające czeka na nas. Rezerwacje jej nie biorą.
+    @Query(value = "select fn_lock_copy_releases(:publicationId)", nativeQuery = true)
+    boolean lockCopyReleases(@Param("publicationId") long publicationId);
+
+    // Składa zatwierdzone delty liczników (najwyżej limit publikacji); zwraca liczbę złożonych delt
+    @Query(value = "select fn_fold_publication_availability(:limit)", nativeQuery = true)
+    int foldDeltas(@Param("limit") int limit);
+
+    // Przelicza liczniki z copies; zwraca liczbę poprawionych wierszy (0 = wszystko się zgadzało)
+    @Query(value = "select fn_rebuild_publication_availability()", nativeQuery = true)
+    int rebuild();
+}
@@ -0,0 +1,14 @@
+package com.example.neighborhood_library.repo;
+
+/**
+ * Wiersz do budowy indeksu wyszukiwania w pamięci: publikacja x autor (autor może być null).
+ */
+public interface PublicationIndexRow {
+    Long getId();
+    Long getCategoryId();
+    String getTitle();
+    String getFirstName();
+    String getLastName();
+    // ma nieusunięty egzemplarz albo nie ma żadnego (jak filtr w searchIds)
+    boolean getVisible();
+}
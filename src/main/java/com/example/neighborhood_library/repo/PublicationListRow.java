@@ -0,0 +1,17 @@
+package com.example.neighborhood_library.repo;
+
+/**
+ * Wiersz listy katalogu policzony w SQL: liczniki egzemplarzy wg statusu i gotowa etykieta autorów,
+ * bez ładowania encji Copy / PublicationAuthor.
+ */
+public interface PublicationListRow {
+    Long getId();
+    String getTitle();
+    String getKind();
+    String getCategoryName();
+    String getAuthors();
+    long getAvailable();
+    long getReserved();
+    long getLoaned();
+    long getUnavailable();
+}
@@ -0,0 +1,7 @@
+package com.example.neighborhood_library.repo;
+
+/** Wiersz wyniku full-text dla stronicowania kursorem: id + ranking (ts_rank_cd, real). */
+public interface PublicationRankRow {
+    Long getId();
+    Float getRank();
+}
@@ -1,15 +1,35 @@
 package com.example.neighborhood_library.repo;
 
 import com.example.neighborhood_library.domain.Publication;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface PublicationRepository extends JpaRepository<Publication, Long> {
 
+    String INDEX_ROWS_SELECT = """
+        select p.id as id,
+               p.category_id as categoryId,
+               p.title as title,
+               a.first_name::text as firstName,
+               a.last_name::text as lastName,
+               (av.live_count > 0 or av.deleted = 0) as visible
+        from publications p
+        join publication_availability_live av on av.publication_id = p.id
+        left join publications_authors pa on pa.publication_id = p.id
+        left join authors a on a.id = pa.author_id
+        """;
+
     @Query(
             value = """
             select distinct p.id
@@ -44,25 +64,280 @@ public interface PublicationRepository extends JpaRepository<Publication, Long>
     )
     Page<Long> searchIds(String q, Long categoryId, Pageable pageable);
 
+    // Full-text: GIN na publications.search_document, ranking ts_rank_cd (tytuł > autorzy > kategoria).
+    // Warunek na liczniki egzemplarzy odpowiada "left join copies ... where c.deletedAt is null" z searchIds
+    // (jest nieusunięty egzemplarz albo publikacja nie ma żadnych).
+    @Query(
+            value = """
+            select p.id
+            from publications p
+            join publication_availability_live av on av.publication_id = p.id
+            where p.search_document @@ to_tsquery('library_search', :tsQuery)
+              and (cast(:categoryId as bigint) is null or p.category_id = :categoryId)
+              and (av.live_count > 0 or av.deleted = 0)
+            order by ts_rank_cd(p.search_document, to_tsquery('library_search', :tsQuery)) desc, p.id
+        """,
+            countQuery = """
+            select count(*)
+            from publications p
+            join publication_availability_live av on av.publication_id = p.id
+            where p.search_document @@ to_tsquery('library_search', :tsQuery)
+              and (cast(:categoryId as bigint) is null or p.category_id = :categoryId)
+              and (av.live_count > 0 or av.deleted = 0)
+        """,
+            nativeQuery = true
+    )
+    Page<Long> searchIdsFullText(@Param("tsQuery") String tsQuery,
+                                 @Param("categoryId") Long categoryId,
+                                 Pageable pageable);
+
+    // Stronicowanie kursorem: "po id" zamiast OFFSET, Slice = size + 1 wierszy, bez countQuery
     @Query("""
-        select distinct p
+        select distinct p.id
         from Publication p
-        left join fetch p.category
-        left join fetch p.publicationAuthors pa
-        left join fetch pa.author
-        left join fetch p.copies c
-        where p.id in :ids
+        left join p.publicationAuthors pa
+        left join pa.author a
+        left join p.copies c
+        where c.deletedAt is null
+          and (:categoryId is null or p.category.id = :categoryId)
+          and (:afterId is null or p.id > :afterId)
+          and (
+               :q is null or :q = ''
+               or lower(p.title) like lower(concat('%', :q, '%'))
+               or lower(a.firstName) like lower(concat('%', :q, '%'))
+               or lower(a.lastName) like lower(concat('%', :q, '%'))
+          )
+        order by p.id
+    """)
+    Slice<Long> searchIdsAfter(@Param("q") String q,
+                               @Param("categoryId") Long categoryId,
+                               @Param("afterId") Long afterId,
+                               Pageable pageable);
+
+    @Query("""
+        select count(distinct p.id)
+        from Publication p
+        left join p.publicationAuthors pa
+        left join pa.author a
+        left join p.copies c
+        where c.deletedAt is null
+          and (:categoryId is null or p.category.id = :categoryId)
+          and (
+               :q is null or :q = ''
+               or lower(p.title) like lower(concat('%', :q, '%'))
+               or lower(a.firstName) like lower(concat('%', :q, '%'))
+               or lower(a.lastName) like lower(concat('%', :q, '%'))
+          )
     """)
-    List<Publication> findAllByIdInWithDetails(List<Long> ids);
+    long countIds(@Param("q") String q, @Param("categoryId") Long categoryId);
+
+    // Full-text z kursorem (rank, id): kolejność jak w searchIdsFullText, następna strona = "mniejszy ranking
+    // albo ten sam ranking i większe id". Pierwsza strona: afterId = null.
+    @Query(value = """
+        select r.id as id, r.rank as rank
+        from (
+            select p.id,
+                   ts_rank_cd(p.search_document, to_tsquery('library_search', :tsQuery)) as rank
+            from publications p
+            join publication_availability_live av on av.publication_id = p.id
+            where p.search_document @@ to_tsquery('library_search', :tsQuery)
+              and (cast(:categoryId as bigint) is null or p.category_id = :categoryId)
+              and (av.live_count > 0 or av.deleted = 0)
+        ) r
+        where cast(:afterId as bigint) is null
+           or r.rank < cast(:afterRank as real)
+           or (r.rank = cast(:afterRank as real) and r.id > cast(:afterId as bigint))
+        order by r.rank desc, r.id
+        limit :limit
+        """, nativeQuery = true)
+    List<PublicationRankRow> searchFullTextAfter(@Param("tsQuery") String tsQuery,
+                                                 @Param("categoryId") Long categoryId,
+                                                 @Param("afterRank") Float afterRank,
+                                                 @Param("afterId") Long afterId,
+                                                 @Param("limit") int limit);
+
+    @Query(value = """
+        select count(*)
+        from publications p
+        join publication_availability_live av on av.publication_id = p.id
+        where p.search_document @@ to_tsquery('library_search', :tsQuery)
+          and (cast(:categoryId as bigint) is null or p.category_id = :categoryId)
+          and (av.live_count > 0 or av.deleted = 0)
+        """, nativeQuery = true)
+    long countFullText(@Param("tsQuery") String tsQuery, @Param("categoryId") Long categoryId);
+
+    // Fasety: zbiór trafień (te same warunki widoczności co wyszukiwanie) + jedna agregacja GROUPING SETS
+    String FACETS_MATCHED = """
+        with matched as (
+            select p.id,
+                   p.category_id,
+                   cat.name::text as category_name,
+                   p.kind,
+                   (p.year / 10) * 10 as decade,
+                   av.available > 0 as available_now
+            from publications p
+            join categories cat on cat.id = p.category_id
+            join publication_availability_live av on av.publication_id = p.id
+            where (av.live_count > 0 or av.deleted = 0)
+        """;
 
+    String FACETS_AGGREGATE = """
+        )
+        select case
+                 when grouping(m.category_id) = 0 then 'CATEGORY'
+                 when grouping(m.kind) = 0 then 'KIND'
+                 when grouping(m.decade) = 0 then 'DECADE'
+                 else 'AVAILABLE'
+               end as facet,
+               coalesce(m.category_id::text, m.kind, m.decade::text, m.available_now::text) as value,
+               m.category_name as label,
+               count(*) as total,
+               count(*) filter (where cast(:categoryId as bigint) is null or m.category_id = :categoryId) as inCategory
+        from matched m
+        group by grouping sets ((m.category_id, m.category_name), (m.kind), (m.decade), (m.available_now))
+        """;
+
+    @Query(value = FACETS_MATCHED + """
+              and p.search_document @@ to_tsquery('library_search', :tsQuery)
+        """ + FACETS_AGGREGATE, nativeQuery = true)
+    List<FacetCountRow> countFacetsFullText(@Param("tsQuery") String tsQuery, @Param("categoryId") Long categoryId);
+
+    // Odpowiednik dopasowania z searchIds (LIKE); q = null => cały katalog
+    @Query(value = FACETS_MATCHED + """
+              and (
+                   cast(:q as text) is null
+                   or lower(p.title) like lower('%' || :q || '%')
+                   or exists (
+                       select 1
+                       from publications_authors pa
+                       join authors a on a.id = pa.author_id
+                       where pa.publication_id = p.id
+                         and (lower(a.first_name::text) like lower('%' || :q || '%')
+                              or lower(a.last_name::text) like lower('%' || :q || '%'))
+                   )
+              )
+        """ + FACETS_AGGREGATE, nativeQuery = true)
+    List<FacetCountRow> countFacetsLike(@Param("q") String q, @Param("categoryId") Long categoryId);
+
+    // Progi pg_trgm dla operatorów % i <% (is_local = true => tylko do końca bieżącej transakcji)
+    @Query(value = """
+        select set_config('pg_trgm.similarity_threshold', cast(:threshold as text), true)
+            || set_config('pg_trgm.word_similarity_threshold', cast(:threshold as text), true)
+        """, nativeQuery = true)
+    String setTrigramThresholds(@Param("threshold") double threshold);
+
+    // Rozmyte dopasowanie (literówki) po tytule i nazwiskach autorów; operatory % / <% korzystają z indeksów GIN
+    @Query(value = """
+        with matches as (
+            select p.id as publication_id,
+                   word_similarity(lower(:q), lower(p.title)) as score
+            from publications p
+            where lower(:q) <% lower(p.title)
+            union all
+            select pa.publication_id,
+                   greatest(similarity(lower(a.last_name::text), lower(:q)),
+                            similarity(lower(a.first_name::text), lower(:q))) as score
+            from authors a
+            join publications_authors pa on pa.author_id = a.id
+            where lower(a.last_name::text) % lower(:q)
+               or lower(a.first_name::text) % lower(:q)
+        )
+        select m.publication_id
+        from matches m
+        join publications p on p.id = m.publication_id
+        join publication_availability_live av on av.publication_id = p.id
+        where (cast(:categoryId as bigint) is null or p.category_id = :categoryId)
+          and (av.live_count > 0 or av.deleted = 0)
+        group by m.publication_id
+        order by max(m.score) desc, m.publication_id
+        limit :limit
+        """, nativeQuery = true)
+    List<Long> findSimilarIds(@Param("q") String q,
+                              @Param("categoryId") Long categoryId,
+                              @Param("limit") int limit);
+
+    // "Czy chodziło Ci o ...": najbliższy tytuł albo autor
+    @Query(value = """
+        select t.term
+        from (
+            select p.title as term,
+                   word_similarity(lower(:q), lower(p.title)) as score
+            from publications p
+            where lower(:q) <% lower(p.title)
+            union all
+            select a.first_name::text || ' ' || a.last_name::text,
+                   greatest(similarity(lower(a.last_name::text), lower(:q)),
+                            similarity(lower(a.first_name::text || ' ' || a.last_name::text), lower(:q)))
+            from authors a
+            where lower(a.last_name::text) % lower(:q)
+        ) t
+        order by t.score desc, t.term
+        limit 1
+        """, nativeQuery = true)
+    Optional<String> findClosestTerm(@Param("q") String q);
+
+    // Pełna przebudowa indeksu w pamięci: strumień (fetch size), bez trzymania całego katalogu w JDBC
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query(value = INDEX_ROWS_SELECT + " order by p.id", nativeQuery = true)
+    Stream<PublicationIndexRow> streamIndexRows();
+
+    @Query(value = INDEX_ROWS_SELECT + " where p.id = :id", nativeQuery = true)
+    List<PublicationIndexRow> findIndexRows(@Param("id") long id);
+
+    // Lista katalogu: jeden wiersz na publikację. Liczniki z publication_availability_live, autorzy w podzapytaniu
+    // (lateral), więc złączenia nie mnożą wierszy; kolejność autorów jak String.compareTo (COLLATE "C").
+    @Query(value = """
+        select p.id as id,
+               p.title as title,
+               p.kind as kind,
+               cat.name::text as categoryName,
+               coalesce(au.authors, '') as authors,
+               av.available as available,
+               av.reserved as reserved,
+               av.loaned as loaned,
+               av.unavailable as unavailable
+        from publications p
+        join categories cat on cat.id = p.category_id
+        join publication_availability_live av on av.publication_id = p.id
+        left join lateral (
+            select string_agg(x.name, ', ' order by x.name collate "C") as authors
+            from (
+                select distinct trim(a.first_name::text || ' ' || a.last_name::text) as name
+                from publications_authors pa
+                join authors a on a.id = pa.author_id
+                where pa.publication_id = p.id
+            ) x
+        ) au on true
+        where p.id in (:ids)
+        """, nativeQuery = true)
+    List<PublicationListRow> findListRows(@Param("ids") Collection<Long> ids);
+
+    // Szczegóły publikacji: autorzy i egzemplarze w osobnych zapytaniach - jeden join fetch obu kolekcji
+    // dawałby iloczyn autorzy x egzemplarze wierszy.
     @Query("""
-        select distinct p
+        select p
         from Publication p
-        left join fetch p.category
+        join fetch p.category
         left join fetch p.publicationAuthors pa
         left join fetch pa.author
-        left join fetch p.copies c
         where p.id = :id
     """)
-    Optional<Publication> findByIdWithDetails(long id);
+    Optional<Publication> findByIdWithAuthors(@Param("id") long id);
+
+    @Query("""
+        select p
+        from Publication p
+        left join fetch p.copies
+        where p.id = :id
+    """)
+    Optional<Publication> findByIdWithCopies(@Param("id") long id);
+
+    /** Publikacja z kategorią, autorami i egzemplarzami: dwa zapytania w jednym persistence context. */
+    @Transactional(readOnly = true)
+    default Optional<Publication> findByIdWithDetails(long id) {
+        Optional<Publication> publication = findByIdWithAuthors(id);
+        // drugie zapytanie inicjalizuje p.copies na tej samej (zarządzanej) encji
+        publication.ifPresent(p -> findByIdWithCopies(id));
+        return publication;
+    }
 }
@@ -0,0 +1,9 @@
+package com.example.neighborhood_library.repo;
+
+/**
+ * Egzemplarz zwolniony przez masową operację w SQL (np. wygaszenie rezerwacji).
+ */
+public interface ReleasedCopyRow {
+    Long getCopyId();
+    Long getPublicationId();
+}
@@ -0,0 +1,11 @@
+package com.example.neighborhood_library.repo;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Termin odbioru aktywnej rezerwacji (ładowanie ReservationExpiryTimer przy starcie).
+ */
+public interface ReservationDeadlineRow {
+    Long getId();
+    OffsetDateTime getPickupUntil();
+}
@@ -6,8 +6,8 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.Collection;
 import java.util.List;
@@ -30,15 +30,58 @@ public interface ReservationRepository extends JpaRepository<Reservation, Long>
     @EntityGraph(attributePaths = {"copy", "copy.publication"})
     List<Reservation> findByUserIdAndStatusInOrderByReservedAtDesc(Long userId, Collection<ReservationStatus> statuses);
 
-    @Modifying
+    // Jedna porcja wygaszania: najstarsze przeterminowane, pomija wiersze zablokowane przez równoległe transakcje
+    // (np. wydanie przy ladzie). Zwraca zwolnione egzemplarze (kolejka oczekujących) z publikacjami (cache katalogu).
     @Query(value = """
-        UPDATE reservations
-        SET status = 'EXPIRED',
-            expired_at = COALESCE(expired_at, now())
-        WHERE status = 'ACTIVE'
-          AND pickup_until < now()
+        WITH candidates AS (
+            SELECT r.id
+            FROM reservations r
+            WHERE r.status = 'ACTIVE'
+              AND r.pickup_until < now()
+            ORDER BY r.pickup_until
+            LIMIT :limit
+            FOR UPDATE SKIP LOCKED
+        ), expired AS (
+            UPDATE reservations r
+            SET status = 'EXPIRED',
+                expired_at = COALESCE(r.expired_at, now())
+            FROM candidates c
+            WHERE r.id = c.id
+            RETURNING r.copy_id
+        )
+        SELECT c.id AS copyId,
+               c.publication_id AS publicationId
+        FROM expired e
+        JOIN copies c ON c.id = e.copy_id
         """, nativeQuery = true)
-    int expireOverdue();
+    List<ReleasedCopyRow> expireOverdueChunk(@Param("limit") int limit);
+
+    // Wygaszenie konkretnych rezerwacji w chwili terminu (ReservationExpiryTimer); te już zamknięte
+    // albo właśnie obsługiwane przy ladzie są pomijane - złapie je okresowy przebieg
+    @Query(value = """
+        WITH candidates AS (
+            SELECT r.id
+            FROM reservations r
+            WHERE r.id IN (:ids)
+              AND r.status = 'ACTIVE'
+              AND r.pickup_until < now()
+            FOR UPDATE SKIP LOCKED
+        ), expired AS (
+            UPDATE reservations r
+            SET status = 'EXPIRED',
+                expired_at = COALESCE(r.expired_at, now())
+            FROM candidates c
+            WHERE r.id = c.id
+            RETURNING r.copy_id
+        )
+        SELECT c.id AS copyId,
+               c.publication_id AS publicationId
+        FROM expired e
+        JOIN copies c ON c.id = e.copy_id
+        """, nativeQuery = true)
+    List<ReleasedCopyRow> expireDue(@Param("ids") Collection<Long> ids);
+
+    List<ReservationDeadlineRow> findDeadlinesByStatus(ReservationStatus status);
 
     // Do dashboardu
     long countByStatus(ReservationStatus status);
@@ -0,0 +1,7 @@
+package com.example.neighborhood_library.repo;
+
+import com.example.neighborhood_library.domain.ScheduledJobRun;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface ScheduledJobRunRepository extends JpaRepository<ScheduledJobRun, String> {
+}
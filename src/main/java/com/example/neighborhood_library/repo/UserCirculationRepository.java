@@ -0,0 +1,24 @@
+package com.example.neighborhood_library.repo;
+
+import com.example.neighborhood_library.domain.UserCirculation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+public interface UserCirculationRepository extends JpaRepository<UserCirculation, Long> {
+
+    // Ten sam limit co w fn_check_limit_3 (circulation_limits wg roli i statusu, brak wiersza = 3)
+    @Query(value = """
+        SELECT COALESCE(uc.active_items, 0) >= COALESCE(cl.max_active_items, 3)
+        FROM users u
+        LEFT JOIN user_circulation uc ON uc.user_id = u.id
+        LEFT JOIN circulation_limits cl
+               ON cl.account_role = u.account_role AND cl.user_status = u.status
+        WHERE u.id = :userId
+        """, nativeQuery = true)
+    Boolean isAtLimit(@Param("userId") long userId);
+
+    // Przelicza liczniki z reservations i loans; zwraca liczbę poprawionych wierszy (0 = wszystko się zgadzało)
+    @Query(value = "select fn_rebuild_user_circulation()", nativeQuery = true)
+    int rebuild();
+}
@@ -2,18 +2,27 @@ package com.example.neighborhood_library.service;
 
 import com.example.neighborhood_library.domain.Category;
 import com.example.neighborhood_library.repo.CategoryRepository;
+import com.example.neighborhood_library.support.CatalogCategoriesChangedEvent;
+import com.example.neighborhood_library.support.CategoryRenamedEvent;
 import com.example.neighborhood_library.support.NotFoundException;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+/**
+ * Cache katalogu czyszczą słuchacze zdarzeń po commicie (CatalogCategoryService, CatalogCacheEvictionListener),
+ * a inne węzły dostają je przez CacheInvalidationBus - @CacheEvict na metodzie transakcyjnej czyściłby przed commitem.
+ */
 @Service
 public class AdminCategoryService {
 
     private final CategoryRepository categoryRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
-    public AdminCategoryService(CategoryRepository categoryRepository) {
+    public AdminCategoryService(CategoryRepository categoryRepository, ApplicationEventPublisher eventPublisher) {
         this.categoryRepository = categoryRepository;
+        this.eventPublisher = eventPublisher;
     }
 
     @Transactional
@@ -21,20 +30,24 @@ public class AdminCategoryService {
         Category c = new Category();
         c.setName(name.trim());
         categoryRepository.save(c);
+        eventPublisher.publishEvent(new CatalogCategoriesChangedEvent());
     }
 
+    // nazwa kategorii jest w view-modelach katalogu; zmiana rzadka, więc czyścimy całe cache
     @Transactional
     public void rename(long id, String newName) {
         Category c = categoryRepository.findById(id)
                 .orElseThrow(() -> new NotFoundException("Nie znaleziono kategorii id=" + id));
         c.setName(newName.trim());
         categoryRepository.save(c);
+        eventPublisher.publishEvent(new CategoryRenamedEvent(id));
     }
 
     @Transactional
     public void delete(long id) {
         try {
             categoryRepository.deleteById(id);
+            eventPublisher.publishEvent(new CatalogCategoriesChangedEvent());
         } catch (DataIntegrityViolationException e) {
             // ON DELETE RESTRICT gdy kategoria niepusta
             throw new IllegalStateException("Nie można usunąć kategorii, która ma przypisane publikacje.");
@@ -2,10 +2,13 @@ package com.example.neighborhood_library.service;
 
 import com.example.neighborhood_library.domain.*;
 import com.example.neighborhood_library.repo.LoanRepository;
-import com.example.neighborhood_library.repo.MessageRepository;
 import com.example.neighborhood_library.repo.ReservationRepository;
+import com.example.neighborhood_library.support.CopyReleasedEvent;
 import com.example.neighborhood_library.support.NotFoundException;
+import com.example.neighborhood_library.support.PublicationChangedEvent;
 import com.example.neighborhood_library.support.ReservationBlockedException;
+import com.example.neighborhood_library.support.ReservationClosedEvent;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
@@ -14,29 +17,33 @@ import org.springframework.transaction.annotation.Transactional;
 import java.time.Clock;
 import java.time.LocalDate;
 import java.time.OffsetDateTime;
+import java.util.Map;
 
 @Service
 public class AdminCirculationService {
 
     private final ReservationRepository reservationRepository;
     private final LoanRepository loanRepository;
-    private final MessageRepository messageRepository;
+    private final MessageOutbox messageOutbox;
     private final Clock clock;
     private final CurrentUserService currentUserService;
     private final OperationService operationService;
+    private final ApplicationEventPublisher eventPublisher;
 
     public AdminCirculationService(
             ReservationRepository reservationRepository,
             LoanRepository loanRepository,
-            MessageRepository messageRepository,
-            Clock clock, CurrentUserService currentUserService, OperationService operationService
+            MessageOutbox messageOutbox,
+            Clock clock, CurrentUserService currentUserService, OperationService operationService,
+            ApplicationEventPublisher eventPublisher
     ) {
         this.reservationRepository = reservationRepository;
         this.loanRepository = loanRepository;
-        this.messageRepository = messageRepository;
+        this.messageOutbox = messageOutbox;
         this.clock = clock;
         this.currentUserService = currentUserService;
         this.operationService = operationService;
+        this.eventPublisher = eventPublisher;
     }
 
     @Transactional(readOnly = true)
@@ -56,10 +63,13 @@ public class AdminCirculationService {
         OffsetDateTime now = OffsetDateTime.now(clock);
         r.setStatus(ReservationStatus.CANCELLED_BY_ADMIN);
         r.setCancelledAt(now);
-        reservationRepository.save(r);
+        reservationRepository.saveAndFlush(r);
 
-        User admin = currentUserService.requireCurrentUser();
+        User admin = currentUserService.currentUserReference();
         operationService.logAction(admin, r.getUser(), "RESERVATION_CANCELLED_BY_ADMIN", r.getCopy());
+        eventPublisher.publishEvent(new ReservationClosedEvent(r.getId()));
+        eventPublisher.publishEvent(CopyReleasedEvent.of(r.getCopy()));
+        eventPublisher.publishEvent(PublicationChangedEvent.of(r.getCopy()));
     }
 
     @Transactional
@@ -90,18 +100,14 @@ public class AdminCirculationService {
 
         Loan saved = loanRepository.save(loan); // DB trigger ustawi reservations -> FULFILLED i przeliczy copy.status
 
-        Message m = new Message();
-        m.setUser(r.getUser());
-        m.setType(MessageType.LOAN_CREATED);
-        m.setTitle("Wypożyczenie utworzone");
-        m.setBody("Wypożyczono: " + r.getCopy().getPublication().getTitle()
-                + " (egz. " + r.getCopy().getInventoryCode() + "). Termin zwrotu: " + saved.getDueDate() + ".");
-        m.setCreatedAt(now);
-        messageRepository.save(m);
+        messageOutbox.enqueue(r.getUser(), MessageType.LOAN_CREATED, Map.of(
+                MessageRenderer.TITLE, r.getCopy().getPublication().getTitle(),
+                MessageRenderer.INVENTORY_CODE, r.getCopy().getInventoryCode(),
+                MessageRenderer.DUE_DATE, String.valueOf(saved.getDueDate())));
 
-        User admin = currentUserService.requireCurrentUser();
+        User admin = currentUserService.currentUserReference();
         operationService.logAction(admin, r.getUser(), "LOAN_CREATED", r.getCopy());
-
+        eventPublisher.publishEvent(PublicationChangedEvent.of(r.getCopy()));
 
         return saved;
     }
@@ -121,10 +127,11 @@ public class AdminCirculationService {
         }
 
         loan.setReturnedAt(OffsetDateTime.now(clock));
-        loanRepository.save(loan); // DB trigger przeliczy copy.status
+        loanRepository.saveAndFlush(loan); // DB trigger przeliczy copy.status (przed przekazaniem z kolejki)
 
-        User admin = currentUserService.requireCurrentUser();
+        User admin = currentUserService.currentUserReference();
         operationService.logAction(admin, loan.getUser(), "LOAN_RETURNED", loan.getCopy());
-
+        eventPublisher.publishEvent(CopyReleasedEvent.of(loan.getCopy()));
+        eventPublisher.publishEvent(PublicationChangedEvent.of(loan.getCopy()));
     }
 }
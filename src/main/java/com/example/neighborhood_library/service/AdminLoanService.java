@@ -2,7 +2,10 @@ package com.example.neighborhood_library.service;
 
 import com.example.neighborhood_library.domain.Loan;
 import com.example.neighborhood_library.repo.LoanRepository;
+import com.example.neighborhood_library.support.CopyReleasedEvent;
 import com.example.neighborhood_library.support.NotFoundException;
+import com.example.neighborhood_library.support.PublicationChangedEvent;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
@@ -14,9 +17,11 @@ import java.time.OffsetDateTime;
 public class AdminLoanService {
 
     private final LoanRepository loanRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
-    public AdminLoanService(LoanRepository loanRepository) {
+    public AdminLoanService(LoanRepository loanRepository, ApplicationEventPublisher eventPublisher) {
         this.loanRepository = loanRepository;
+        this.eventPublisher = eventPublisher;
     }
 
     public Page<Loan> activeLoans(Pageable pageable) {
@@ -32,7 +37,9 @@ public class AdminLoanService {
             return;
         }
         loan.setReturnedAt(OffsetDateTime.now());
-        loanRepository.save(loan);
+        loanRepository.saveAndFlush(loan); // flush: trigger zwalnia egzemplarz przed przekazaniem z kolejki
+        eventPublisher.publishEvent(CopyReleasedEvent.of(loan.getCopy()));
+        eventPublisher.publishEvent(PublicationChangedEvent.of(loan.getCopy()));
         // copy.status zaktualizuje się triggerami w DB :contentReference[oaicite:7]{index=7}
     }
 }
@@ -2,7 +2,11 @@ package com.example.neighborhood_library.service;
 
 import com.example.neighborhood_library.domain.*;
 import com.example.neighborhood_library.repo.*;
+import com.example.neighborhood_library.support.CatalogCategoriesChangedEvent;
 import com.example.neighborhood_library.support.NotFoundException;
+import com.example.neighborhood_library.support.PublicationChangedEvent;
+import com.example.neighborhood_library.support.PublicationEntryChangedEvent;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -20,19 +24,22 @@ public class AdminPublicationService {
     private final CopyRepository copyRepository;
     private final CurrentUserService currentUserService;
     private final OperationService operationService;
+    private final ApplicationEventPublisher eventPublisher;
 
     public AdminPublicationService(CategoryRepository categoryRepository,
                                    PublicationRepository publicationRepository,
                                    AuthorRepository authorRepository,
                                    CopyRepository copyRepository,
                                    CurrentUserService currentUserService,
-                                   OperationService operationService) {
+                                   OperationService operationService,
+                                   ApplicationEventPublisher eventPublisher) {
         this.categoryRepository = categoryRepository;
         this.publicationRepository = publicationRepository;
         this.authorRepository = authorRepository;
         this.copyRepository = copyRepository;
         this.currentUserService = currentUserService;
         this.operationService = operationService;
+        this.eventPublisher = eventPublisher;
     }
 
     @Transactional
@@ -90,6 +97,10 @@ public class AdminPublicationService {
         savedCopy.setInventoryCode(generateInventoryCode(savedCopy.getId()));
         copyRepository.save(savedCopy);
 
+        eventPublisher.publishEvent(new PublicationChangedEvent(saved.getId()));
+        eventPublisher.publishEvent(new PublicationEntryChangedEvent(saved.getId()));
+        // nowy tytuł z egzemplarzem: kategoria może stać się niepusta, a jej licznik rośnie
+        eventPublisher.publishEvent(new CatalogCategoriesChangedEvent());
         return saved.getId();
     }
 
@@ -103,6 +114,10 @@ public class AdminPublicationService {
         Category category = categoryRepository.findById(categoryId)
             .orElseThrow(() -> new NotFoundException("Kategoria nie istnieje"));
 
+        // tytuł z egzemplarzami przechodzi do innej kategorii => zmieniają się liczniki w filtrze katalogu
+        boolean movesLiveTitle = !Objects.equals(p.getCategory() == null ? null : p.getCategory().getId(), categoryId)
+            && p.getCopies().stream().anyMatch(c -> c.getDeletedAt() == null);
+
         p.setTitle(title.trim());
         p.setKind(kind);
         p.setCategory(category);
@@ -158,9 +173,14 @@ public class AdminPublicationService {
         }
 
         publicationRepository.save(p);
+        eventPublisher.publishEvent(new PublicationChangedEvent(publicationId));
+        eventPublisher.publishEvent(new PublicationEntryChangedEvent(publicationId));
+        if (movesLiveTitle) {
+            eventPublisher.publishEvent(new CatalogCategoriesChangedEvent());
+        }
 
         // Log
-        operationService.logAction(currentUserService.requireCurrentUser(), null, "PUBLICATION_UPDATED", null);
+        operationService.logAction(currentUserService.currentUserReference(), null, "PUBLICATION_UPDATED", null);
     }
 
 
@@ -169,6 +189,8 @@ public class AdminPublicationService {
         Publication p = publicationRepository.findById(publicationId)
                 .orElseThrow(() -> new NotFoundException("Publikacja nie istnieje"));
 
+        boolean firstLiveCopy = copyRepository.countByPublicationIdAndDeletedAtIsNull(publicationId) == 0;
+
         Copy copy = new Copy();
         copy.setPublication(p);
         copy.setStatus(CopyStatus.AVAILABLE);
@@ -178,8 +200,14 @@ public class AdminPublicationService {
         Copy saved = copyRepository.save(copy);
         saved.setInventoryCode(generateInventoryCode(saved.getId()));
         copyRepository.save(saved);
+        eventPublisher.publishEvent(new PublicationChangedEvent(publicationId));
+        if (firstLiveCopy) {
+            // tytuł znów widoczny w katalogu
+            eventPublisher.publishEvent(new PublicationEntryChangedEvent(publicationId));
+            eventPublisher.publishEvent(new CatalogCategoriesChangedEvent());
+        }
 
-        operationService.logAction(currentUserService.requireCurrentUser(), null, "COPY_CREATED", saved);
+        operationService.logAction(currentUserService.currentUserReference(), null, "COPY_CREATED", saved);
     }
 
     @Transactional
@@ -192,12 +220,22 @@ public class AdminPublicationService {
             throw new IllegalStateException("Nie można usunąć egzemplarza, który jest wypożyczony lub zarezerwowany.");
         }
 
+        Long publicationId = copy.getPublication().getId();
+        boolean lastLiveCopy = copy.getDeletedAt() == null
+                && copyRepository.countByPublicationIdAndDeletedAtIsNull(publicationId) == 1;
+
         // Soft delete
         copy.setDeletedAt(OffsetDateTime.now());
         copy.setStatus(CopyStatus.UNAVAILABLE);
         copyRepository.save(copy);
+        eventPublisher.publishEvent(new PublicationChangedEvent(publicationId));
+        if (lastLiveCopy) {
+            // tytuł znika z katalogu
+            eventPublisher.publishEvent(new PublicationEntryChangedEvent(publicationId));
+            eventPublisher.publishEvent(new CatalogCategoriesChangedEvent());
+        }
 
-        operationService.logAction(currentUserService.requireCurrentUser(), null, "COPY_DELETED", copy);
+        operationService.logAction(currentUserService.currentUserReference(), null, "COPY_DELETED", copy);
     }
 
 
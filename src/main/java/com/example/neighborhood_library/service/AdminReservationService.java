@@ -2,31 +2,38 @@ package com.example.neighborhood_library.service;
 
 import com.example.neighborhood_library.domain.*;
 import com.example.neighborhood_library.repo.LoanRepository;
-import com.example.neighborhood_library.repo.MessageRepository;
 import com.example.neighborhood_library.repo.ReservationRepository;
+import com.example.neighborhood_library.support.CopyReleasedEvent;
 import com.example.neighborhood_library.support.NotFoundException;
+import com.example.neighborhood_library.support.PublicationChangedEvent;
+import com.example.neighborhood_library.support.ReservationClosedEvent;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.OffsetDateTime;
+import java.util.Map;
 
 @Service
 public class AdminReservationService {
 
     private final ReservationRepository reservationRepository;
     private final LoanRepository loanRepository;
-    private final MessageRepository messageRepository;
+    private final MessageOutbox messageOutbox;
+    private final ApplicationEventPublisher eventPublisher;
 
     public AdminReservationService(
             ReservationRepository reservationRepository,
             LoanRepository loanRepository,
-            MessageRepository messageRepository
+            MessageOutbox messageOutbox,
+            ApplicationEventPublisher eventPublisher
     ) {
         this.reservationRepository = reservationRepository;
         this.loanRepository = loanRepository;
-        this.messageRepository = messageRepository;
+        this.messageOutbox = messageOutbox;
+        this.eventPublisher = eventPublisher;
     }
 
     public Page<Reservation> activeReservations(Pageable pageable) {
@@ -44,7 +51,10 @@ public class AdminReservationService {
 
         r.setStatus(ReservationStatus.CANCELLED_BY_ADMIN);
         r.setCancelledAt(OffsetDateTime.now());
-        reservationRepository.save(r);
+        reservationRepository.saveAndFlush(r);
+        eventPublisher.publishEvent(new ReservationClosedEvent(r.getId()));
+        eventPublisher.publishEvent(CopyReleasedEvent.of(r.getCopy()));
+        eventPublisher.publishEvent(PublicationChangedEvent.of(r.getCopy()));
     }
 
     @Transactional
@@ -71,12 +81,10 @@ public class AdminReservationService {
         loan.setCopy(r.getCopy());
         loanRepository.saveAndFlush(loan); // DB trigger ustawi reservation=FULFILLED
 
-        Message msg = new Message();
-        msg.setUser(r.getUser());
-        msg.setType(MessageType.LOAN_CREATED);
-        msg.setTitle("Wypożyczenie utworzone");
-        msg.setBody("Wypożyczono: " + r.getCopy().getPublication().getTitle()
-                + " (egz. " + r.getCopy().getInventoryCode() + "). Termin zwrotu: " + loan.getDueDate() + ".");
-        messageRepository.save(msg);
+        messageOutbox.enqueue(r.getUser(), MessageType.LOAN_CREATED, Map.of(
+                MessageRenderer.TITLE, r.getCopy().getPublication().getTitle(),
+                MessageRenderer.INVENTORY_CODE, r.getCopy().getInventoryCode(),
+                MessageRenderer.DUE_DATE, String.valueOf(loan.getDueDate())));
+        eventPublisher.publishEvent(PublicationChangedEvent.of(r.getCopy()));
     }
 }
@@ -0,0 +1,81 @@
+package com.example.neighborhood_library.service;
+
+import com.example.neighborhood_library.config.CacheConfig;
+import com.example.neighborhood_library.support.CategoryRenamedEvent;
+import com.example.neighborhood_library.support.InvalidationType;
+import com.example.neighborhood_library.support.LocalCacheInvalidator;
+import com.example.neighborhood_library.support.PublicationChangedEvent;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Usuwa z cache view-modele zmienionej publikacji - dopiero po commicie, żeby równoległy odczyt
+ * nie wstawił z powrotem starej wersji sprzed zmiany.
+ * Zmiany z innych węzłów przychodzą przez CacheInvalidationBus.
+ */
+@Component
+public class CatalogCacheEvictionListener implements LocalCacheInvalidator {
+
+    private final CacheManager cacheManager;
+
+    public CatalogCacheEvictionListener(CacheManager cacheManager) {
+        this.cacheManager = cacheManager;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onPublicationChanged(PublicationChangedEvent event) {
+        evict(CacheConfig.PUBLICATION_DETAILS, event.publicationId());
+        evict(CacheConfig.PUBLICATION_LIST_ITEMS, event.publicationId());
+        // fasety bez frazy liczą cały katalog - każda zmiana publikacji może je zmienić
+        evict(CacheConfig.CATALOG_FACETS, null);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onCategoryRenamed(CategoryRenamedEvent event) {
+        invalidate(InvalidationType.CATALOG, null);
+    }
+
+    @Override
+    public Set<InvalidationType> invalidationTypes() {
+        return EnumSet.of(InvalidationType.PUBLICATION, InvalidationType.CATALOG, InvalidationType.CATALOG_CATEGORIES);
+    }
+
+    @Override
+    public void invalidate(InvalidationType type, Long id) {
+        switch (type) {
+            case PUBLICATION -> {
+                evict(CacheConfig.PUBLICATION_DETAILS, id);
+                evict(CacheConfig.PUBLICATION_LIST_ITEMS, id);
+                evict(CacheConfig.CATALOG_FACETS, null);
+            }
+            case CATALOG -> {
+                evict(CacheConfig.PUBLICATION_DETAILS, null);
+                evict(CacheConfig.PUBLICATION_LIST_ITEMS, null);
+                evict(CacheConfig.CATALOG_CATEGORIES, null);
+                evict(CacheConfig.CATALOG_FACETS, null);
+            }
+            case CATALOG_CATEGORIES -> {
+                evict(CacheConfig.CATALOG_CATEGORIES, null);
+                evict(CacheConfig.CATALOG_FACETS, null);
+            }
+            default -> { }
+        }
+    }
+
+    // publicationId == null: cały cache
+    private void evict(String cacheName, Long publicationId) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache == null) return;
+        if (publicationId == null) {
+            cache.clear();
+        } else {
+            cache.evict(publicationId);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.neighborhood_library.service;
+
+import com.example.neighborhood_library.config.CacheConfig;
+import com.example.neighborhood_library.repo.CategoryRepository;
+import com.example.neighborhood_library.support.CatalogCategoriesChangedEvent;
+import com.example.neighborhood_library.web.viewmodel.CategoryOptionVm;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+
+/**
+ * Lista kategorii do filtra katalogu (tylko niepuste, z liczbą tytułów) - liczona raz i trzymana w cache.
+ * Unieważniana po commicie CatalogCategoriesChangedEvent (także z AdminCategoryService).
+ */
+@Service
+public class CatalogCategoryService {
+
+    private final CategoryRepository categoryRepository;
+
+    public CatalogCategoryService(CategoryRepository categoryRepository) {
+        this.categoryRepository = categoryRepository;
+    }
+
+    @Cacheable(cacheNames = CacheConfig.CATALOG_CATEGORIES, key = "'non-empty'")
+    @Transactional(readOnly = true)
+    public List<CategoryOptionVm> nonEmptyCategories() {
+        return categoryRepository.findNonEmptyForCatalog().stream()
+                .map(row -> new CategoryOptionVm(row.getId(), row.getName(), row.getLiveTitles()))
+                .toList();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    @CacheEvict(cacheNames = CacheConfig.CATALOG_CATEGORIES, allEntries = true)
+    public void onCategoriesChanged(CatalogCategoriesChangedEvent event) {
+        // samo @CacheEvict
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.neighborhood_library.service;
+
+/**
+ * Stronicowanie listy katalogu (app.catalog.paging).
+ */
+public enum CatalogPagingMode {
+    /** Numery stron: OFFSET + count przy każdej stronie. */
+    OFFSET,
+    /** Kursor "po (rank, id)": koszt strony nie zależy od jej numeru, count tylko na pierwszej stronie. */
+    KEYSET
+}
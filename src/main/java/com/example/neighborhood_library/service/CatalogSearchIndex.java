@@ -0,0 +1,182 @@
+package com.example.neighborhood_library.service;
+
+import com.example.neighborhood_library.repo.PublicationIndexRow;
+import com.example.neighborhood_library.repo.PublicationRepository;
+import com.example.neighborhood_library.support.BackgroundRebuild;
+import com.example.neighborhood_library.support.InvalidationType;
+import com.example.neighborhood_library.support.InvertedIndex;
+import com.example.neighborhood_library.support.LocalCacheInvalidator;
+import com.example.neighborhood_library.support.PublicationChangedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Opcjonalny indeks wyszukiwania w pamięci (app.catalog.search-mode=MEMORY) - odciąża bazę przy wyszukiwaniu.
+ * Pełna przebudowa przy starcie (strumieniowo z PublicationRepository), potem aktualizacje przyrostowe
+ * po commicie zmian w publikacjach (PublicationChangedEvent); zmiany z innych węzłów przez CacheInvalidationBus.
+ * Pełna przebudowa zlecona przez CacheInvalidationBus (reconnect, inwalidacja całego typu) idzie w tle.
+ */
+@Component
+public class CatalogSearchIndex implements ApplicationRunner, LocalCacheInvalidator, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(CatalogSearchIndex.class);
+
+    private final PublicationRepository publicationRepository;
+    private final boolean enabled;
+
+    // null = jeszcze nie zbudowany (CatalogService korzysta wtedy z bazy)
+    private volatile InvertedIndex index;
+    private volatile boolean rebuilding;
+    private final Set<Long> changedDuringRebuild = ConcurrentHashMap.newKeySet();
+    private final BackgroundRebuild backgroundRebuild;
+
+    public CatalogSearchIndex(PublicationRepository publicationRepository,
+                              @Value("${app.catalog.search-mode:FULLTEXT}") CatalogSearchMode searchMode,
+                              PlatformTransactionManager transactionManager) {
+        this.publicationRepository = publicationRepository;
+        this.enabled = searchMode == CatalogSearchMode.MEMORY;
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        this.backgroundRebuild = new BackgroundRebuild("catalog-search-index-rebuild",
+                () -> readOnly.executeWithoutResult(status -> rebuild()));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void run(ApplicationArguments args) {
+        if (enabled) {
+            rebuild();
+        }
+    }
+
+    public boolean isReady() {
+        return index != null;
+    }
+
+    /** Id publikacji rosnąco; pusta tablica, gdy indeks niegotowy albo brak wyników. */
+    public int[] search(String query, Long categoryId) {
+        InvertedIndex current = index;
+        if (current == null) return new int[0];
+        return current.search(InvertedIndex.tokenize(query), categoryId);
+    }
+
+    /** Wymaga transakcji (strumień z bazy). Przebudowy nie nakładają się na siebie. */
+    public synchronized void rebuild() {
+        long start = System.currentTimeMillis();
+        rebuilding = true;
+        try {
+            InvertedIndex.Builder builder = new InvertedIndex.Builder();
+            try (Stream<PublicationIndexRow> rows = publicationRepository.streamIndexRows()) {
+                // wiersze posortowane po id: publikacja x autor -> grupujemy kolejne wiersze tej samej publikacji
+                PendingDocument pending = null;
+                for (Iterator<PublicationIndexRow> it = rows.iterator(); it.hasNext(); ) {
+                    PublicationIndexRow row = it.next();
+                    if (pending == null || pending.id != row.getId()) {
+                        if (pending != null) pending.addTo(builder);
+                        pending = new PendingDocument(row);
+                    }
+                    pending.addAuthor(row);
+                }
+                if (pending != null) pending.addTo(builder);
+            }
+            index = builder.build();
+        } finally {
+            rebuilding = false;
+        }
+
+        // zmiany, które przyszły w trakcie budowy, mogły trafić do starej instancji
+        for (Iterator<Long> it = changedDuringRebuild.iterator(); it.hasNext(); ) {
+            reindex(it.next());
+            it.remove();
+        }
+        log.info("Catalog search index built: {} publications in {} ms", index.size(),
+                System.currentTimeMillis() - start);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    public void onPublicationChanged(PublicationChangedEvent event) {
+        if (!enabled) return;
+        if (rebuilding) {
+            changedDuringRebuild.add(event.publicationId());
+        }
+        reindex(event.publicationId());
+    }
+
+    @Override
+    public Set<InvalidationType> invalidationTypes() {
+        return EnumSet.of(InvalidationType.PUBLICATION);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void invalidate(InvalidationType type, Long id) {
+        if (!enabled || index == null) return;
+        if (id == null) {
+            // wołane z wątku listenera - przebudowa trwa tyle, co start, więc nie tutaj
+            backgroundRebuild.request();
+            return;
+        }
+        if (rebuilding) {
+            changedDuringRebuild.add(id);
+        }
+        reindex(id);
+    }
+
+    @Override
+    public void destroy() {
+        backgroundRebuild.close();
+    }
+
+    private void reindex(long publicationId) {
+        InvertedIndex current = index;
+        if (current == null) return;
+
+        List<PublicationIndexRow> rows = publicationRepository.findIndexRows(publicationId);
+        if (rows.isEmpty()) {
+            current.remove(Math.toIntExact(publicationId));
+            return;
+        }
+        PendingDocument doc = new PendingDocument(rows.get(0));
+        rows.forEach(doc::addAuthor);
+        current.put(Math.toIntExact(doc.id), doc.categoryId, doc.tokens, doc.visible);
+    }
+
+    private static final class PendingDocument {
+        private final long id;
+        private final long categoryId;
+        private final boolean visible;
+        private final List<String> tokens = new ArrayList<>();
+
+        PendingDocument(PublicationIndexRow row) {
+            this.id = row.getId();
+            this.categoryId = row.getCategoryId();
+            this.visible = row.getVisible();
+            tokens.addAll(InvertedIndex.tokenize(row.getTitle()));
+        }
+
+        void addAuthor(PublicationIndexRow row) {
+            tokens.addAll(InvertedIndex.tokenize(row.getFirstName()));
+            tokens.addAll(InvertedIndex.tokenize(row.getLastName()));
+        }
+
+        void addTo(InvertedIndex.Builder builder) {
+            builder.add(Math.toIntExact(id), categoryId, tokens, visible);
+        }
+    }
+}
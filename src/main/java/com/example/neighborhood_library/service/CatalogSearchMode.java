@@ -0,0 +1,13 @@
+package com.example.neighborhood_library.service;
+
+/**
+ * Tryb wyszukiwania w katalogu (app.catalog.search-mode).
+ */
+public enum CatalogSearchMode {
+    /** tsvector + GIN na publications.search_document, wyniki rankingowane. */
+    FULLTEXT,
+    /** Stare lower(...) like '%q%' - tryb awaryjny. */
+    LIKE,
+    /** Indeks odwrócony w pamięci (CatalogSearchIndex); do czasu zbudowania - LIKE. */
+    MEMORY
+}
@@ -1,25 +1,48 @@
 package com.example.neighborhood_library.service;
 
+import com.example.neighborhood_library.config.CacheConfig;
 import com.example.neighborhood_library.domain.*;
+import com.example.neighborhood_library.repo.FacetCountRow;
+import com.example.neighborhood_library.repo.PublicationListRow;
+import com.example.neighborhood_library.repo.PublicationRankRow;
 import com.example.neighborhood_library.repo.PublicationRepository;
 import com.example.neighborhood_library.support.NotFoundException;
 import com.example.neighborhood_library.web.viewmodel.*;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.*;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.nio.charset.StandardCharsets;
 import java.util.*;
-import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
 public class CatalogService {
 
     private final PublicationRepository publicationRepository;
+    private final CatalogSearchIndex searchIndex;
+    private final CatalogSearchMode searchMode;
+    private final double similarityThreshold;
+    private final boolean keysetCount;
+    private final Cache listItemCache;
 
-    public CatalogService(PublicationRepository publicationRepository) {
+    public CatalogService(PublicationRepository publicationRepository,
+                          CatalogSearchIndex searchIndex,
+                          @Value("${app.catalog.search-mode:FULLTEXT}") CatalogSearchMode searchMode,
+                          @Value("${app.catalog.fuzzy.similarity-threshold:0.3}") double similarityThreshold,
+                          @Value("${app.catalog.keyset-count:false}") boolean keysetCount,
+                          CacheManager cacheManager) {
         this.publicationRepository = publicationRepository;
+        this.searchIndex = searchIndex;
+        this.searchMode = searchMode;
+        this.similarityThreshold = similarityThreshold;
+        this.keysetCount = keysetCount;
+        this.listItemCache = cacheManager.getCache(CacheConfig.PUBLICATION_LIST_ITEMS);
     }
 
     @Transactional(readOnly = true)
@@ -27,28 +50,156 @@ public class CatalogService {
         String query = normalize(q);
 
         int page0 = Math.max(0, page1Based - 1);
-        Pageable pageable = PageRequest.of(page0, size, Sort.by(Sort.Direction.ASC, "id"));
-
-        Page<Long> ids = publicationRepository.searchIds(query, categoryId, pageable);
+        Page<Long> ids = searchIds(query, categoryId, page0, size);
+        Pageable pageable = ids.getPageable();
         if (ids.isEmpty()) {
             return new PageImpl<>(List.of(), pageable, ids.getTotalElements());
         }
 
-        List<Long> idList = ids.getContent();
-        List<Publication> pubs = publicationRepository.findAllByIdInWithDetails(idList);
+        return new PageImpl<>(toListItems(ids.getContent()), pageable, ids.getTotalElements());
+    }
+
+    /**
+     * Stronicowanie kursorem (app.catalog.paging=KEYSET): zamiast OFFSET warunek "za ostatnią pozycją
+     * poprzedniej strony", więc strona 500 kosztuje tyle co pierwsza. Liczby wyników domyślnie nie ma
+     * (total == null): count po całym zbiorze trafień kosztuje tyle co stronicowanie OFFSET, a pierwsza strona
+     * jest najczęstsza. Z app.catalog.keyset-count=true jest liczona na pierwszej stronie i dalej jedzie w kursorze.
+     * Tryb MEMORY zna liczbę trafień za darmo. Niepoprawny kursor = pierwsza strona.
+     */
+    @Transactional(readOnly = true)
+    public CatalogSlice searchAfter(String q, Long categoryId, String cursor, int size) {
+        String query = normalize(q);
+        CatalogCursor after = CatalogCursor.decode(cursor);
 
-        Map<Long, Publication> byId = pubs.stream()
-                .collect(Collectors.toMap(Publication::getId, Function.identity()));
+        List<Long> ids;
+        List<Float> ranks = null;
+        boolean hasNext;
+        Long total;
 
-        List<PublicationListItemVm> items = new ArrayList<>(idList.size());
-        for (Long id : idList) {
-            Publication p = byId.get(id);
-            if (p != null) items.add(toListItemVm(p));
+        String tsQuery = (query == null) ? null : toPrefixTsQuery(query);
+        if (searchMode == CatalogSearchMode.MEMORY && searchIndex.isReady()) {
+            int[] hits = searchIndex.search(query, categoryId);
+            int from = 0;
+            if (after != null) {
+                int pos = Arrays.binarySearch(hits, Math.toIntExact(after.id()));
+                from = pos >= 0 ? pos + 1 : -pos - 1;
+            }
+            int to = Math.min(from + size, hits.length);
+            ids = Arrays.stream(hits, from, to).asLongStream().boxed().toList();
+            hasNext = to < hits.length;
+            total = (long) hits.length;
+        } else if (searchMode == CatalogSearchMode.FULLTEXT && tsQuery != null) {
+            List<PublicationRankRow> rows = publicationRepository.searchFullTextAfter(
+                    tsQuery, categoryId,
+                    after == null ? null : after.rank(),
+                    after == null ? null : after.id(),
+                    size + 1);
+            hasNext = rows.size() > size;
+            rows = hasNext ? rows.subList(0, size) : rows;
+            ids = rows.stream().map(PublicationRankRow::getId).toList();
+            ranks = rows.stream().map(PublicationRankRow::getRank).toList();
+            total = after != null ? after.totalOrNull()
+                    : keysetCount ? publicationRepository.countFullText(tsQuery, categoryId) : null;
+        } else {
+            Slice<Long> slice = publicationRepository.searchIdsAfter(
+                    query, categoryId, after == null ? null : after.id(), PageRequest.of(0, size));
+            ids = slice.getContent();
+            hasNext = slice.hasNext();
+            total = after != null ? after.totalOrNull()
+                    : keysetCount ? publicationRepository.countIds(query, categoryId) : null;
+        }
+
+        long shownBefore = after == null ? 0 : after.shown();
+        String nextCursor = null;
+        if (hasNext && !ids.isEmpty()) {
+            int last = ids.size() - 1;
+            nextCursor = new CatalogCursor(
+                    ranks == null ? 0f : ranks.get(last),
+                    ids.get(last),
+                    shownBefore + ids.size(),
+                    total == null ? CatalogCursor.UNKNOWN_TOTAL : total
+            ).encode();
+        }
+        return new CatalogSlice(toListItems(ids), nextCursor, shownBefore + 1, total);
+    }
+
+    /**
+     * Liczniki faset (kategoria, rodzaj, dekada wydania, "dostępne teraz") dla tego samego zbioru trafień
+     * co search(...) - jedno zapytanie z GROUPING SETS. Faseta kategorii ignoruje bieżący filtr kategorii,
+     * żeby pokazać, gdzie jeszcze są wyniki. Tryb MEMORY liczy fasety z dokumentu full-text.
+     * Bez frazy (samo wejście na /catalog - najczęstsza strona) agregacja objęłaby cały katalog, więc wynik jest
+     * w cache per kategoria i czyszczony po każdej zmianie publikacji (CatalogCacheEvictionListener).
+     */
+    @Cacheable(cacheNames = CacheConfig.CATALOG_FACETS, key = "#categoryId == null ? 'all' : #categoryId",
+            condition = "#q == null || #q.isBlank()")
+    @Transactional(readOnly = true)
+    public CatalogFacetsVm facets(String q, Long categoryId) {
+        String query = normalize(q);
+        String tsQuery = (query == null) ? null : toPrefixTsQuery(query);
+
+        List<FacetCountRow> rows = (searchMode != CatalogSearchMode.LIKE && tsQuery != null)
+                ? publicationRepository.countFacetsFullText(tsQuery, categoryId)
+                : publicationRepository.countFacetsLike(query, categoryId);
+
+        List<FacetValueVm> categories = new ArrayList<>();
+        List<FacetValueVm> kinds = new ArrayList<>();
+        List<FacetValueVm> decades = new ArrayList<>();
+        long availableNow = 0;
+
+        for (FacetCountRow row : rows) {
+            switch (row.getFacet()) {
+                case "CATEGORY" -> categories.add(new FacetValueVm(row.getValue(), row.getLabel(), row.getTotal()));
+                case "KIND" -> {
+                    if (row.getInCategory() > 0) {
+                        kinds.add(new FacetValueVm(row.getValue(),
+                                kindLabel(PublicationKind.valueOf(row.getValue())), row.getInCategory()));
+                    }
+                }
+                case "DECADE" -> {
+                    // publikacje bez roku nie trafiają do fasety dekad
+                    if (row.getValue() != null && row.getInCategory() > 0) {
+                        int decade = Integer.parseInt(row.getValue());
+                        decades.add(new FacetValueVm(row.getValue(), decade + "–" + (decade + 9), row.getInCategory()));
+                    }
+                }
+                case "AVAILABLE" -> {
+                    if (Boolean.parseBoolean(row.getValue())) availableNow = row.getInCategory();
+                }
+                default -> { }
+            }
         }
 
-        return new PageImpl<>(items, pageable, ids.getTotalElements());
+        categories.sort(Comparator.comparing(FacetValueVm::label, String.CASE_INSENSITIVE_ORDER));
+        kinds.sort(Comparator.comparing(FacetValueVm::value));
+        decades.sort(Comparator.comparing((FacetValueVm f) -> Integer.parseInt(f.value())).reversed());
+        return new CatalogFacetsVm(categories, kinds, decades, availableNow);
+    }
+
+    /**
+     * Wyszukiwanie odporne na literówki (pg_trgm), ranking wg podobieństwa.
+     * Droższe od zwykłego wyszukiwania - kontroler woła je tylko, gdy search(...) nic nie znalazł.
+     */
+    @Transactional(readOnly = true)
+    public List<PublicationListItemVm> searchSimilar(String q, Long categoryId, int limit) {
+        String query = normalize(q);
+        if (query == null) return List.of();
+
+        publicationRepository.setTrigramThresholds(similarityThreshold);
+        return toListItems(publicationRepository.findSimilarIds(query, categoryId, limit));
     }
 
+    /** "Czy chodziło Ci o ...?" - najbliższy tytuł/autor, o ile różni się od wpisanego zapytania. */
+    @Transactional(readOnly = true)
+    public Optional<String> didYouMean(String q) {
+        String query = normalize(q);
+        if (query == null) return Optional.empty();
+
+        publicationRepository.setTrigramThresholds(similarityThreshold);
+        return publicationRepository.findClosestTerm(query)
+                .filter(term -> !term.equalsIgnoreCase(query));
+    }
+
+    @Cacheable(cacheNames = CacheConfig.PUBLICATION_DETAILS, key = "#publicationId")
     @Transactional(readOnly = true)
     public PublicationDetailsVm getDetails(long publicationId) {
         Publication p = publicationRepository.findByIdWithDetails(publicationId)
@@ -72,29 +223,124 @@ public class CatalogService {
         );
     }
 
-    private PublicationListItemVm toListItemVm(Publication p) {
-        Map<CopyStatus, Long> counts = p.getCopies().stream()
-                .filter(c -> c.getDeletedAt() == null)
-                .collect(Collectors.groupingBy(Copy::getStatus, Collectors.counting()));
+    private List<PublicationListItemVm> toListItems(List<Long> idList) {
+        if (idList.isEmpty()) return List.of();
 
-        long available = counts.getOrDefault(CopyStatus.AVAILABLE, 0L);
-        long reserved = counts.getOrDefault(CopyStatus.RESERVED, 0L);
-        long loaned = counts.getOrDefault(CopyStatus.LOANED, 0L);
-        long unavailable = counts.getOrDefault(CopyStatus.UNAVAILABLE, 0L);
+        // z cache bierzemy gotowe pozycje, z bazy tylko brakujące
+        Map<Long, PublicationListItemVm> byId = new HashMap<>();
+        List<Long> missing = new ArrayList<>();
+        for (Long id : idList) {
+            PublicationListItemVm cached = listItemCache.get(id, PublicationListItemVm.class);
+            if (cached != null) byId.put(id, cached);
+            else missing.add(id);
+        }
+        if (!missing.isEmpty()) {
+            for (PublicationListRow row : publicationRepository.findListRows(missing)) {
+                PublicationListItemVm item = toListItemVm(row);
+                listItemCache.put(item.id(), item);
+                byId.put(item.id(), item);
+            }
+        }
+
+        // zachowujemy kolejność id (ranking z zapytania)
+        List<PublicationListItemVm> items = new ArrayList<>(idList.size());
+        for (Long id : idList) {
+            PublicationListItemVm item = byId.get(id);
+            if (item != null) items.add(item);
+        }
+        return items;
+    }
 
+    private PublicationListItemVm toListItemVm(PublicationListRow row) {
         return new PublicationListItemVm(
-                p.getId(),
-                p.getTitle(),
-                kindLabel(p.getKind()),
-                authorsLabel(p),
-                p.getCategory().getName(),
-                available,
-                reserved,
-                loaned,
-                unavailable
+                row.getId(),
+                row.getTitle(),
+                kindLabel(PublicationKind.valueOf(row.getKind())),
+                row.getAuthors(),
+                row.getCategoryName(),
+                row.getAvailable(),
+                row.getReserved(),
+                row.getLoaned(),
+                row.getUnavailable()
         );
     }
 
+    private Page<Long> searchIds(String query, Long categoryId, int page0, int size) {
+        if (searchMode == CatalogSearchMode.MEMORY && searchIndex.isReady()) {
+            // rosnąco po id, jak w LIKE; stronicowanie na tablicy wyników
+            int[] hits = searchIndex.search(query, categoryId);
+            Pageable pageable = PageRequest.of(page0, size);
+            int from = (int) Math.min(pageable.getOffset(), hits.length);
+            int to = Math.min(from + size, hits.length);
+            List<Long> slice = Arrays.stream(hits, from, to).asLongStream().boxed().toList();
+            return new PageImpl<>(slice, pageable, hits.length);
+        }
+
+        String tsQuery = (query == null) ? null : toPrefixTsQuery(query);
+        if (searchMode == CatalogSearchMode.FULLTEXT && tsQuery != null) {
+            // kolejność (ranking) jest w samym zapytaniu natywnym, więc bez Sort
+            return publicationRepository.searchIdsFullText(tsQuery, categoryId, PageRequest.of(page0, size));
+        }
+        // LIKE: tryb awaryjny, a także puste zapytanie (sam filtr kategorii) i zapytanie bez słów
+        Pageable pageable = PageRequest.of(page0, size, Sort.by(Sort.Direction.ASC, "id"));
+        return publicationRepository.searchIds(query, categoryId, pageable);
+    }
+
+    /**
+     * "Wiedźmin, Sapk" -> "wiedźmin:* & sapk:*" (każde słowo jako prefiks, wszystkie wymagane).
+     * Tnie po wszystkim, co nie jest literą/cyfrą, więc do to_tsquery nie trafią operatory z inputu.
+     * Zwraca null, gdy w zapytaniu nie ma żadnego słowa.
+     */
+    static String toPrefixTsQuery(String query) {
+        String tsQuery = Arrays.stream(query.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+"))
+                .filter(t -> !t.isBlank())
+                .map(t -> t + ":*")
+                .collect(Collectors.joining(" & "));
+        return tsQuery.isEmpty() ? null : tsQuery;
+    }
+
+    /**
+     * Nieprzezroczysty kursor: ranking (bity floata - dokładne porównanie w SQL), id ostatniej pozycji,
+     * liczba pozycji na poprzednich stronach i zapamiętana liczba wyników.
+     */
+    record CatalogCursor(float rank, long id, long shown, long total) {
+
+        static final long UNKNOWN_TOTAL = -1;
+
+        Long totalOrNull() {
+            return total == UNKNOWN_TOTAL ? null : total;
+        }
+
+        String encode() {
+            String raw = Integer.toHexString(Float.floatToIntBits(rank)) + ":" + id + ":" + shown + ":" + total;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.US_ASCII));
+        }
+
+        static CatalogCursor decode(String cursor) {
+            if (cursor == null || cursor.isBlank()) return null;
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII);
+                String[] parts = raw.split(":");
+                if (parts.length != 4) return null;
+                CatalogCursor c = new CatalogCursor(
+                        Float.intBitsToFloat(Integer.parseUnsignedInt(parts[0], 16)),
+                        Long.parseLong(parts[1]),
+                        Long.parseLong(parts[2]),
+                        Long.parseLong(parts[3])
+                );
+                // indeks MEMORY trzyma id jako int - id spoza zakresu nie pochodzi z naszego kursora
+                boolean valid = Float.isFinite(c.rank())
+                        && c.id() > 0 && c.id() <= Integer.MAX_VALUE
+                        && c.shown() >= 0
+                        && c.total() >= UNKNOWN_TOTAL;
+                return valid ? c : null;
+            } catch (IllegalArgumentException e) {
+                // zmieniony/ucięty link - zaczynamy od początku
+                return null;
+            }
+        }
+    }
+
     private String authorsLabel(Publication p) {
         // PublicationAuthor -> Author
         return p.getPublicationAuthors().stream()
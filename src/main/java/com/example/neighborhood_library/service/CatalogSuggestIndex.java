@@ -0,0 +1,225 @@
+package com.example.neighborhood_library.service;
+
+import com.example.neighborhood_library.repo.PublicationIndexRow;
+import com.example.neighborhood_library.repo.PublicationRepository;
+import com.example.neighborhood_library.support.BackgroundRebuild;
+import com.example.neighborhood_library.support.InvalidationType;
+import com.example.neighborhood_library.support.LocalCacheInvalidator;
+import com.example.neighborhood_library.support.PrefixIndex;
+import com.example.neighborhood_library.support.PublicationEntryChangedEvent;
+import com.example.neighborhood_library.web.viewmodel.SuggestionVm;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Podpowiedzi "w trakcie pisania" (GET /catalog/suggest) z pamięci - bez zapytania do bazy na każdy znak.
+ * Tytuły widocznych publikacji i autorzy, którzy mają choć jedną widoczną publikację.
+ * Budowa przy starcie (ten sam strumień co CatalogSearchIndex), potem aktualizacja po PublicationEntryChangedEvent
+ * (tytuł, autorzy, widoczność - nie rezerwacje i wypożyczenia) i po takich zmianach z innych węzłów
+ * (CacheInvalidationBus, PUBLICATION_ENTRY). Niezmieniony tytuł i autorzy nie dotykają indeksu (np. to samo
+ * zdarzenie z listenera i z NOTIFY na węźle nadawcy). Wątek listenera nie czeka na przebudowę:
+ * pełna przebudowa idzie w tle, a zmiana publikacji w jej trakcie jest odkładana i nanoszona po niej.
+ */
+@Component
+public class CatalogSuggestIndex implements ApplicationRunner, LocalCacheInvalidator, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(CatalogSuggestIndex.class);
+
+    private final PublicationRepository publicationRepository;
+
+    private volatile PrefixIndex<SuggestionVm> index = new PrefixIndex<>();
+    // autor -> widoczne publikacje (autor znika z podpowiedzi razem z ostatnią), publikacja -> jej autorzy
+    private final Map<String, Set<Long>> authorPublications = new HashMap<>();
+    private final Map<Long, Set<String>> publicationAuthors = new HashMap<>();
+    // publikacja -> tytuł w indeksie (tylko widoczne)
+    private final Map<Long, String> publicationTitles = new HashMap<>();
+
+    // chroni mapy i zmiany w index; zmiany, które nie dostały blokady, czekają w pending
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Set<Long> pending = ConcurrentHashMap.newKeySet();
+    private final BackgroundRebuild backgroundRebuild;
+
+    public CatalogSuggestIndex(PublicationRepository publicationRepository,
+                               PlatformTransactionManager transactionManager) {
+        this.publicationRepository = publicationRepository;
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        this.backgroundRebuild = new BackgroundRebuild("catalog-suggest-index-rebuild",
+                () -> readOnly.executeWithoutResult(status -> rebuild()));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void run(ApplicationArguments args) {
+        rebuild();
+    }
+
+    public List<SuggestionVm> suggest(String prefix, int limit) {
+        return index.search(prefix, limit);
+    }
+
+    /** Wymaga transakcji (strumień z bazy). Zmiany z listenera w trakcie budowy są nanoszone po niej. */
+    public void rebuild() {
+        locked(this::build);
+    }
+
+    private void build() {
+        long start = System.currentTimeMillis();
+        authorPublications.clear();
+        publicationAuthors.clear();
+        publicationTitles.clear();
+
+        PrefixIndex.Builder<SuggestionVm> builder = new PrefixIndex.Builder<>();
+        try (Stream<PublicationIndexRow> rows = publicationRepository.streamIndexRows()) {
+            rows.filter(PublicationIndexRow::getVisible).forEach(row -> {
+                publicationTitles.put(row.getId(), row.getTitle());
+                builder.put(titleOwner(row.getId()), row.getTitle(),
+                        new SuggestionVm(row.getTitle(), SuggestionVm.TITLE, row.getId()));
+                String author = authorName(row);
+                if (author != null) {
+                    link(row.getId(), author);
+                    builder.put(authorOwner(author), author, new SuggestionVm(author, SuggestionVm.AUTHOR, null));
+                }
+            });
+        }
+        index = builder.build();
+        log.info("Catalog suggest index built: {} entries in {} ms", index.size(),
+                System.currentTimeMillis() - start);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    public void onPublicationEntryChanged(PublicationEntryChangedEvent event) {
+        locked(() -> update(event.publicationId()));
+    }
+
+    @Override
+    public Set<InvalidationType> invalidationTypes() {
+        return EnumSet.of(InvalidationType.PUBLICATION_ENTRY);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void invalidate(InvalidationType type, Long id) {
+        if (id == null) {
+            backgroundRebuild.request();
+        } else {
+            pending.add(id);
+            applyPendingIfFree();
+        }
+    }
+
+    @Override
+    public void destroy() {
+        backgroundRebuild.close();
+    }
+
+    private void locked(Runnable action) {
+        lock.lock();
+        try {
+            action.run();
+            applyPending();
+        } finally {
+            lock.unlock();
+        }
+        applyPendingIfFree();
+    }
+
+    // zmiana dodana po applyPending() trzymającego blokadę, a przed jej zwolnieniem, nie może przepaść
+    private void applyPendingIfFree() {
+        while (!pending.isEmpty() && lock.tryLock()) {
+            try {
+                applyPending();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void applyPending() {
+        for (Iterator<Long> it = pending.iterator(); it.hasNext(); ) {
+            long id = it.next();
+            it.remove();
+            update(id);
+        }
+    }
+
+    private void update(long id) {
+        List<PublicationIndexRow> rows = publicationRepository.findIndexRows(id).stream()
+                .filter(PublicationIndexRow::getVisible)
+                .toList();
+
+        Set<String> authors = new HashSet<>();
+        for (PublicationIndexRow row : rows) {
+            String author = authorName(row);
+            if (author != null) authors.add(author);
+        }
+
+        // autorzy, którzy wypadli z tej publikacji
+        for (String old : publicationAuthors.getOrDefault(id, Set.of())) {
+            if (!authors.contains(old)) unlink(id, old);
+        }
+        for (String author : authors) {
+            if (link(id, author)) {
+                index.put(authorOwner(author), author, new SuggestionVm(author, SuggestionVm.AUTHOR, null));
+            }
+        }
+
+        if (rows.isEmpty()) {
+            if (publicationTitles.remove(id) != null) index.remove(titleOwner(id));
+        } else {
+            String title = rows.get(0).getTitle();
+            if (!title.equals(publicationTitles.put(id, title))) {
+                index.put(titleOwner(id), title, new SuggestionVm(title, SuggestionVm.TITLE, id));
+            }
+        }
+    }
+
+    /** true, gdy autor pojawił się w indeksie po raz pierwszy. */
+    private boolean link(long publicationId, String author) {
+        publicationAuthors.computeIfAbsent(publicationId, k -> new HashSet<>()).add(author);
+        Set<Long> publications = authorPublications.computeIfAbsent(author, k -> new HashSet<>());
+        return publications.add(publicationId) && publications.size() == 1;
+    }
+
+    private void unlink(long publicationId, String author) {
+        Set<String> authors = publicationAuthors.get(publicationId);
+        if (authors != null && authors.remove(author) && authors.isEmpty()) {
+            publicationAuthors.remove(publicationId);
+        }
+        Set<Long> publications = authorPublications.get(author);
+        if (publications != null && publications.remove(publicationId) && publications.isEmpty()) {
+            authorPublications.remove(author);
+            index.remove(authorOwner(author));
+        }
+    }
+
+    private static String authorName(PublicationIndexRow row) {
+        if (row.getLastName() == null) return null;
+        String first = row.getFirstName() == null ? "" : row.getFirstName();
+        return (first + " " + row.getLastName()).trim();
+    }
+
+    private static String titleOwner(long publicationId) {
+        return "P:" + publicationId;
+    }
+
+    private static String authorOwner(String author) {
+        return "A:" + author;
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.neighborhood_library.service;
+
+/**
+ * Wybór egzemplarza przy rezerwacji (app.reservations.copy-allocation).
+ */
+public enum CopyAllocationMode {
+    /** Pierwszy wolny egzemplarz z blokadą FOR UPDATE - równoległe rezerwacje czekają na ten sam wiersz. */
+    BLOCKING,
+    /** FOR UPDATE SKIP LOCKED - każda transakcja bierze inny wolny egzemplarz, bez czekania. */
+    SKIP_LOCKED
+}
@@ -1,30 +1,102 @@
 package com.example.neighborhood_library.service;
 
+import com.example.neighborhood_library.config.LibraryUserPrincipal;
 import com.example.neighborhood_library.domain.User;
 import com.example.neighborhood_library.repo.UserRepository;
 import com.example.neighborhood_library.support.NotFoundException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
 
+/**
+ * Zalogowany użytkownik. W obrębie żądania HTTP encja jest wczytywana z bazy najwyżej raz (atrybut żądania;
+ * przy open-in-view to ta sama encja w tym samym kontekście trwałości), a id i referencja JPA
+ * pochodzą z LibraryUserPrincipal - bez zapytania.
+ * Metryka library.current_user.lookups{source=database|request|reference} pokazuje, ile odczytów trafiło do bazy.
+ */
 @Service
 public class CurrentUserService {
 
+    private static final String REQUEST_ATTRIBUTE = CurrentUserService.class.getName() + ".user";
+
     private final UserRepository userRepository;
+    private final Counter databaseLookups;
+    private final Counter requestLookups;
+    private final Counter referenceLookups;
 
-    public CurrentUserService(UserRepository userRepository) {
+    public CurrentUserService(UserRepository userRepository, MeterRegistry meterRegistry) {
         this.userRepository = userRepository;
+        this.databaseLookups = lookups(meterRegistry, "database");
+        this.requestLookups = lookups(meterRegistry, "request");
+        this.referenceLookups = lookups(meterRegistry, "reference");
     }
 
     public User requireCurrentUser() {
+        RequestAttributes request = RequestContextHolder.getRequestAttributes();
+        if (request != null && request.getAttribute(REQUEST_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST) instanceof User user) {
+            requestLookups.increment();
+            return user;
+        }
+
+        User user = load(requireAuthentication());
+        databaseLookups.increment();
+        if (request != null) {
+            request.setAttribute(REQUEST_ATTRIBUTE, user, RequestAttributes.SCOPE_REQUEST);
+        }
+        return user;
+    }
+
+    /** Id zalogowanego - z principala, bez zapytania (gdy kontroler przekazuje do serwisu tylko id). */
+    public long requireCurrentUserId() {
+        Authentication auth = requireAuthentication();
+        if (auth.getPrincipal() instanceof LibraryUserPrincipal principal) {
+            return principal.getId();
+        }
+        return requireCurrentUser().getId();
+    }
+
+    /**
+     * Zalogowany jako klucz obcy (np. aktor w historii operacji): encja z żądania, jeśli już wczytana,
+     * inaczej referencja JPA bez SELECT-a. Wymaga transakcji; pól poza id nie czytać.
+     */
+    public User currentUserReference() {
+        RequestAttributes request = RequestContextHolder.getRequestAttributes();
+        if (request != null && request.getAttribute(REQUEST_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST) instanceof User user) {
+            requestLookups.increment();
+            return user;
+        }
+        long userId = requireCurrentUserId();
+        referenceLookups.increment();
+        return userRepository.getReferenceById(userId);
+    }
+
+    private Authentication requireAuthentication() {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
         String login = (auth != null ? auth.getName() : null);
 
         if (login == null || "anonymousUser".equalsIgnoreCase(login)) {
             throw new NotFoundException("Brak zalogowanego użytkownika");
         }
+        return auth;
+    }
+
+    private User load(Authentication auth) {
+        if (auth.getPrincipal() instanceof LibraryUserPrincipal principal) {
+            return userRepository.findById(principal.getId())
+                    .orElseThrow(() -> new NotFoundException("Użytkownik nie istnieje: " + auth.getName()));
+        }
+        return userRepository.findByLogin(auth.getName())
+                .orElseThrow(() -> new NotFoundException("Użytkownik nie istnieje: " + auth.getName()));
+    }
 
-        return userRepository.findByLogin(login)
-                .orElseThrow(() -> new NotFoundException("Użytkownik nie istnieje: " + login));
+    private static Counter lookups(MeterRegistry meterRegistry, String source) {
+        return Counter.builder("library.current_user.lookups")
+                .description("Odczyty zalogowanego użytkownika wg źródła")
+                .tag("source", source)
+                .register(meterRegistry);
     }
 }
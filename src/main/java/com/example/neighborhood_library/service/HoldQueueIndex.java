@@ -0,0 +1,171 @@
+package com.example.neighborhood_library.service;
+
+import com.example.neighborhood_library.repo.HoldQueueRow;
+import com.example.neighborhood_library.repo.HoldRepository;
+import com.example.neighborhood_library.support.BackgroundRebuild;
+import com.example.neighborhood_library.support.HoldQueueChangedEvent;
+import com.example.neighborhood_library.support.InvalidationType;
+import com.example.neighborhood_library.support.LocalCacheInvalidator;
+import com.example.neighborhood_library.support.RankedIdSet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Pozycje w kolejkach oczekujących z pamięci w O(log n) (zamiast numerowania całej kolejki w bazie przy każdym odczycie):
+ * publikacja -> id oczekujących holdów (RankedIdSet). Pozycja = liczba oczekujących z mniejszym id + 1,
+ * jak row_number() po hold_queue_idx - także dla holdu, którego zmiana jeszcze tu nie dotarła.
+ * Budowa przy starcie, potem HoldQueueChangedEvent po commicie i zmiany z innych węzłów (CacheInvalidationBus, HOLD):
+ * zmiana = bieżący stan holdu z bazy (odczyt po kluczu), więc powtórzona albo spóźniona zmiana niczego nie psuje.
+ * Zmiany w trakcie pełnej przebudowy są odkładane i nanoszone na nowy stan.
+ */
+@Component
+public class HoldQueueIndex implements ApplicationRunner, LocalCacheInvalidator, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(HoldQueueIndex.class);
+
+    private final HoldRepository holdRepository;
+
+    // odczyty pozycji i naniesienie zmiany; zmiany (odczyt z bazy + naniesienie) idą po kolei pod refreshLock,
+    // więc spóźniony odczyt starszego stanu nie nadpisze nowszego
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ReentrantLock refreshLock = new ReentrantLock();
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+    private Map<Long, RankedIdSet> queues = new HashMap<>();
+    // zmiany z czasu przebudowy (null = brak przebudowy), pod blokadą zapisu
+    private Set<Long> pendingDuringRebuild;
+    private final BackgroundRebuild backgroundRebuild;
+
+    public HoldQueueIndex(HoldRepository holdRepository, PlatformTransactionManager transactionManager) {
+        this.holdRepository = holdRepository;
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        this.backgroundRebuild = new BackgroundRebuild("hold-queue-index-rebuild",
+                () -> readOnly.executeWithoutResult(status -> rebuild()));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void run(ApplicationArguments args) {
+        rebuild();
+    }
+
+    /** Pozycja holdu w kolejce publikacji (1 = następny). */
+    public long position(long publicationId, long holdId) {
+        lock.readLock().lock();
+        try {
+            RankedIdSet queue = queues.get(publicationId);
+            return (queue == null ? 0 : queue.countLess(holdId)) + 1L;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Wymaga transakcji (strumień z bazy). Zmiany w trakcie budowy są nanoszone po niej. */
+    public void rebuild() {
+        rebuildLock.lock();
+        try {
+            build();
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    private void build() {
+        withWriteLock(() -> pendingDuringRebuild = new HashSet<>());
+        long start = System.currentTimeMillis();
+        Map<Long, RankedIdSet> built = new HashMap<>();
+        Set<Long> pending = new HashSet<>();
+        boolean complete = false;
+        try (Stream<HoldQueueRow> rows = holdRepository.streamWaitingQueue()) {
+            rows.forEach(row -> built.computeIfAbsent(row.getPublicationId(), k -> new RankedIdSet()).add(row.getId()));
+            complete = true;
+        } finally {
+            boolean swap = complete;
+            withWriteLock(() -> {
+                pending.addAll(pendingDuringRebuild);
+                pendingDuringRebuild = null;
+                if (swap) queues = built;
+            });
+        }
+        pending.forEach(this::refresh);
+        log.info("Hold queue index built: {} queues in {} ms", built.size(), System.currentTimeMillis() - start);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    public void onHoldQueueChanged(HoldQueueChangedEvent event) {
+        refresh(event.holdId());
+    }
+
+    @Override
+    public Set<InvalidationType> invalidationTypes() {
+        return EnumSet.of(InvalidationType.HOLD);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void invalidate(InvalidationType type, Long id) {
+        if (id == null) {
+            backgroundRebuild.request();
+        } else {
+            refresh(id);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        backgroundRebuild.close();
+    }
+
+    private void refresh(long holdId) {
+        refreshLock.lock();
+        try {
+            Optional<HoldQueueRow> row = holdRepository.findQueueRow(holdId);
+            withWriteLock(() -> {
+                if (pendingDuringRebuild != null) pendingDuringRebuild.add(holdId);
+                row.ifPresent(this::apply);
+            });
+            // usunięty razem z użytkownikiem albo publikacją - nie wiadomo, z której kolejki
+            if (row.isEmpty()) backgroundRebuild.request();
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    private void apply(HoldQueueRow row) {
+        long publicationId = row.getPublicationId();
+        if (row.getWaiting()) {
+            queues.computeIfAbsent(publicationId, k -> new RankedIdSet()).add(row.getId());
+            return;
+        }
+        RankedIdSet queue = queues.get(publicationId);
+        if (queue != null && queue.remove(row.getId()) && queue.isEmpty()) {
+            queues.remove(publicationId);
+        }
+    }
+
+    private void withWriteLock(Runnable action) {
+        lock.writeLock().lock();
+        try {
+            action.run();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.neighborhood_library.service;
+
+import com.example.neighborhood_library.domain.*;
+import com.example.neighborhood_library.repo.HandOffRow;
+import com.example.neighborhood_library.repo.HoldRepository;
+import com.example.neighborhood_library.repo.PublicationAvailabilityRepository;
+import com.example.neighborhood_library.repo.PublicationRepository;
+import com.example.neighborhood_library.repo.ReservationRepository;
+import com.example.neighborhood_library.repo.UserRepository;
+import com.example.neighborhood_library.support.CopyReleasedEvent;
+import com.example.neighborhood_library.support.HoldQueueChangedEvent;
+import com.example.neighborhood_library.support.NotFoundException;
+import com.example.neighborhood_library.support.ReservationBlockedException;
+import com.example.neighborhood_library.support.ReservationCreatedEvent;
+import com.example.neighborhood_library.web.viewmodel.HoldVm;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Clock;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Kolejka oczekujących (FIFO) na publikację bez wolnego egzemplarza.
+ * Zwolniony egzemplarz trafia do pierwszego uprawnionego z kolejki w tej samej transakcji,
+ * w której został zwolniony (CopyReleasedEvent), a oczekujący dostaje wiadomość.
+ * Pozycje w kolejce: HoldQueueIndex (każda zmiana kolejki = HoldQueueChangedEvent).
+ */
+@Service
+public class HoldService {
+
+    private static final DateTimeFormatter PICKUP_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+
+    private final HoldRepository holdRepository;
+    private final HoldQueueIndex holdQueueIndex;
+    private final PublicationRepository publicationRepository;
+    private final UserRepository userRepository;
+    private final ReservationRepository reservationRepository;
+    private final MessageOutbox messageOutbox;
+    private final PublicationAvailabilityRepository publicationAvailabilityRepository;
+    private final OperationService operationService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Clock clock;
+    private final int pickupDays;
+
+    public HoldService(HoldRepository holdRepository,
+                       HoldQueueIndex holdQueueIndex,
+                       PublicationRepository publicationRepository,
+                       UserRepository userRepository,
+                       ReservationRepository reservationRepository,
+                       MessageOutbox messageOutbox,
+                       PublicationAvailabilityRepository publicationAvailabilityRepository,
+                       OperationService operationService,
+                       ApplicationEventPublisher eventPublisher,
+                       Clock clock,
+                       @Value("${app.reservations.pickup-days:3}") int pickupDays) {
+        this.holdRepository = holdRepository;
+        this.holdQueueIndex = holdQueueIndex;
+        this.publicationRepository = publicationRepository;
+        this.userRepository = userRepository;
+        this.reservationRepository = reservationRepository;
+        this.messageOutbox = messageOutbox;
+        this.publicationAvailabilityRepository = publicationAvailabilityRepository;
+        this.operationService = operationService;
+        this.eventPublisher = eventPublisher;
+        this.clock = clock;
+        this.pickupDays = pickupDays;
+    }
+
+    /** Dołącza do kolejki; zwraca pozycję (1 = następny). */
+    @Transactional
+    public long placeHold(Long publicationId, Long userId) {
+        Publication publication = publicationRepository.findById(publicationId)
+                .orElseThrow(() -> new NotFoundException("Nie znaleziono publikacji."));
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new NotFoundException("Nie znaleziono użytkownika."));
+
+        // pod blokadą zwolnień: zwolnienie egzemplarza w trakcie nie zostawi nas w kolejce obok wolnego egzemplarza
+        // (albo widzimy je już zatwierdzone, albo jego przekazanie z kolejki widzi nasz wpis)
+        publicationAvailabilityRepository.lockCopyReleases(publicationId);
+        if (Boolean.TRUE.equals(publicationAvailabilityRepository.hasAvailableCopy(publicationId))) {
+            throw new ReservationBlockedException("Jest wolny egzemplarz — zarezerwuj go bezpośrednio.");
+        }
+        if (holdRepository.existsByPublicationIdAndUserIdAndStatus(publicationId, userId, HoldStatus.WAITING)) {
+            throw new ReservationBlockedException("Już czekasz w kolejce po tę publikację.");
+        }
+
+        Hold hold = new Hold();
+        hold.setPublication(publication);
+        hold.setUser(user);
+        hold.setCreatedAt(OffsetDateTime.now(clock));
+        Hold saved = holdRepository.save(hold);
+        eventPublisher.publishEvent(new HoldQueueChangedEvent(saved.getId()));
+
+        operationService.logAction(user, user, "HOLD_PLACED", null);
+        return holdQueueIndex.position(publicationId, saved.getId());
+    }
+
+    @Transactional
+    public void cancelHold(Long publicationId, Long userId) {
+        Hold hold = holdRepository.findByPublicationIdAndUserIdAndStatus(publicationId, userId, HoldStatus.WAITING)
+                .orElseThrow(() -> new NotFoundException("Nie czekasz w kolejce po tę publikację."));
+
+        hold.setStatus(HoldStatus.CANCELLED);
+        hold.setCancelledAt(OffsetDateTime.now(clock));
+        holdRepository.save(hold);
+        eventPublisher.publishEvent(new HoldQueueChangedEvent(hold.getId()));
+        operationService.logAction(hold.getUser(), hold.getUser(), "HOLD_CANCELLED", null);
+    }
+
+    /** Pozycja użytkownika w kolejce (1 = następny) albo pusto, gdy nie czeka. */
+    @Transactional(readOnly = true)
+    public Optional<Long> position(Long publicationId, Long userId) {
+        return holdRepository.findByPublicationIdAndUserIdAndStatus(publicationId, userId, HoldStatus.WAITING)
+                .map(h -> holdQueueIndex.position(publicationId, h.getId()));
+    }
+
+    @Transactional(readOnly = true)
+    public List<HoldVm> myWaitingHolds(Long userId) {
+        // pozycja liczona z id holdu, więc jest dla każdego oczekującego - bez wartości domyślnej
+        return holdRepository.findByUserIdAndStatusOrderByCreatedAtAsc(userId, HoldStatus.WAITING).stream()
+                .map(h -> new HoldVm(
+                        h.getId(),
+                        h.getPublication().getId(),
+                        h.getPublication().getTitle(),
+                        holdQueueIndex.position(h.getPublication().getId(), h.getId()),
+                        h.getCreatedAt()))
+                .toList();
+    }
+
+    // Synchronicznie, w transakcji zwalniającej egzemplarz: albo rezerwacja dla oczekującego
+    // powstaje razem ze zwolnieniem, albo egzemplarz po commicie jest po prostu wolny.
+    @EventListener
+    @Transactional
+    public void onCopyReleased(CopyReleasedEvent event) {
+        Optional<HandOffRow> handOff = holdRepository.handOff(event.copyId(), pickupDays);
+        if (handOff.isEmpty()) return;
+        eventPublisher.publishEvent(new HoldQueueChangedEvent(handOff.get().getHoldId()));
+
+        Reservation reservation = reservationRepository.findById(handOff.get().getReservationId())
+                .orElseThrow(() -> new IllegalStateException("Brak rezerwacji utworzonej z kolejki."));
+        User user = reservation.getUser();
+        Copy copy = reservation.getCopy();
+
+        messageOutbox.enqueue(user, MessageType.HOLD_READY, Map.of(
+                MessageRenderer.TITLE, copy.getPublication().getTitle(),
+                MessageRenderer.INVENTORY_CODE, copy.getInventoryCode(),
+                MessageRenderer.PICKUP_UNTIL,
+                reservation.getPickupUntil().atZoneSameInstant(clock.getZone()).format(PICKUP_FORMAT)));
+
+        operationService.logAction(user, user, "RESERVATION_CREATED_FROM_HOLD", copy);
+        eventPublisher.publishEvent(ReservationCreatedEvent.of(reservation));
+    }
+}
@@ -2,27 +2,43 @@ package com.example.neighborhood_library.service;
 
 import com.example.neighborhood_library.domain.LibraryInfo;
 import com.example.neighborhood_library.repo.LibraryInfoRepository;
+import com.example.neighborhood_library.support.LibraryInfoChangedEvent;
+import com.example.neighborhood_library.support.InvalidationType;
+import com.example.neighborhood_library.support.LocalCacheInvalidator;
+import com.example.neighborhood_library.web.viewmodel.LibraryInfoVm;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
 
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Informacje o bibliotece (nagłówek każdej strony) z pamięci: niezmienny snapshot, podmieniany atomowo.
+ * Lokalna zmiana podmienia go po commicie; pozostałe węzły dostają LIBRARY_INFO z triggera przez
+ * CacheInvalidationBus i wczytują wiersz ponownie. Kolumna version (nadawana przez trigger, więc niezależna
+ * od zegarów węzłów) rozstrzyga wyścigi: starsza wersja nigdy nie zastępuje nowszej (równoległy odczyt i zmiana).
+ */
 @Service
-public class LibraryInfoService {
+public class LibraryInfoService implements LocalCacheInvalidator {
+
+    private static final LibraryInfoVm PLACEHOLDER = new LibraryInfoVm("Brak danych", "Brak danych", "Brak danych", 0);
 
     private final LibraryInfoRepository repository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final AtomicReference<LibraryInfoVm> snapshot = new AtomicReference<>();
 
-    public LibraryInfoService(LibraryInfoRepository repository) {
+    public LibraryInfoService(LibraryInfoRepository repository, ApplicationEventPublisher eventPublisher) {
         this.repository = repository;
+        this.eventPublisher = eventPublisher;
     }
 
-    public LibraryInfo getInfo() {
-        // Pobieramy ID 1, a jeśli nie ma (pusta baza), zwracamy domyślny placeholder
-        return repository.findById(1L).orElseGet(() -> {
-            LibraryInfo info = new LibraryInfo();
-            info.setAddress("Brak danych");
-            info.setOpeningHours("Brak danych");
-            info.setRules("Brak danych");
-            return info;
-        });
+    public LibraryInfoVm getInfo() {
+        LibraryInfoVm current = snapshot.get();
+        return current != null ? current : reload();
     }
 
     @Transactional
@@ -32,6 +48,43 @@ public class LibraryInfoService {
         info.setAddress(address);
         info.setOpeningHours(openingHours);
         info.setRules(rules);
-        repository.save(info);
+        // flush: wersję nadaje trigger przy zapisie, Hibernate odczytuje ją do zwróconej encji
+        LibraryInfo saved = repository.saveAndFlush(info);
+
+        eventPublisher.publishEvent(new LibraryInfoChangedEvent(toVm(saved)));
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onLibraryInfoChanged(LibraryInfoChangedEvent event) {
+        snapshot.accumulateAndGet(event.snapshot(), LibraryInfoService::newer);
+    }
+
+    @Override
+    public Set<InvalidationType> invalidationTypes() {
+        return EnumSet.of(InvalidationType.LIBRARY_INFO);
+    }
+
+    @Override
+    public void invalidate(InvalidationType type, Long id) {
+        // nikt jeszcze nie czytał - wczyta przy pierwszym getInfo()
+        if (snapshot.get() != null) {
+            reload();
+        }
+    }
+
+    private LibraryInfoVm reload() {
+        // Pobieramy ID 1, a jeśli nie ma (pusta baza), zwracamy domyślny placeholder
+        LibraryInfoVm loaded = repository.findById(1L).map(LibraryInfoService::toVm).orElse(PLACEHOLDER);
+        return snapshot.accumulateAndGet(loaded, LibraryInfoService::newer);
+    }
+
+    private static LibraryInfoVm newer(LibraryInfoVm current, LibraryInfoVm candidate) {
+        if (current == null) return candidate;
+        return candidate.version() < current.version() ? current : candidate;
+    }
+
+    private static LibraryInfoVm toVm(LibraryInfo info) {
+        long version = info.getVersion() == null ? 0 : info.getVersion();
+        return new LibraryInfoVm(info.getAddress(), info.getOpeningHours(), info.getRules(), version);
     }
 }
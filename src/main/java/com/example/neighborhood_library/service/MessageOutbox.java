@@ -0,0 +1,43 @@
+package com.example.neighborhood_library.service;
+
+import com.example.neighborhood_library.domain.MessageType;
+import com.example.neighborhood_library.domain.OutboxMessage;
+import com.example.neighborhood_library.domain.User;
+import com.example.neighborhood_library.repo.MessageOutboxRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Clock;
+import java.time.OffsetDateTime;
+import java.util.Map;
+
+/**
+ * Wiadomości dla czytelników z operacji biznesowych: w transakcji operacji zapisujemy tylko krótkie zdarzenie
+ * (typ + parametry), a treść renderuje i wstawia do messages MessageOutboxDispatcher.
+ * Zdarzenie powstaje albo ginie razem z operacją (ta sama transakcja).
+ */
+@Service
+public class MessageOutbox {
+
+    private final MessageOutboxRepository outboxRepository;
+    private final Clock clock;
+
+    public MessageOutbox(MessageOutboxRepository outboxRepository, Clock clock) {
+        this.outboxRepository = outboxRepository;
+        this.clock = clock;
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueue(User user, MessageType type, Map<String, String> payload) {
+        OffsetDateTime now = OffsetDateTime.now(clock);
+
+        OutboxMessage event = new OutboxMessage();
+        event.setUserId(user.getId());
+        event.setType(type);
+        event.setPayload(payload);
+        event.setCreatedAt(now);
+        event.setNextAttemptAt(now);
+        outboxRepository.save(event);
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.neighborhood_library.service;
+
+import com.example.neighborhood_library.domain.OutboxMessage;
+import com.example.neighborhood_library.repo.NewMessage;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Treść wiadomości ze zdarzenia outboxa. Brak wymaganego parametru albo nieobsługiwany typ
+ * = IllegalArgumentException (dyspozytor ponawia, a po wyczerpaniu prób odkłada zdarzenie).
+ */
+@Component
+public class MessageRenderer {
+
+    public static final String TITLE = "title";
+    public static final String INVENTORY_CODE = "inventoryCode";
+    public static final String DUE_DATE = "dueDate";
+    public static final String PICKUP_UNTIL = "pickupUntil";
+
+    public NewMessage render(OutboxMessage event) {
+        Map<String, String> p = event.getPayload();
+        return switch (event.getType()) {
+            case LOAN_CREATED -> message(event, "Wypożyczenie utworzone",
+                    "Wypożyczono: " + require(p, TITLE) + " (egz. " + require(p, INVENTORY_CODE)
+                            + "). Termin zwrotu: " + require(p, DUE_DATE) + ".");
+            case HOLD_READY -> message(event, "Egzemplarz czeka na Ciebie",
+                    "Z kolejki oczekujących zarezerwowaliśmy dla Ciebie: " + require(p, TITLE)
+                            + " (egz. " + require(p, INVENTORY_CODE) + "). Odbiór do: " + require(p, PICKUP_UNTIL) + ".");
+            case ACCOUNT_BANNED -> message(event, "Konto zablokowane",
+                    "Twoje konto zostało zablokowane. Skontaktuj się z biblioteką w celu wyjaśnienia.");
+            case ACCOUNT_UNBANNED -> message(event, "Konto odblokowane",
+                    "Blokada Twojego konta została zdjęta.");
+            // DUE_SOON / OVERDUE powstają hurtem w SQL (LoanNotificationJob)
+            default -> throw new IllegalArgumentException("Nieobsługiwany typ wiadomości: " + event.getType());
+        };
+    }
+
+    private static NewMessage message(OutboxMessage event, String title, String body) {
+        // data zdarzenia, nie wysyłki - kolejność w skrzynce jak kolejność operacji
+        return new NewMessage(event.getUserId(), event.getType(), title, body, event.getCreatedAt());
+    }
+
+    private static String require(Map<String, String> payload, String key) {
+        String value = payload.get(key);
+        if (value == null) {
+            throw new IllegalArgumentException("Brak parametru '" + key + "' w zdarzeniu.");
+        }
+        return value;
+    }
+}
@@ -1,8 +1,12 @@
 package com.example.neighborhood_library.service;
 
+import com.example.neighborhood_library.config.CacheConfig;
 import com.example.neighborhood_library.domain.Message;
 import com.example.neighborhood_library.repo.MessageRepository;
+import com.example.neighborhood_library.support.MessagesChangedEvent;
 import com.example.neighborhood_library.support.NotFoundException;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -14,10 +18,12 @@ import java.util.List;
 public class MessageService {
 
     private final MessageRepository messageRepository;
+    private final ApplicationEventPublisher eventPublisher;
     private final Clock clock;
 
-    public MessageService(MessageRepository messageRepository, Clock clock) {
+    public MessageService(MessageRepository messageRepository, ApplicationEventPublisher eventPublisher, Clock clock) {
         this.messageRepository = messageRepository;
+        this.eventPublisher = eventPublisher;
         this.clock = clock;
     }
 
@@ -26,6 +32,8 @@ public class MessageService {
         return messageRepository.findByUserIdAndHiddenAtIsNullOrderByCreatedAtDesc(userId);
     }
 
+    // Na każdej stronie (GlobalControllerAdvice) - z cache; zmiany czyszczą wpis po commicie (MessagesChangedEvent)
+    @Cacheable(cacheNames = CacheConfig.UNREAD_MESSAGES, key = "#userId")
     @Transactional(readOnly = true)
     public long countUnread(Long userId) {
         return messageRepository.countByUserIdAndReadAtIsNullAndHiddenAtIsNull(userId);
@@ -37,6 +45,7 @@ public class MessageService {
         if (msg.getReadAt() == null) {
             msg.setReadAt(OffsetDateTime.now(clock));
             messageRepository.save(msg);
+            eventPublisher.publishEvent(MessagesChangedEvent.of(userId));
         }
     }
 
@@ -52,6 +61,7 @@ public class MessageService {
 
         msg.setHiddenAt(OffsetDateTime.now(clock));
         messageRepository.save(msg);
+        eventPublisher.publishEvent(MessagesChangedEvent.of(userId));
     }
 
     private Message getMessageOrThrow(Long messageId, Long userId) {
@@ -1,25 +1,86 @@
 package com.example.neighborhood_library.service;
 
 import com.example.neighborhood_library.domain.Copy;
-import com.example.neighborhood_library.domain.OperationHistory;
 import com.example.neighborhood_library.domain.User;
+import com.example.neighborhood_library.repo.NewOperation;
 import com.example.neighborhood_library.repo.OperationHistoryRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Historia operacji: wpisy są zbierane w trakcie transakcji biznesowej i zapisywane jednym wielowierszowym
+ * INSERT-em tuż przed jej commitem (beforeCommit) - w tej samej transakcji, więc zatwierdzona operacja zawsze
+ * ma swój wpis, a wycofana nie ma żadnego. Błąd zapisu historii wycofuje całą transakcję.
+ * Metryki: library.operations_history.staged (wpisy czekające w otwartych transakcjach),
+ * library.operations_history.flush (czas zapisu) i library.operations_history.batch_size.
+ */
 @Service
 public class OperationService {
 
     private final OperationHistoryRepository historyRepository;
+    private final Clock clock;
+    private final AtomicInteger staged = new AtomicInteger();
+    private final Timer flushTimer;
+    private final DistributionSummary batchSize;
 
-    public OperationService(OperationHistoryRepository historyRepository) {
+    public OperationService(OperationHistoryRepository historyRepository, Clock clock, MeterRegistry meterRegistry) {
         this.historyRepository = historyRepository;
+        this.clock = clock;
+        Gauge.builder("library.operations_history.staged", staged, AtomicInteger::get)
+                .description("Wpisy historii czekające na commit transakcji").register(meterRegistry);
+        this.flushTimer = Timer.builder("library.operations_history.flush")
+                .description("Zapis wpisów historii jednej transakcji").register(meterRegistry);
+        this.batchSize = DistributionSummary.builder("library.operations_history.batch_size")
+                .description("Liczba wpisów historii na transakcję").register(meterRegistry);
     }
 
     @Transactional(propagation = Propagation.MANDATORY) // Musi biec w ramach istniejącej transakcji biznesowej
     public void logAction(User actor, User target, String action, Copy copy) {
-        OperationHistory entry = new OperationHistory(actor, target, action, copy);
-        historyRepository.save(entry);
+        NewOperation entry = new NewOperation(actor.getId(), target == null ? null : target.getId(), action,
+                copy == null ? null : copy.getId(), clock.instant());
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            write(List.of(entry));
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        List<NewOperation> pending = (List<NewOperation>) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            List<NewOperation> entries = new ArrayList<>();
+            TransactionSynchronizationManager.bindResource(this, entries);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    write(entries);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(OperationService.this);
+                    staged.addAndGet(-entries.size());
+                }
+            });
+            pending = entries;
+        }
+        pending.add(entry);
+        staged.incrementAndGet();
+    }
+
+    private void write(List<NewOperation> entries) {
+        if (entries.isEmpty()) return;
+        flushTimer.record(() -> historyRepository.insertBatch(entries));
+        batchSize.record(entries.size());
     }
 }
@@ -2,10 +2,21 @@ package com.example.neighborhood_library.service;
 
 import com.example.neighborhood_library.domain.*;
 import com.example.neighborhood_library.repo.CopyRepository;
+import com.example.neighborhood_library.repo.PublicationAvailabilityRepository;
 import com.example.neighborhood_library.repo.ReservationRepository;
+import com.example.neighborhood_library.repo.UserCirculationRepository;
 import com.example.neighborhood_library.repo.UserRepository;
+import com.example.neighborhood_library.support.AccountNotActiveException;
+import com.example.neighborhood_library.support.CirculationLimitExceededException;
+import com.example.neighborhood_library.support.CopyNotAvailableException;
+import com.example.neighborhood_library.support.CopyReleasedEvent;
 import com.example.neighborhood_library.support.NotFoundException;
+import com.example.neighborhood_library.support.PublicationChangedEvent;
 import com.example.neighborhood_library.support.ReservationBlockedException;
+import com.example.neighborhood_library.support.ReservationClosedEvent;
+import com.example.neighborhood_library.support.ReservationCreatedEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.DataAccessException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -13,6 +24,7 @@ import org.springframework.transaction.annotation.Transactional;
 import java.time.Clock;
 import java.time.OffsetDateTime;
 import java.util.List;
+import java.util.Optional;
 
 @Service
 public class ReservationService {
@@ -22,26 +34,45 @@ public class ReservationService {
     private final UserRepository userRepository;
     private final Clock clock;
     private final OperationService operationService;
+    private final PublicationAvailabilityRepository publicationAvailabilityRepository;
+    private final UserCirculationRepository userCirculationRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CopyAllocationMode allocationMode;
 
     // MVP: stałe; jeśli chcesz — przerobimy na properties
     private static final int PICKUP_DAYS = 3;
+    private static final String LIMIT_EXCEEDED_MESSAGE =
+            "Limit przekroczony: osiągnięto maksymalną liczbę aktywnych sztuk (rezerwacje + wypożyczenia).";
 
     public ReservationService(
             ReservationRepository reservationRepository,
             CopyRepository copyRepository,
             UserRepository userRepository,
-            Clock clock, OperationService operationService
+            Clock clock, OperationService operationService,
+            PublicationAvailabilityRepository publicationAvailabilityRepository,
+            UserCirculationRepository userCirculationRepository,
+            ApplicationEventPublisher eventPublisher,
+            @Value("${app.reservations.copy-allocation:SKIP_LOCKED}") CopyAllocationMode allocationMode
     ) {
         this.reservationRepository = reservationRepository;
         this.copyRepository = copyRepository;
         this.userRepository = userRepository;
         this.clock = clock;
         this.operationService = operationService;
+        this.publicationAvailabilityRepository = publicationAvailabilityRepository;
+        this.userCirculationRepository = userCirculationRepository;
+        this.eventPublisher = eventPublisher;
+        this.allocationMode = allocationMode;
     }
 
     @Transactional
     public Reservation reservePublication(Long publicationId, Long userId) {
-        Copy copy = copyRepository.findFirstByPublicationIdAndStatusOrderByIdAsc(publicationId, CopyStatus.AVAILABLE)
+        // tani pre-check: oczywiste przekroczenie limitu odrzucamy bez blokowania egzemplarza i triggera
+        if (Boolean.TRUE.equals(userCirculationRepository.isAtLimit(userId))) {
+            throw new ReservationBlockedException(LIMIT_EXCEEDED_MESSAGE);
+        }
+
+        Copy copy = allocateCopy(publicationId)
                 .orElseThrow(() -> new ReservationBlockedException("Brak dostępnych egzemplarzy do rezerwacji."));
 
         User user = userRepository.findById(userId)
@@ -56,30 +87,35 @@ public class ReservationService {
         r.setPickupUntil(now.plusDays(PICKUP_DAYS));
         r.setStatus(ReservationStatus.ACTIVE);
 
-
-
         try {
             Reservation saved = reservationRepository.save(r);
             operationService.logAction(user, user, "RESERVATION_CREATED", copy);
+            eventPublisher.publishEvent(ReservationCreatedEvent.of(saved));
+            eventPublisher.publishEvent(PublicationChangedEvent.of(copy));
             return saved;
+        } catch (CirculationLimitExceededException ex) {
+            // trigger jest ostatecznym strażnikiem (równoległe rezerwacje tego samego użytkownika)
+            throw new ReservationBlockedException(LIMIT_EXCEEDED_MESSAGE);
+        } catch (AccountNotActiveException ex) {
+            throw new ReservationBlockedException("Twoje konto nie jest aktywne — rezerwacja niedozwolona. " +
+                "Skontaktuj się z biblioteką w celu wyjaśnienia.");
+        } catch (CopyNotAvailableException ex) {
+            throw new ReservationBlockedException("Ten egzemplarz nie jest już dostępny.");
         } catch (DataAccessException ex) {
-            // DB ma triggery i wyjątki (limit 3, status usera, status kopii) — mapujemy na czytelny komunikat
-            String msg = (ex.getMostSpecificCause() != null ? ex.getMostSpecificCause().getMessage() : ex.getMessage());
-            if (msg != null && msg.toLowerCase().contains("limit exceeded")) {
-                throw new ReservationBlockedException("Limit przekroczony: maksymalnie 3 aktywne sztuki " +
-                    "(rezerwacje + wypożyczenia).");
-            }
-            if (msg != null && msg.toLowerCase().contains("not active")) {
-                throw new ReservationBlockedException("Twoje konto nie jest aktywne — rezerwacja niedozwolona. " +
-                    "Skontaktuj się z biblioteką w celu wyjaśnienia.");
-            }
-            if (msg != null && msg.toLowerCase().contains("not available")) {
-                throw new ReservationBlockedException("Ten egzemplarz nie jest już dostępny.");
-            }
             throw new ReservationBlockedException("Nie udało się utworzyć rezerwacji.");
         }
     }
 
+    // SKIP_LOCKED: egzemplarze zablokowane przez trwające rezerwacje są pomijane, więc przy "gorącym" tytule
+    // równoległe żądania dostają różne egzemplarze zamiast kolejki na pierwszym wierszu.
+    // Gdy wszystkie wolne są właśnie blokowane - brak egzemplarza (od razu, bez czekania).
+    private Optional<Copy> allocateCopy(Long publicationId) {
+        if (allocationMode == CopyAllocationMode.BLOCKING) {
+            return copyRepository.findFirstByPublicationIdAndStatusOrderByIdAsc(publicationId, CopyStatus.AVAILABLE);
+        }
+        return copyRepository.lockFirstAvailableCopy(publicationId);
+    }
+
     @Transactional
     public void cancelByUser(Long reservationId, Long userId) {
         Reservation r = reservationRepository.findByIdAndUserId(reservationId, userId)
@@ -93,8 +129,11 @@ public class ReservationService {
         r.setStatus(ReservationStatus.CANCELLED_BY_USER);
         r.setCancelledAt(now);
         User user = r.getUser();
-        reservationRepository.save(r);
+        reservationRepository.saveAndFlush(r); // egzemplarz zwolniony w bazie, zanim przejmie go kolejka
         operationService.logAction(user, user, "RESERVATION_CANCELLED", r.getCopy());
+        eventPublisher.publishEvent(new ReservationClosedEvent(r.getId()));
+        eventPublisher.publishEvent(CopyReleasedEvent.of(r.getCopy()));
+        eventPublisher.publishEvent(PublicationChangedEvent.of(r.getCopy()));
     }
 
     public List<Reservation> myActiveReservations(Long userId) {
@@ -104,6 +143,7 @@ public class ReservationService {
     }
 
     public boolean canReserve(Long publicationId) {
-        return copyRepository.existsByPublicationIdAndStatusAndDeletedAtIsNull(publicationId, CopyStatus.AVAILABLE);
+        // jeden wiersz liczników zamiast szukania egzemplarza w copies
+        return Boolean.TRUE.equals(publicationAvailabilityRepository.hasAvailableCopy(publicationId));
     }
 }
@@ -0,0 +1,35 @@
+package com.example.neighborhood_library.service;
+
+import com.example.neighborhood_library.config.CacheConfig;
+import com.example.neighborhood_library.support.MessagesChangedEvent;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Usuwa z cache liczniki nieprzeczytanych wiadomości po commicie zmiany; kolejne wyświetlenie strony
+ * policzy je od nowa (messages_unread_user_idx). fallbackExecution - zadanie przypomnień publikuje poza transakcją.
+ */
+@Component
+public class UnreadMessagesCacheEvictionListener {
+
+    private final CacheManager cacheManager;
+
+    public UnreadMessagesCacheEvictionListener(CacheManager cacheManager) {
+        this.cacheManager = cacheManager;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onMessagesChanged(MessagesChangedEvent event) {
+        Cache cache = cacheManager.getCache(CacheConfig.UNREAD_MESSAGES);
+        if (cache == null) return;
+
+        if (event.isAllUsers()) {
+            cache.clear();
+        } else {
+            event.userIds().forEach(cache::evict);
+        }
+    }
+}
@@ -1,29 +1,28 @@
 package com.example.neighborhood_library.service;
 
 import com.example.neighborhood_library.domain.*;
-import com.example.neighborhood_library.repo.MessageRepository;
 import com.example.neighborhood_library.repo.UserRepository;
 import com.example.neighborhood_library.support.NotFoundException;
 import com.example.neighborhood_library.web.dto.EditProfileForm;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.Objects;
+import java.util.Map;
 
 @Service
 public class UserAdminService {
 
     private final UserRepository userRepository;
-    private final MessageRepository messageRepository;
+    private final MessageOutbox messageOutbox;
     private final CurrentUserService currentUserService;
     private final OperationService operationService;
 
     public UserAdminService(UserRepository userRepository,
-                            MessageRepository messageRepository,
+                            MessageOutbox messageOutbox,
                             CurrentUserService currentUserService,
                             OperationService operationService) {
         this.userRepository = userRepository;
-        this.messageRepository = messageRepository;
+        this.messageOutbox = messageOutbox;
         this.currentUserService = currentUserService;
         this.operationService = operationService;
     }
@@ -35,7 +34,7 @@ public class UserAdminService {
 
         user.setStatus(UserStatus.ACTIVE);
 
-        User currentUser = currentUserService.requireCurrentUser();
+        User currentUser = currentUserService.currentUserReference();
         // save niekonieczny przy JPA w transakcji, ale może zostać:
         userRepository.save(user);
 
@@ -44,10 +43,8 @@ public class UserAdminService {
 
     @Transactional
     public void banUser(long userId) {
-        User currentUser = currentUserService.requireCurrentUser();
-
         // Blokada "samobójstwa"
-        if (Objects.equals(currentUser.getId(), userId)) {
+        if (currentUserService.requireCurrentUserId() == userId) {
             throw new IllegalArgumentException("Nie możesz zablokować własnego konta.");
         }
 
@@ -64,16 +61,15 @@ public class UserAdminService {
 
 
         // US-016: Zablokowany użytkownik otrzymuje powiadomienie systemowe
-        sendMessage(targetUser, MessageType.ACCOUNT_BANNED, "Konto zablokowane",
-                "Twoje konto zostało zablokowane. Skontaktuj się z biblioteką w celu wyjaśnienia.");
+        messageOutbox.enqueue(targetUser, MessageType.ACCOUNT_BANNED, Map.of());
 
-        operationService.logAction(currentUser, targetUser, "USER_BANNED", null);
+        operationService.logAction(currentUserService.currentUserReference(), targetUser, "USER_BANNED", null);
     }
 
     @Transactional
     public void unbanUser(long userId) {
 
-        User currentUser = currentUserService.requireCurrentUser();
+        User currentUser = currentUserService.currentUserReference();
 
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new NotFoundException("Nie znaleziono użytkownika id=" + userId));
@@ -81,8 +77,7 @@ public class UserAdminService {
         user.setStatus(UserStatus.ACTIVE);
         userRepository.save(user);
 
-        sendMessage(user, MessageType.ACCOUNT_UNBANNED, "Konto odblokowane",
-                "Blokada Twojego konta została zdjęta.");
+        messageOutbox.enqueue(user, MessageType.ACCOUNT_UNBANNED, Map.of());
 
         operationService.logAction(currentUser, user, "USER_BANNED", null);
     }
@@ -100,16 +95,8 @@ public class UserAdminService {
         userRepository.save(user);
 
         // Logujemy operację
-        User admin = currentUserService.requireCurrentUser();
+        User admin = currentUserService.currentUserReference();
         operationService.logAction(admin, user, "USER_PROFILE_UPDATED_BY_ADMIN", null);
     }
 
-    private void sendMessage(User user, MessageType type, String title, String body) {
-        Message msg = new Message();
-        msg.setUser(user);
-        msg.setType(type);
-        msg.setTitle(title);
-        msg.setBody(body);
-        messageRepository.save(msg);
-    }
 }
@@ -0,0 +1,8 @@
+package com.example.neighborhood_library.support;
+
+/** LB001 - konto użytkownika nie jest aktywne. */
+public class AccountNotActiveException extends LibraryRuleViolationException {
+    public AccountNotActiveException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.neighborhood_library.support;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Pełna przebudowa struktury w pamięci zlecana z wątku, który nie może czekać (np. pg-notify-listener).
+ * Jeden wątek w tle; żądania, które przyjdą przed startem przebudowy, zlewają się w jedną,
+ * a żądanie w trakcie biegu daje dokładnie jeden kolejny bieg (zmiany sprzed żądania będą uwzględnione).
+ */
+public final class BackgroundRebuild implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(BackgroundRebuild.class);
+
+    private final String name;
+    private final Runnable task;
+    private final ExecutorService executor;
+    private final AtomicBoolean requested = new AtomicBoolean();
+
+    public BackgroundRebuild(String name, Runnable task) {
+        this.name = name;
+        this.task = task;
+        this.executor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, name);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /** Zleca przebudowę i wraca od razu. */
+    public void request() {
+        if (!requested.compareAndSet(false, true)) return;
+        try {
+            executor.execute(this::runRequested);
+        } catch (RejectedExecutionException e) {
+            // zamykanie aplikacji
+            requested.set(false);
+        }
+    }
+
+    private void runRequested() {
+        requested.set(false);
+        try {
+            task.run();
+        } catch (RuntimeException e) {
+            log.warn("Background rebuild {} failed", name, e);
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
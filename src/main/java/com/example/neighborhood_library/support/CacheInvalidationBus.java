@@ -0,0 +1,164 @@
+package com.example.neighborhood_library.support;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+
+/**
+ * Spójność lokalnych cache'y między węzłami bez dodatkowej infrastruktury: zmiana wysyła NOTIFY na kanał
+ * cache_invalidation (z serwisu przez publish() albo z triggera), a każdy węzeł (PgNotificationListener)
+ * przekazuje je zarejestrowanym LocalCacheInvalidatorom - także węzeł nadawca (podwójne usunięcie jest nieszkodliwe).
+ * <p>
+ * Ładunek: {@code TYP:id:wysłano}, id = {@code *} dla wszystkich, wysłano = mikrosekundy epoki.
+ * NOTIFY w transakcji dochodzi dopiero po commicie; wiele zmian w jednej transakcji = jedno powiadomienie na klucz.
+ * Po zerwaniu połączenia słuchacza wszystkie cache są czyszczone (powiadomienia z przerwy przepadły).
+ * Metryki: library.cache.invalidation.lag (od wysłania do odebrania; zależy od zgodności zegarów węzłów),
+ * library.cache.invalidation.connected.
+ */
+@Component
+public class CacheInvalidationBus implements PgNotificationHandler {
+
+    private static final Logger log = LoggerFactory.getLogger(CacheInvalidationBus.class);
+
+    static final String CHANNEL = "cache_invalidation";
+    private static final String ALL = "*";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectProvider<LocalCacheInvalidator> invalidators;
+    private final Clock clock;
+    private final Timer lag;
+
+    public CacheInvalidationBus(JdbcTemplate jdbcTemplate,
+                                ObjectProvider<LocalCacheInvalidator> invalidators,
+                                ObjectProvider<PgNotificationListener> listener,
+                                Clock clock,
+                                MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.invalidators = invalidators;
+        this.clock = clock;
+        this.lag = Timer.builder("library.cache.invalidation.lag")
+                .description("Od wysłania NOTIFY do unieważnienia lokalnego cache")
+                .register(meterRegistry);
+        Gauge.builder("library.cache.invalidation.connected", listener,
+                        l -> l.getIfAvailable() != null && l.getIfAvailable().isConnected() ? 1 : 0)
+                .description("1 = słuchacz NOTIFY połączony").register(meterRegistry);
+    }
+
+    /** Unieważnia wpis (id) albo cały rodzaj (id == null) na wszystkich węzłach - po commicie bieżącej transakcji. */
+    public void publish(InvalidationType type, Long id) {
+        Key key = new Key(type, id);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            send(List.of(key));
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        Set<Key> pending = (Set<Key>) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            Set<Key> keys = new LinkedHashSet<>();
+            TransactionSynchronizationManager.bindResource(this, keys);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    send(keys);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(CacheInvalidationBus.this);
+                }
+            });
+            pending = keys;
+        }
+        pending.add(key);
+    }
+
+    @EventListener
+    public void onPublicationChanged(PublicationChangedEvent event) {
+        publish(InvalidationType.PUBLICATION, event.publicationId());
+    }
+
+    @EventListener
+    public void onPublicationEntryChanged(PublicationEntryChangedEvent event) {
+        publish(InvalidationType.PUBLICATION_ENTRY, event.publicationId());
+    }
+
+    @EventListener
+    public void onHoldQueueChanged(HoldQueueChangedEvent event) {
+        publish(InvalidationType.HOLD, event.holdId());
+    }
+
+    @EventListener
+    public void onCategoriesChanged(CatalogCategoriesChangedEvent event) {
+        publish(InvalidationType.CATALOG_CATEGORIES, null);
+    }
+
+    @EventListener
+    public void onCategoryRenamed(CategoryRenamedEvent event) {
+        publish(InvalidationType.CATALOG, null);
+    }
+
+    @Override
+    public String channel() {
+        return CHANNEL;
+    }
+
+    @Override
+    public void onNotification(String payload) {
+        String[] parts = payload.split(":");
+        if (parts.length != 3) {
+            log.warn("Malformed cache invalidation: {}", payload);
+            return;
+        }
+        InvalidationType type = InvalidationType.valueOf(parts[0]);
+        Long id = ALL.equals(parts[1]) ? null : Long.valueOf(parts[1]);
+        Instant sentAt = Instant.EPOCH.plus(Long.parseLong(parts[2]), ChronoUnit.MICROS);
+
+        fanOut(type, id);
+        Duration elapsed = Duration.between(sentAt, clock.instant());
+        lag.record(elapsed.isNegative() ? Duration.ZERO : elapsed);
+    }
+
+    @Override
+    public void onReconnect() {
+        for (InvalidationType type : InvalidationType.values()) {
+            fanOut(type, null);
+        }
+    }
+
+    private void fanOut(InvalidationType type, Long id) {
+        invalidators.orderedStream()
+                .filter(invalidator -> invalidator.invalidationTypes().contains(type))
+                .forEach(invalidator -> {
+                    try {
+                        invalidator.invalidate(type, id);
+                    } catch (RuntimeException e) {
+                        log.warn("Cache invalidation {}:{} failed in {}: {}", type, id,
+                                invalidator.getClass().getSimpleName(), e.getMessage());
+                    }
+                });
+    }
+
+    private void send(Collection<Key> keys) {
+        long sentMicros = ChronoUnit.MICROS.between(Instant.EPOCH, clock.instant());
+        for (Key key : keys) {
+            String payload = key.type() + ":" + (key.id() == null ? ALL : key.id()) + ":" + sentMicros;
+            jdbcTemplate.query("select pg_notify(?, ?)", rs -> null, CHANNEL, payload);
+        }
+    }
+
+    private record Key(InvalidationType type, Long id) {}
+}
@@ -0,0 +1,8 @@
+package com.example.neighborhood_library.support;
+
+/**
+ * Zmieniła się lista niepustych kategorii katalogu albo liczba tytułów w kategorii
+ * (pierwszy / ostatni nieusunięty egzemplarz publikacji, zmiana kategorii publikacji).
+ */
+public record CatalogCategoriesChangedEvent() {
+}
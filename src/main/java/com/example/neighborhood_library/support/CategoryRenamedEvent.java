@@ -0,0 +1,8 @@
+package com.example.neighborhood_library.support;
+
+/**
+ * Zmieniła się nazwa kategorii - jest w view-modelach całego katalogu (lista, szczegóły, filtr, fasety).
+ * Publikowane w transakcji biznesowej; cache czyszczone po commicie.
+ */
+public record CategoryRenamedEvent(long categoryId) {
+}
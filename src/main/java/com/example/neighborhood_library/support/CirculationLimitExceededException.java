@@ -0,0 +1,8 @@
+package com.example.neighborhood_library.support;
+
+/** LB002 - przekroczony limit aktywnych sztuk (rezerwacje + wypożyczenia). */
+public class CirculationLimitExceededException extends LibraryRuleViolationException {
+    public CirculationLimitExceededException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
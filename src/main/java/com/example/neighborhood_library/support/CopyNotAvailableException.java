@@ -0,0 +1,8 @@
+package com.example.neighborhood_library.support;
+
+/** LB003 - egzemplarz nie jest dostępny. */
+public class CopyNotAvailableException extends LibraryRuleViolationException {
+    public CopyNotAvailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
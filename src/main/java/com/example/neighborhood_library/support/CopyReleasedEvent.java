@@ -0,0 +1,15 @@
+package com.example.neighborhood_library.support;
+
+import com.example.neighborhood_library.domain.Copy;
+
+/**
+ * Egzemplarz wrócił do puli (zwrot, wygaśnięcie albo anulowanie rezerwacji).
+ * Słuchacz (HoldService) działa synchronicznie, w tej samej transakcji - przed publikacją
+ * zmiana musi być już zapisana w bazie (saveAndFlush), bo status egzemplarza liczą triggery.
+ */
+public record CopyReleasedEvent(long copyId) {
+
+    public static CopyReleasedEvent of(Copy copy) {
+        return new CopyReleasedEvent(copy.getId());
+    }
+}
@@ -0,0 +1,8 @@
+package com.example.neighborhood_library.support;
+
+/**
+ * Hold dołączył do kolejki albo z niej wypadł (anulowanie, przekazanie egzemplarza).
+ * Publikowane w transakcji biznesowej; HoldQueueIndex nanosi zmianę po commicie, inne węzły przez CacheInvalidationBus.
+ */
+public record HoldQueueChangedEvent(long holdId) {
+}
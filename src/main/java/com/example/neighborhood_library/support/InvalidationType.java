@@ -0,0 +1,19 @@
+package com.example.neighborhood_library.support;
+
+/**
+ * Rodzaj danych w lokalnych cache'ach węzła, unieważnianych przez CacheInvalidationBus.
+ */
+public enum InvalidationType {
+    /** View-modele jednej publikacji (id) albo wszystkich. */
+    PUBLICATION,
+    /** Wpis publikacji w podpowiedziach: tytuł, autorzy, widoczność (id) albo wszystkie. */
+    PUBLICATION_ENTRY,
+    /** Wszystkie view-modele katalogu (np. zmiana nazwy kategorii). */
+    CATALOG,
+    /** Lista niepustych kategorii. */
+    CATALOG_CATEGORIES,
+    /** Miejsce w kolejce oczekujących (id holdu) albo wszystkie kolejki. */
+    HOLD,
+    /** Snapshot library_info. */
+    LIBRARY_INFO
+}
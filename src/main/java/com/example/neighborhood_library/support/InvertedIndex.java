@@ -0,0 +1,199 @@
+package com.example.neighborhood_library.support;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Odwrócony indeks w pamięci: znormalizowany token -> posortowana tablica id dokumentów (int[], bez boxingu).
+ * Filtr kategorii i "widoczności" to przecięcie bitmap (BitSet).
+ * Odczyty współbieżne, zapisy pod blokadą - zmiany w katalogu są rzadkie w porównaniu z wyszukiwaniami.
+ */
+public class InvertedIndex {
+
+    private static final int[] EMPTY = new int[0];
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final TreeMap<String, int[]> postings;
+    private final Map<Long, BitSet> categories;
+    private final BitSet visible;
+    // tylko do aktualizacji przyrostowych (które tokeny/kategorię usunąć przy zmianie dokumentu)
+    private final Map<Integer, Document> documents;
+
+    private record Document(String[] tokens, long categoryId) {}
+
+    public InvertedIndex() {
+        this(new TreeMap<>(), new HashMap<>(), new BitSet(), new HashMap<>());
+    }
+
+    private InvertedIndex(TreeMap<String, int[]> postings, Map<Long, BitSet> categories,
+                          BitSet visible, Map<Integer, Document> documents) {
+        this.postings = postings;
+        this.categories = categories;
+        this.visible = visible;
+        this.documents = documents;
+    }
+
+    /**
+     * "Wiedźmin: Ostatnie życzenie" -> [wiedzmin, ostatnie, zyczenie].
+     * Bez rozróżniania wielkości liter i polskich znaków; ten sam podział dla dokumentów i zapytań.
+     */
+    public static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) return List.of();
+
+        String folded = Normalizer.normalize(text.toLowerCase(Locale.ROOT), Normalizer.Form.NFD)
+                .replaceAll("\\p{M}+", "")
+                .replace('ł', 'l');
+
+        return Arrays.stream(folded.split("[^\\p{L}\\p{N}]+"))
+                .filter(t -> !t.isBlank())
+                .toList();
+    }
+
+    /** Dodaje albo zastępuje dokument. */
+    public void put(int docId, long categoryId, Collection<String> tokens, boolean isVisible) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(docId);
+
+            String[] distinct = tokens.stream().distinct().toArray(String[]::new);
+            for (String token : distinct) {
+                postings.merge(token, new int[] {docId}, (old, ignored) -> insertSorted(old, docId));
+            }
+            categories.computeIfAbsent(categoryId, k -> new BitSet()).set(docId);
+            visible.set(docId, isVisible);
+            documents.put(docId, new Document(distinct, categoryId));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(int docId) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(docId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Każdy prefiks musi pasować do jakiegoś tokenu dokumentu (AND między słowami zapytania).
+     * Pusta lista prefiksów = wszystkie widoczne dokumenty (ew. z danej kategorii). Wynik rosnąco po id.
+     */
+    public int[] search(List<String> prefixes, Long categoryId) {
+        lock.readLock().lock();
+        try {
+            BitSet result = (BitSet) visible.clone();
+            if (categoryId != null) {
+                BitSet inCategory = categories.get(categoryId);
+                if (inCategory == null) return EMPTY;
+                result.and(inCategory);
+            }
+
+            for (String prefix : prefixes) {
+                BitSet matches = new BitSet();
+                for (int[] ids : postings.subMap(prefix, prefix + Character.MAX_VALUE).values()) {
+                    for (int id : ids) matches.set(id);
+                }
+                result.and(matches);
+                if (result.isEmpty()) return EMPTY;
+            }
+
+            return result.stream().toArray();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void removeInternal(int docId) {
+        Document old = documents.remove(docId);
+        if (old == null) return;
+
+        for (String token : old.tokens()) {
+            int[] ids = postings.get(token);
+            if (ids == null) continue;
+            int[] left = removeSorted(ids, docId);
+            if (left.length == 0) postings.remove(token);
+            else postings.put(token, left);
+        }
+        BitSet inCategory = categories.get(old.categoryId());
+        if (inCategory != null) inCategory.clear(docId);
+        visible.clear(docId);
+    }
+
+    private static int[] insertSorted(int[] ids, int docId) {
+        int pos = Arrays.binarySearch(ids, docId);
+        if (pos >= 0) return ids;
+        pos = -pos - 1;
+        int[] result = new int[ids.length + 1];
+        System.arraycopy(ids, 0, result, 0, pos);
+        result[pos] = docId;
+        System.arraycopy(ids, pos, result, pos + 1, ids.length - pos);
+        return result;
+    }
+
+    private static int[] removeSorted(int[] ids, int docId) {
+        int pos = Arrays.binarySearch(ids, docId);
+        if (pos < 0) return ids;
+        int[] result = new int[ids.length - 1];
+        System.arraycopy(ids, 0, result, 0, pos);
+        System.arraycopy(ids, pos + 1, result, pos, ids.length - pos - 1);
+        return result;
+    }
+
+    /**
+     * Pełna budowa (start aplikacji): postingi zbierane w rosnących buforach i sortowane raz na końcu,
+     * zamiast kopiowania tablicy przy każdym dokumencie.
+     */
+    public static class Builder {
+
+        private final Map<String, IntBuffer> postings = new HashMap<>();
+        private final Map<Long, BitSet> categories = new HashMap<>();
+        private final BitSet visible = new BitSet();
+        private final Map<Integer, Document> documents = new HashMap<>();
+
+        public Builder add(int docId, long categoryId, Collection<String> tokens, boolean isVisible) {
+            String[] distinct = tokens.stream().distinct().toArray(String[]::new);
+            for (String token : distinct) {
+                postings.computeIfAbsent(token, k -> new IntBuffer()).add(docId);
+            }
+            categories.computeIfAbsent(categoryId, k -> new BitSet()).set(docId);
+            visible.set(docId, isVisible);
+            documents.put(docId, new Document(distinct, categoryId));
+            return this;
+        }
+
+        public InvertedIndex build() {
+            TreeMap<String, int[]> sorted = new TreeMap<>();
+            postings.forEach((token, buffer) -> sorted.put(token, buffer.toSortedArray()));
+            return new InvertedIndex(sorted, categories, visible, documents);
+        }
+    }
+
+    private static final class IntBuffer {
+        private int[] values = new int[4];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) values = Arrays.copyOf(values, size * 2);
+            values[size++] = value;
+        }
+
+        int[] toSortedArray() {
+            int[] result = Arrays.copyOf(values, size);
+            Arrays.sort(result);
+            return result;
+        }
+    }
+}
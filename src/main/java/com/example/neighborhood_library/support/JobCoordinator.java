@@ -0,0 +1,166 @@
+package com.example.neighborhood_library.support;
+
+import com.example.neighborhood_library.domain.JobOutcome;
+import com.example.neighborhood_library.domain.ScheduledJobRun;
+import com.example.neighborhood_library.repo.ScheduledJobRunRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.lang.management.ManagementFactory;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Zadania @Scheduled przy kilku węzłach aplikacji: dane zadanie wykonuje naraz tylko jeden węzeł.
+ * Blokada doradcza Postgresa (pg_try_advisory_lock) na osobnym połączeniu - trzymana przez cały przebieg,
+ * zwalniana na końcu albo automatycznie, gdy węzeł padnie (koniec sesji). Węzeł, który nie dostał blokady,
+ * po prostu pomija ten przebieg. Ostatnie uruchomienie (węzeł, czas, wynik) trafia do scheduled_job_runs.
+ * <p>
+ * Sama blokada chroni tylko przed przebiegami nakładającymi się w czasie: gdy cron drugiego węzła odpali już po
+ * zakończeniu pierwszego (rozjechane zegary, krótkie zadanie), zadanie wykonałoby się ponownie. Zadania dzienne
+ * używają więc runOncePerDay - dzień zakończony sukcesem jest zapisywany (completed_window) i sprawdzany pod blokadą.
+ */
+@Component
+public class JobCoordinator {
+
+    private static final Logger log = LoggerFactory.getLogger(JobCoordinator.class);
+
+    // klucz dwuczęściowy (przestrzeń, zadanie) - osobny od jednoczęściowych blokad per użytkownik w triggerach
+    private static final int LOCK_NAMESPACE = 0x4C42; // "LB"
+    private static final int MAX_ERROR_LENGTH = 2000;
+
+    private final DataSource dataSource;
+    private final ScheduledJobRunRepository jobRunRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Clock clock;
+    private final String node;
+    // klucz blokady -> nazwa zadania; wykrywa przypadkowo powtórzony klucz
+    private final Map<Integer, String> lockKeys = new ConcurrentHashMap<>();
+
+    public JobCoordinator(DataSource dataSource,
+                          ScheduledJobRunRepository jobRunRepository,
+                          PlatformTransactionManager transactionManager,
+                          Clock clock,
+                          @Value("${app.jobs.node-id:}") String nodeId) {
+        this.dataSource = dataSource;
+        this.jobRunRepository = jobRunRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.clock = clock;
+        this.node = nodeId.isBlank() ? ManagementFactory.getRuntimeMXBean().getName() : nodeId;
+    }
+
+    /** Wykonuje zadanie, jeśli żaden inny węzeł go teraz nie wykonuje; false = pominięte. */
+    public boolean runExclusively(ScheduledJob job, Runnable task) {
+        return runLocked(job, null, task);
+    }
+
+    /** Jak runExclusively, ale zadanie w jednej transakcji. */
+    public boolean runExclusivelyInTransaction(ScheduledJob job, Runnable task) {
+        return runExclusively(job, inTransaction(task));
+    }
+
+    /**
+     * Jak runExclusively, ale najwyżej jeden udany przebieg na dzień (strefa zegara aplikacji) na wszystkich
+     * węzłach; false = pominięte (trwa na innym węźle albo dzisiejszy przebieg już zakończony).
+     * Nieudany przebieg nie zamyka dnia - kolejne odpalenie może go powtórzyć.
+     */
+    public boolean runOncePerDay(ScheduledJob job, Runnable task) {
+        return runLocked(job, LocalDate.now(clock), task);
+    }
+
+    /** Jak runOncePerDay, ale zadanie w jednej transakcji. */
+    public boolean runOncePerDayInTransaction(ScheduledJob job, Runnable task) {
+        return runOncePerDay(job, inTransaction(task));
+    }
+
+    private boolean runLocked(ScheduledJob job, LocalDate window, Runnable task) {
+        checkLockKey(job);
+        try (Connection lockConnection = dataSource.getConnection()) {
+            if (!advisoryLock(lockConnection, "select pg_try_advisory_lock(?, ?)", job)) {
+                log.debug("Job {} is running on another node, skipping", job.name());
+                return false;
+            }
+            try {
+                return runAndRecord(job, window, task);
+            } finally {
+                advisoryLock(lockConnection, "select pg_advisory_unlock(?, ?)", job);
+            }
+        } catch (SQLException e) {
+            throw new DataAccessResourceFailureException("Job lock failed: " + job.name(), e);
+        }
+    }
+
+    private Runnable inTransaction(Runnable task) {
+        return () -> transactionTemplate.executeWithoutResult(status -> task.run());
+    }
+
+    private void checkLockKey(ScheduledJob job) {
+        String owner = lockKeys.putIfAbsent(job.lockKey(), job.name());
+        if (owner != null && !owner.equals(job.name())) {
+            throw new IllegalStateException("Lock key " + job.lockKey() + " used by both " + owner
+                    + " and " + job.name());
+        }
+    }
+
+    private boolean runAndRecord(ScheduledJob job, LocalDate window, Runnable task) {
+        ScheduledJobRun run = jobRunRepository.findById(job.name()).orElseGet(() -> new ScheduledJobRun(job.name()));
+        // sprawdzane pod blokadą: węzeł, który zakończył przebieg, zapisał okno przed jej zwolnieniem
+        if (window != null && run.getCompletedWindow() != null && !window.isAfter(run.getCompletedWindow())) {
+            log.debug("Job {} already completed for {}, skipping", job.name(), window);
+            return false;
+        }
+        run.setNode(node);
+        run.setStartedAt(OffsetDateTime.now(clock));
+        run.setFinishedAt(null);
+        run.setDurationMs(null);
+        run.setOutcome(JobOutcome.RUNNING);
+        run.setError(null);
+        run.setRunCount(run.getRunCount() + 1);
+        run = jobRunRepository.save(run);
+
+        long start = System.currentTimeMillis();
+        try {
+            task.run();
+            run.setOutcome(JobOutcome.SUCCEEDED);
+            if (window != null) {
+                run.setCompletedWindow(window);
+            }
+        } catch (RuntimeException e) {
+            run.setOutcome(JobOutcome.FAILED);
+            run.setError(abbreviate(String.valueOf(e)));
+            throw e;
+        } finally {
+            run.setFinishedAt(OffsetDateTime.now(clock));
+            run.setDurationMs(System.currentTimeMillis() - start);
+            jobRunRepository.save(run);
+        }
+        return true;
+    }
+
+    private static boolean advisoryLock(Connection connection, String sql, ScheduledJob job) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            ps.setInt(1, LOCK_NAMESPACE);
+            ps.setInt(2, job.lockKey());
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() && rs.getBoolean(1);
+            }
+        }
+    }
+
+    private static String abbreviate(String text) {
+        return text.length() <= MAX_ERROR_LENGTH ? text : text.substring(0, MAX_ERROR_LENGTH);
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.neighborhood_library.support;
+
+import com.example.neighborhood_library.web.viewmodel.LibraryInfoVm;
+
+/**
+ * Zapisano nowe informacje o bibliotece; snapshot podmieniany po commicie.
+ */
+public record LibraryInfoChangedEvent(LibraryInfoVm snapshot) {
+}
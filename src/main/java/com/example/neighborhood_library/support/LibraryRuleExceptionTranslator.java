@@ -0,0 +1,31 @@
+package com.example.neighborhood_library.support;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.support.SQLExceptionTranslator;
+
+import java.sql.SQLException;
+
+/**
+ * Mapuje własne SQLSTATE triggerów (LB001-LB003) na typowane wyjątki.
+ * Dla pozostałych kodów zwraca null - tłumaczenie przejmuje wtedy standardowo Hibernate/Spring.
+ */
+public class LibraryRuleExceptionTranslator implements SQLExceptionTranslator {
+
+    public static final String ACCOUNT_NOT_ACTIVE = "LB001";
+    public static final String LIMIT_EXCEEDED = "LB002";
+    public static final String COPY_NOT_AVAILABLE = "LB003";
+
+    @Override
+    public DataAccessException translate(String task, String sql, SQLException ex) {
+        String state = ex.getSQLState();
+        if (state == null) return null;
+
+        String message = task + ": " + ex.getMessage();
+        return switch (state) {
+            case ACCOUNT_NOT_ACTIVE -> new AccountNotActiveException(message, ex);
+            case LIMIT_EXCEEDED -> new CirculationLimitExceededException(message, ex);
+            case COPY_NOT_AVAILABLE -> new CopyNotAvailableException(message, ex);
+            default -> null;
+        };
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.neighborhood_library.support;
+
+import org.springframework.dao.NonTransientDataAccessException;
+
+/**
+ * Odmowa zgłoszona przez trigger bazy z własnym SQLSTATE (klasa "LB", patrz DB_FUNCTIONS.SQL).
+ * Tworzona przez LibraryRuleExceptionTranslator - bez parsowania treści komunikatu.
+ */
+public abstract class LibraryRuleViolationException extends NonTransientDataAccessException {
+    protected LibraryRuleViolationException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
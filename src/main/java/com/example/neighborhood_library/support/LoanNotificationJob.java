@@ -1,77 +1,95 @@
 package com.example.neighborhood_library.support;
 
-import com.example.neighborhood_library.domain.Loan;
-import com.example.neighborhood_library.domain.Message;
-import com.example.neighborhood_library.domain.MessageType;
 import com.example.neighborhood_library.repo.LoanRepository;
-import com.example.neighborhood_library.repo.MessageRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.Clock;
 import java.time.LocalDate;
-import java.util.List;
+import java.util.function.IntToLongFunction;
 
+/**
+ * Przypomnienia o terminie zwrotu (DUE_SOON) i przeterminowaniu (OVERDUE).
+ * Wiadomości powstają w bazie porcjami (INSERT ... SELECT, każda porcja w osobnej transakcji), a rejestr
+ * loan_notifications (wypożyczenie, typ, termin) sprawia, że ponowny przebieg albo restart po awarii nie dubluje
+ * wiadomości. Okno catch-up obejmuje też dni, w które zadanie nie ruszyło.
+ */
 @Component
 public class LoanNotificationJob {
 
     private static final Logger log = LoggerFactory.getLogger(LoanNotificationJob.class);
 
+    static final int DUE_SOON_DAYS = 3;
+
     private final LoanRepository loanRepository;
-    private final MessageRepository messageRepository;
+    private final JobCoordinator jobCoordinator;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
     private final Clock clock;
+    private final int chunkSize;
+    private final int catchUpDays;
 
-    public LoanNotificationJob(LoanRepository loanRepository, MessageRepository messageRepository, Clock clock) {
+    public LoanNotificationJob(LoanRepository loanRepository,
+                               JobCoordinator jobCoordinator,
+                               ApplicationEventPublisher eventPublisher,
+                               PlatformTransactionManager transactionManager,
+                               Clock clock,
+                               @Value("${app.notifications.chunk-size:500}") int chunkSize,
+                               @Value("${app.notifications.catch-up-days:7}") int catchUpDays) {
         this.loanRepository = loanRepository;
-        this.messageRepository = messageRepository;
+        this.jobCoordinator = jobCoordinator;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
         this.clock = clock;
+        this.chunkSize = chunkSize;
+        this.catchUpDays = catchUpDays;
     }
 
-    // Uruchamiaj raz dziennie, np. o 8:00 rano.
-    // W środowisku dev można ustawić częściej dla testów, np. co minutę,
-    // ale logika opiera się na konkretnych datach (equals), więc wyśle tylko raz dziennie dla danej daty.
+    // Uruchamiaj raz dziennie, np. o 8:00 rano. Przy kilku węzłach wysyła tylko jeden i tylko raz na dzień,
+    // także gdy crony węzłów odpalą w różnych chwilach; dubli wiadomości pilnuje dodatkowo rejestr.
     @Scheduled(cron = "${app.notifications.cron:0 0 8 * * *}")
-    @Transactional
     public void sendNotifications() {
-        LocalDate today = LocalDate.now(clock);
+        jobCoordinator.runOncePerDay(ScheduledJob.LOAN_NOTIFICATIONS, this::notifyBorrowers);
+    }
 
-        // 1. Przypomnienie 3 dni przed terminem
-        // Szukamy wypożyczeń, które mają due_date = today + 3
-        LocalDate warningDate = today.plusDays(3);
-        List<Loan> dueSoonLoans = loanRepository.findByDueDateAndReturnedAtIsNull(warningDate);
+    void notifyBorrowers() {
+        LocalDate today = LocalDate.now(clock);
 
-        for (Loan loan : dueSoonLoans) {
-            createMessage(loan, MessageType.DUE_SOON,
-                    "Zbliża się termin zwrotu",
-                    "Przypominamy, że za 3 dni (" + loan.getDueDate() + ") mija termin zwrotu pozycji: " +
-                            loan.getCopy().getPublication().getTitle() + ".");
-        }
+        // 1. Przypomnienie 3 dni przed terminem; po przestoju także bliższe terminy (ale nie minione)
+        LocalDate warningDate = today.plusDays(DUE_SOON_DAYS);
+        LocalDate warningFrom = maxDate(today, warningDate.minusDays(catchUpDays));
+        long dueSoon = inChunks(limit -> loanRepository.notifyDueSoon(today, warningFrom, warningDate, limit));
 
-        // 2. Powiadomienie o przeterminowaniu (np. 1 dzień po terminie)
-        // Szukamy wypożyczeń, które miały due_date = yesterday
+        // 2. Powiadomienie o przeterminowaniu (1 dzień po terminie; po przestoju - do catch-up dni wstecz)
         LocalDate overdueDate = today.minusDays(1);
-        List<Loan> overdueLoans = loanRepository.findByDueDateAndReturnedAtIsNull(overdueDate);
+        long overdue = inChunks(limit ->
+                loanRepository.notifyOverdue(overdueDate.minusDays(catchUpDays), overdueDate, limit));
 
-        for (Loan loan : overdueLoans) {
-            createMessage(loan, MessageType.OVERDUE,
-                    "Termin zwrotu minął!",
-                    "Minął termin zwrotu pozycji: " + loan.getCopy().getPublication().getTitle() +
-                            ". Prosimy o niezwłoczny zwrot.");
+        if (dueSoon + overdue > 0) {
+            // adresaci nieznani (INSERT ... SELECT) - liczniki nieprzeczytanych liczone od nowa
+            eventPublisher.publishEvent(MessagesChangedEvent.allUsers());
         }
+        log.info("Notification job finished. DueSoon: {}, Overdue: {}", dueSoon, overdue);
+    }
 
-        log.info("Notification job finished. DueSoon: {}, Overdue: {}", dueSoonLoans.size(), overdueLoans.size());
+    // porcja = osobna transakcja; niepełna porcja = koniec
+    private long inChunks(IntToLongFunction chunk) {
+        long total = 0;
+        long sent;
+        do {
+            sent = transactionTemplate.execute(status -> chunk.applyAsLong(chunkSize));
+            total += sent;
+        } while (sent == chunkSize);
+        return total;
     }
 
-    private void createMessage(Loan loan, MessageType type, String title, String body) {
-        Message msg = new Message();
-        msg.setUser(loan.getUser());
-        msg.setType(type);
-        msg.setTitle(title);
-        msg.setBody(body);
-        // createdAt ustawi się w @PrePersist
-        messageRepository.save(msg);
+    private static LocalDate maxDate(LocalDate a, LocalDate b) {
+        return a.isAfter(b) ? a : b;
     }
 }
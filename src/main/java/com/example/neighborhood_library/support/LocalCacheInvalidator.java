@@ -0,0 +1,14 @@
+package com.example.neighborhood_library.support;
+
+import java.util.Set;
+
+/**
+ * Lokalny cache węzła zapisany do CacheInvalidationBus. Wywoływany w wątku słuchacza NOTIFY - bez długich operacji.
+ */
+public interface LocalCacheInvalidator {
+
+    Set<InvalidationType> invalidationTypes();
+
+    /** id == null: wszystkie wpisy danego rodzaju (także po ponownym połączeniu słuchacza). */
+    void invalidate(InvalidationType type, Long id);
+}
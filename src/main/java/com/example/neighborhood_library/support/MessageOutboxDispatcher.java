@@ -0,0 +1,209 @@
+package com.example.neighborhood_library.support;
+
+import com.example.neighborhood_library.domain.OutboxMessage;
+import com.example.neighborhood_library.repo.MessageOutboxRepository;
+import com.example.neighborhood_library.repo.MessageRepository;
+import com.example.neighborhood_library.repo.NewMessage;
+import com.example.neighborhood_library.repo.OutboxBacklogRow;
+import com.example.neighborhood_library.service.MessageRenderer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+/**
+ * Zamienia zdarzenia z message_outbox na wiadomości: porcja (FOR UPDATE SKIP LOCKED) -> renderowanie ->
+ * jeden batch INSERT do messages -> usunięcie wysłanych, wszystko w jednej transakcji na porcję.
+ * <p>
+ * Przeciwciśnienie: na przebieg najwyżej max-batches porcji po batch-size, więc skok zdarzeń rozkłada się
+ * na kolejne przebiegi zamiast obciążać bazę naraz; zaległość widać w metrykach.
+ * Błędy: ponowienia z rosnącym odstępem (do max-backoff), po max-attempts zdarzenie dostaje failed_at.
+ * Gdy porcja wycofa się w całości (błąd INSERT-u/DELETE), jest powtarzana po jednym zdarzeniu, żeby
+ * wadliwy wiersz dostał własną próbę i odstęp zamiast blokować całą kolejkę.
+ * Przy kilku węzłach dyspozytory biorą rozłączne porcje (SKIP LOCKED) - bez JobCoordinatora.
+ */
+@Component
+public class MessageOutboxDispatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(MessageOutboxDispatcher.class);
+
+    private final MessageOutboxRepository outboxRepository;
+    private final MessageRepository messageRepository;
+    private final MessageRenderer renderer;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final Clock clock;
+    private final int batchSize;
+    private final int maxBatches;
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+
+    private final Counter dispatched;
+    private final Counter retried;
+    private final Counter failed;
+    private volatile long pending;
+    private volatile double lagSeconds;
+
+    public MessageOutboxDispatcher(MessageOutboxRepository outboxRepository,
+                                   MessageRepository messageRepository,
+                                   MessageRenderer renderer,
+                                   ApplicationEventPublisher eventPublisher,
+                                   PlatformTransactionManager transactionManager,
+                                   Clock clock,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${app.outbox.batch-size:200}") int batchSize,
+                                   @Value("${app.outbox.max-batches-per-run:10}") int maxBatches,
+                                   @Value("${app.outbox.max-attempts:8}") int maxAttempts,
+                                   @Value("${app.outbox.initial-backoff:PT5S}") Duration initialBackoff,
+                                   @Value("${app.outbox.max-backoff:PT1H}") Duration maxBackoff) {
+        this.outboxRepository = outboxRepository;
+        this.messageRepository = messageRepository;
+        this.renderer = renderer;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.clock = clock;
+        this.batchSize = batchSize;
+        this.maxBatches = maxBatches;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+
+        this.dispatched = Counter.builder("library.outbox.dispatched")
+                .description("Wiadomości wstawione z outboxa").register(meterRegistry);
+        this.retried = Counter.builder("library.outbox.retried")
+                .description("Nieudane próby odłożone do ponowienia").register(meterRegistry);
+        this.failed = Counter.builder("library.outbox.failed")
+                .description("Zdarzenia porzucone po wyczerpaniu prób").register(meterRegistry);
+        Gauge.builder("library.outbox.pending", this, d -> d.pending)
+                .description("Zdarzenia czekające na wysłanie").register(meterRegistry);
+        Gauge.builder("library.outbox.lag", this, d -> d.lagSeconds)
+                .description("Wiek najstarszego czekającego zdarzenia").baseUnit("seconds").register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${app.outbox.poll-ms:1000}")
+    public void dispatch() {
+        for (int i = 0; i < maxBatches; i++) {
+            if (dispatchBatch() < batchSize) break;
+        }
+        refreshBacklog();
+    }
+
+    /** Jedna porcja w jednej transakcji; zwraca liczbę pobranych zdarzeń (niepełna porcja = kolejka pusta). */
+    int dispatchBatch() {
+        try {
+            return transactionTemplate.execute(status -> process(outboxRepository.claimDue(batchSize)));
+        } catch (RuntimeException ex) {
+            log.warn("Outbox batch failed, retrying events one by one: {}", ex.getMessage());
+            return dispatchOneByOne();
+        }
+    }
+
+    /**
+     * Porcja wycofana - ta sama liczba zdarzeń, każde w osobnej transakcji. Zdarzenie, którego transakcja
+     * padła, dostaje próbę i odstęp w kolejnej transakcji. Gdy nie da się nawet pobrać zdarzenia
+     * (np. baza niedostępna), zdarzenia zostają bez zmian i wrócą w kolejnym przebiegu.
+     */
+    private int dispatchOneByOne() {
+        int claimed = 0;
+        while (claimed < batchSize) {
+            AtomicReference<Long> eventId = new AtomicReference<>();
+            try {
+                int n = transactionTemplate.execute(status -> {
+                    List<OutboxMessage> one = outboxRepository.claimDue(1);
+                    if (one.isEmpty()) return 0;
+                    eventId.set(one.get(0).getId());
+                    return process(one);
+                });
+                if (n == 0) break;
+            } catch (RuntimeException ex) {
+                if (eventId.get() == null || !recordFailure(eventId.get(), ex)) {
+                    log.warn("Outbox dispatch failed, will retry: {}", ex.getMessage());
+                    break;
+                }
+            }
+            claimed++;
+        }
+        return claimed;
+    }
+
+    private int process(List<OutboxMessage> batch) {
+        List<NewMessage> rendered = new ArrayList<>(batch.size());
+        List<Long> done = new ArrayList<>(batch.size());
+        for (OutboxMessage event : batch) {
+            try {
+                rendered.add(renderer.render(event));
+                done.add(event.getId());
+            } catch (RuntimeException ex) {
+                scheduleRetry(event, ex);
+            }
+        }
+        messageRepository.insertBatch(rendered);
+        outboxRepository.deleteAllByIdInBatch(done);
+        if (!rendered.isEmpty()) {
+            Set<Long> recipients = rendered.stream().map(NewMessage::userId).collect(Collectors.toSet());
+            eventPublisher.publishEvent(new MessagesChangedEvent(recipients));
+        }
+        dispatched.increment(done.size());
+        return batch.size();
+    }
+
+    private boolean recordFailure(long eventId, RuntimeException cause) {
+        try {
+            transactionTemplate.executeWithoutResult(status ->
+                    outboxRepository.findById(eventId).ifPresent(event -> scheduleRetry(event, cause)));
+            return true;
+        } catch (RuntimeException ex) {
+            log.warn("Could not record failure of outbox event {}: {}", eventId, ex.getMessage());
+            return false;
+        }
+    }
+
+    private void scheduleRetry(OutboxMessage event, RuntimeException ex) {
+        int attempts = event.getAttempts() + 1;
+        OffsetDateTime now = OffsetDateTime.now(clock);
+        event.setAttempts(attempts);
+        event.setLastError(ex.getMessage());
+        if (attempts >= maxAttempts) {
+            event.setFailedAt(now);
+            failed.increment();
+            log.error("Outbox event {} ({}) dropped after {} attempts: {}",
+                    event.getId(), event.getType(), attempts, ex.getMessage());
+        } else {
+            event.setNextAttemptAt(now.plus(backoff(attempts)));
+            retried.increment();
+        }
+    }
+
+    // 5 s, 10 s, 20 s, ... do maxBackoff
+    Duration backoff(int attempts) {
+        Duration delay = initialBackoff.multipliedBy(1L << Math.min(attempts - 1, 30));
+        return delay.compareTo(maxBackoff) > 0 ? maxBackoff : delay;
+    }
+
+    private void refreshBacklog() {
+        try {
+            OutboxBacklogRow row = outboxRepository.backlog();
+            pending = row.getPending();
+            lagSeconds = row.getLagSeconds();
+        } catch (RuntimeException ex) {
+            log.debug("Outbox backlog query failed: {}", ex.getMessage());
+        }
+    }
+}
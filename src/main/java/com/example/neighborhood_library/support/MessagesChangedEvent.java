@@ -0,0 +1,22 @@
+package com.example.neighborhood_library.support;
+
+import java.util.Set;
+
+/**
+ * Zmieniły się wiadomości (nowe, przeczytane, ukryte) podanych użytkowników; userIds == null = dowolnych
+ * (wstawianie hurtem w SQL). Słuchacze reagują po commicie.
+ */
+public record MessagesChangedEvent(Set<Long> userIds) {
+
+    public static MessagesChangedEvent of(long userId) {
+        return new MessagesChangedEvent(Set.of(userId));
+    }
+
+    public static MessagesChangedEvent allUsers() {
+        return new MessagesChangedEvent(null);
+    }
+
+    public boolean isAllUsers() {
+        return userIds == null;
+    }
+}
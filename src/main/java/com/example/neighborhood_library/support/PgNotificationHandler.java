@@ -0,0 +1,18 @@
+package com.example.neighborhood_library.support;
+
+/**
+ * Odbiorca powiadomień Postgresa (NOTIFY) z PgNotificationListener. Wywoływany w wątku słuchacza - bez długich operacji.
+ */
+public interface PgNotificationHandler {
+
+    /** Nazwa kanału (identyfikator SQL). */
+    String channel();
+
+    void onNotification(String payload);
+
+    /**
+     * Połączenie nasłuchujące zostało (ponownie) zestawione - powiadomienia z przerwy przepadły,
+     * więc stan trzeba odczytać od nowa.
+     */
+    void onReconnect();
+}
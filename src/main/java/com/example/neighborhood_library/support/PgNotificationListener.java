@@ -0,0 +1,165 @@
+package com.example.neighborhood_library.support;
+
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * LISTEN/NOTIFY Postgresa: jedno stałe połączenie na węzeł (wątek pg-notify-listener) nasłuchuje kanałów
+ * zarejestrowanych PgNotificationHandlerów i przekazuje im ładunki. Po zerwaniu połączenia ponawia je
+ * co reconnect-delay i woła onReconnect (powiadomienia z przerwy przepadły).
+ * Samo oczekiwanie na powiadomienia nie wysyła nic do serwera, więc półotwarte połączenie TCP nie zostałoby
+ * zauważone - co health-check-interval połączenie jest sprawdzane (isValid), a niesprawne zamykane i zestawiane od nowa.
+ */
+@Component
+public class PgNotificationListener implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(PgNotificationListener.class);
+    private static final Pattern CHANNEL = Pattern.compile("[a-z_][a-z0-9_]*");
+
+    private final DataSource dataSource;
+    private final Map<String, List<PgNotificationHandler>> handlers = new HashMap<>();
+    private final boolean enabled;
+    private final int pollMs;
+    private final Duration reconnectDelay;
+    private final Duration healthCheckInterval;
+
+    private volatile boolean running;
+    private volatile boolean connected;
+    private Thread thread;
+
+    public PgNotificationListener(DataSource dataSource,
+                                  List<PgNotificationHandler> handlers,
+                                  @Value("${app.pg-listener.enabled:true}") boolean enabled,
+                                  @Value("${app.pg-listener.poll-ms:500}") int pollMs,
+                                  @Value("${app.pg-listener.reconnect-delay:PT5S}") Duration reconnectDelay,
+                                  @Value("${app.pg-listener.health-check-interval:PT10S}") Duration healthCheckInterval) {
+        this.dataSource = dataSource;
+        for (PgNotificationHandler handler : handlers) {
+            if (!CHANNEL.matcher(handler.channel()).matches()) {
+                throw new IllegalArgumentException("Niepoprawna nazwa kanału: " + handler.channel());
+            }
+            this.handlers.computeIfAbsent(handler.channel(), k -> new ArrayList<>()).add(handler);
+        }
+        this.enabled = enabled;
+        this.pollMs = pollMs;
+        this.reconnectDelay = reconnectDelay;
+        this.healthCheckInterval = healthCheckInterval;
+    }
+
+    @Override
+    public void start() {
+        if (!enabled || handlers.isEmpty()) return;
+        running = true;
+        thread = new Thread(this::listenLoop, "pg-notify-listener");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    public boolean isConnected() {
+        return connected;
+    }
+
+    private void listenLoop() {
+        while (running) {
+            try (Connection connection = dataSource.getConnection()) {
+                listen(connection);
+            } catch (SQLException | RuntimeException e) {
+                if (running) {
+                    log.warn("Postgres notification listener disconnected, retrying in {}: {}",
+                            reconnectDelay, e.getMessage());
+                }
+            } finally {
+                connected = false;
+            }
+            sleep(reconnectDelay);
+        }
+    }
+
+    // LISTEN na wszystkich kanałach, potem pętla odbioru do zerwania połączenia albo stop()
+    void listen(Connection connection) throws SQLException {
+        connection.setAutoCommit(true);
+        try (Statement statement = connection.createStatement()) {
+            for (String channel : handlers.keySet()) {
+                statement.execute("LISTEN " + channel);
+            }
+        }
+        PGConnection pg = connection.unwrap(PGConnection.class);
+        connected = true;
+        log.info("Listening for Postgres notifications on {}", handlers.keySet());
+        handlers.values().forEach(list -> list.forEach(this::reconnected));
+
+        long nextCheck = System.nanoTime() + healthCheckInterval.toNanos();
+        while (running) {
+            PGNotification[] notifications = pg.getNotifications(pollMs);
+            if (notifications != null) {
+                for (PGNotification notification : notifications) {
+                    dispatch(notification.getName(), notification.getParameter());
+                }
+            }
+            if (System.nanoTime() - nextCheck >= 0) {
+                checkAlive(connection);
+                nextCheck = System.nanoTime() + healthCheckInterval.toNanos();
+            }
+        }
+    }
+
+    // zapytanie do serwera z limitem czasu - zerwane po cichu połączenie kończy się wyjątkiem i ponownym LISTEN
+    private void checkAlive(Connection connection) throws SQLException {
+        int timeoutSeconds = (int) Math.max(1, healthCheckInterval.toSeconds());
+        if (!connection.isValid(timeoutSeconds)) {
+            throw new SQLException("Listener connection failed health check");
+        }
+    }
+
+    void dispatch(String channel, String payload) {
+        for (PgNotificationHandler handler : handlers.getOrDefault(channel, List.of())) {
+            try {
+                handler.onNotification(payload);
+            } catch (RuntimeException e) {
+                log.warn("Notification handler for {} failed: {}", channel, e.getMessage());
+            }
+        }
+    }
+
+    private void reconnected(PgNotificationHandler handler) {
+        try {
+            handler.onReconnect();
+        } catch (RuntimeException e) {
+            log.warn("Resync of {} after reconnect failed: {}", handler.channel(), e.getMessage());
+        }
+    }
+
+    private static void sleep(Duration delay) {
+        try {
+            Thread.sleep(delay.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.neighborhood_library.support;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Indeks prefiksów do podpowiedzi: posortowana tablica kluczy + wyszukiwanie binarne dolnej granicy.
+ * Każda wartość ma "właściciela" (np. publikację), po którym jest zastępowana albo usuwana w całości.
+ * Klucze to znormalizowany tekst od każdego słowa ("ostatnie zyczenie" trafia też na "zyc").
+ * Każda zmiana kopiuje całą tablicę (O(n)) pod blokadą zapisu - wołający nie powinien jej robić,
+ * gdy tekst właściciela się nie zmienił (CatalogSuggestIndex reaguje tylko na zmiany wpisu publikacji).
+ */
+public class PrefixIndex<T> {
+
+    private record Entry<T>(String key, String owner, T value) {}
+
+    private static final Comparator<Entry<?>> ORDER =
+            Comparator.<Entry<?>, String>comparing(Entry::key).thenComparing(Entry::owner);
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Entry<T>[] entries;
+    private final Map<String, String[]> ownerKeys;
+
+    public PrefixIndex() {
+        this(newArray(0), new HashMap<>());
+    }
+
+    private PrefixIndex(Entry<T>[] entries, Map<String, String[]> ownerKeys) {
+        this.entries = entries;
+        this.ownerKeys = ownerKeys;
+    }
+
+    /** "Wiedźmin: Ostatnie życzenie" -> [wiedzmin ostatnie zyczenie, ostatnie zyczenie, zyczenie]. */
+    public static List<String> keysFor(String text) {
+        List<String> tokens = InvertedIndex.tokenize(text);
+        List<String> keys = new ArrayList<>(tokens.size());
+        for (int i = 0; i < tokens.size(); i++) {
+            keys.add(String.join(" ", tokens.subList(i, tokens.size())));
+        }
+        return keys;
+    }
+
+    /** Zapytanie w tej samej postaci co klucze (bez polskich znaków, słowa rozdzielone spacją). */
+    public static String normalizePrefix(String text) {
+        return String.join(" ", InvertedIndex.tokenize(text));
+    }
+
+    /** Dodaje albo zastępuje wartość właściciela; klucze powstają z text. */
+    public void put(String owner, String text, T value) {
+        String[] keys = keysFor(text).stream().distinct().toArray(String[]::new);
+        lock.writeLock().lock();
+        try {
+            List<Entry<T>> next = new ArrayList<>(Arrays.asList(entries));
+            removeInternal(next, owner);
+            for (String key : keys) {
+                Entry<T> entry = new Entry<>(key, owner, value);
+                int pos = Collections.binarySearch(next, entry, ORDER);
+                next.add(pos >= 0 ? pos : -pos - 1, entry);
+            }
+            ownerKeys.put(owner, keys);
+            entries = next.toArray(newArray(0));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(String owner) {
+        lock.writeLock().lock();
+        try {
+            List<Entry<T>> next = new ArrayList<>(Arrays.asList(entries));
+            if (removeInternal(next, owner)) {
+                entries = next.toArray(newArray(0));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Do limit różnych wartości, których klucz zaczyna się od prefiksu (kolejność alfabetyczna kluczy). */
+    public List<T> search(String prefix, int limit) {
+        String p = normalizePrefix(prefix);
+        if (p.isEmpty() || limit <= 0) return List.of();
+
+        lock.readLock().lock();
+        try {
+            Set<T> result = new LinkedHashSet<>();
+            for (int i = lowerBound(p); i < entries.length && result.size() < limit; i++) {
+                if (!entries[i].key().startsWith(p)) break;
+                result.add(entries[i].value());
+            }
+            return List.copyOf(result);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return ownerKeys.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private boolean removeInternal(List<Entry<T>> list, String owner) {
+        String[] keys = ownerKeys.remove(owner);
+        if (keys == null) return false;
+        for (String key : keys) {
+            int pos = Collections.binarySearch(list, new Entry<T>(key, owner, null), ORDER);
+            if (pos >= 0) list.remove(pos);
+        }
+        return true;
+    }
+
+    private int lowerBound(String prefix) {
+        int lo = 0, hi = entries.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (entries[mid].key().compareTo(prefix) < 0) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Entry<T>[] newArray(int size) {
+        return (Entry<T>[]) new Entry<?>[size];
+    }
+
+    /** Pełna budowa: zbiera wpisy i sortuje raz na końcu (ponowne put tego samego właściciela zastępuje). */
+    public static class Builder<T> {
+
+        private record Pending<T>(String text, T value) {}
+
+        private final Map<String, Pending<T>> values = new LinkedHashMap<>();
+
+        public Builder<T> put(String owner, String text, T value) {
+            values.put(owner, new Pending<>(text, value));
+            return this;
+        }
+
+        public PrefixIndex<T> build() {
+            List<Entry<T>> all = new ArrayList<>();
+            Map<String, String[]> ownerKeys = new HashMap<>();
+            values.forEach((owner, pending) -> {
+                String[] keys = keysFor(pending.text()).stream().distinct().toArray(String[]::new);
+                for (String key : keys) all.add(new Entry<>(key, owner, pending.value()));
+                ownerKeys.put(owner, keys);
+            });
+            all.sort(ORDER);
+            return new PrefixIndex<>(all.toArray(newArray(0)), ownerKeys);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.neighborhood_library.support;
+
+import com.example.neighborhood_library.repo.PublicationAvailabilityRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Składa delty liczników (publication_availability_delta) do publication_availability, żeby widok
+ * publication_availability_live sumował małe zbiory. Jeden składający naraz pilnuje sama funkcja
+ * (pg_try_advisory_xact_lock), więc na wielu węzłach wystarczy zwykły harmonogram.
+ */
+@Component
+public class PublicationAvailabilityFoldJob {
+
+    private final PublicationAvailabilityRepository publicationAvailabilityRepository;
+    private final int batchSize;
+
+    public PublicationAvailabilityFoldJob(PublicationAvailabilityRepository publicationAvailabilityRepository,
+                                          @Value("${app.catalog.availability-fold-batch:1000}") int batchSize) {
+        this.publicationAvailabilityRepository = publicationAvailabilityRepository;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(fixedDelayString = "${app.catalog.availability-fold-ms:1000}")
+    @Transactional
+    public void fold() {
+        publicationAvailabilityRepository.foldDeltas(batchSize);
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.neighborhood_library.support;
+
+import com.example.neighborhood_library.repo.PublicationAvailabilityRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Okresowo uzgadnia liczniki publication_availability z tabelą copies
+ * (np. po ręcznych poprawkach w bazie z wyłączonymi triggerami).
+ */
+@Component
+public class PublicationAvailabilityReconciliationJob {
+
+    private static final Logger log = LoggerFactory.getLogger(PublicationAvailabilityReconciliationJob.class);
+
+    private final PublicationAvailabilityRepository publicationAvailabilityRepository;
+    private final JobCoordinator jobCoordinator;
+
+    public PublicationAvailabilityReconciliationJob(PublicationAvailabilityRepository publicationAvailabilityRepository,
+                                                    JobCoordinator jobCoordinator) {
+        this.publicationAvailabilityRepository = publicationAvailabilityRepository;
+        this.jobCoordinator = jobCoordinator;
+    }
+
+    @Scheduled(cron = "${app.catalog.availability-reconcile-cron:0 30 3 * * *}")
+    public void reconcile() {
+        jobCoordinator.runOncePerDayInTransaction(ScheduledJob.AVAILABILITY_RECONCILE, this::rebuildCounters);
+    }
+
+    private void rebuildCounters() {
+        int fixed = publicationAvailabilityRepository.rebuild();
+        if (fixed > 0) {
+            log.warn("Publication availability counters out of sync, fixed {} rows", fixed);
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.neighborhood_library.support;
+
+import com.example.neighborhood_library.domain.Copy;
+
+/**
+ * Publikacja (dane, autorzy, egzemplarze albo ich statusy po rezerwacji/wypożyczeniu) została zmieniona.
+ * Publikowane w transakcji biznesowej; słuchacze reagują po commicie (@TransactionalEventListener).
+ */
+public record PublicationChangedEvent(long publicationId) {
+
+    public static PublicationChangedEvent of(Copy copy) {
+        return new PublicationChangedEvent(copy.getPublication().getId());
+    }
+}
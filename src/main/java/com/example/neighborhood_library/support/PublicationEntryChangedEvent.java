@@ -0,0 +1,8 @@
+package com.example.neighborhood_library.support;
+
+/**
+ * Zmienił się wpis publikacji w katalogu: tytuł, autorzy albo widoczność (pierwszy / ostatni nieusunięty
+ * egzemplarz). Rezerwacje, wypożyczenia i zwroty go nie wysyłają - dla nich jest tylko PublicationChangedEvent.
+ */
+public record PublicationEntryChangedEvent(long publicationId) {
+}
@@ -0,0 +1,136 @@
+package com.example.neighborhood_library.support;
+
+import java.util.Arrays;
+
+/**
+ * Zbiór id z liczeniem "ile mniejszych" w O(log n): posortowana tablica id + drzewo Fenwicka obecności.
+ * Nowe id są zwykle największe (kolejka FIFO) - dopisanie na koniec to O(log n); usunięcie tylko gasi wpis,
+ * a tablica jest zagęszczana, gdy wygaszonych jest więcej niż obecnych (koszt O(n) rozłożony na usunięcia).
+ * Id spoza kolejności (późniejszy commit mniejszego id) przebudowuje tablicę - O(n), rzadkie.
+ * Bez synchronizacji - wołający pilnuje blokady.
+ */
+public final class RankedIdSet {
+
+    private static final int MIN_CAPACITY = 8;
+
+    private long[] ids = new long[MIN_CAPACITY];
+    private boolean[] present = new boolean[MIN_CAPACITY];
+    private int[] tree = new int[MIN_CAPACITY + 1]; // Fenwick, indeksy od 1
+    private int length;
+    private int size;
+
+    /** false, gdy id już jest w zbiorze. */
+    public boolean add(long id) {
+        int pos = Arrays.binarySearch(ids, 0, length, id);
+        if (pos >= 0) {
+            if (present[pos]) return false;
+            present[pos] = true;
+            update(pos + 1, 1);
+            size++;
+            return true;
+        }
+        if (-pos - 1 == length) {
+            append(id);
+        } else {
+            rebuild(id);
+        }
+        size++;
+        return true;
+    }
+
+    /** false, gdy id nie było w zbiorze. */
+    public boolean remove(long id) {
+        int pos = Arrays.binarySearch(ids, 0, length, id);
+        if (pos < 0 || !present[pos]) return false;
+        present[pos] = false;
+        update(pos + 1, -1);
+        size--;
+        if (length > MIN_CAPACITY && size < length / 2) {
+            rebuild(null);
+        }
+        return true;
+    }
+
+    public boolean contains(long id) {
+        int pos = Arrays.binarySearch(ids, 0, length, id);
+        return pos >= 0 && present[pos];
+    }
+
+    /** Liczba elementów mniejszych od id (id nie musi należeć do zbioru). */
+    public int countLess(long id) {
+        int pos = Arrays.binarySearch(ids, 0, length, id);
+        return prefix(pos >= 0 ? pos : -pos - 1);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    private void append(long id) {
+        if (length == ids.length) {
+            ids = Arrays.copyOf(ids, length * 2);
+            present = Arrays.copyOf(present, length * 2);
+            tree = new int[length * 2 + 1];
+            rebuildTree();
+        }
+        ids[length] = id;
+        present[length] = true;
+        length++;
+        // węzeł i obejmuje (i - lowbit(i), i]: suma poprzedników z tego zakresu + nowy element
+        int i = length;
+        tree[i] = 1 + prefix(i - 1) - prefix(i - Integer.lowestOneBit(i));
+    }
+
+    // zagęszcza tablicę (bez wygaszonych), opcjonalnie wstawiając extra na swoje miejsce
+    private void rebuild(Long extra) {
+        int count = size + (extra == null ? 0 : 1);
+        long[] next = new long[Math.max(MIN_CAPACITY, Integer.highestOneBit(Math.max(count, 1)) * 2)];
+        int n = 0;
+        boolean inserted = extra == null;
+        for (int i = 0; i < length; i++) {
+            if (!present[i]) continue;
+            if (!inserted && extra < ids[i]) {
+                next[n++] = extra;
+                inserted = true;
+            }
+            next[n++] = ids[i];
+        }
+        if (!inserted) next[n++] = extra;
+
+        ids = next;
+        present = new boolean[next.length];
+        Arrays.fill(present, 0, n, true);
+        length = n;
+        tree = new int[next.length + 1];
+        rebuildTree();
+    }
+
+    // O(n): każdy węzeł dodaje się do rodzica
+    private void rebuildTree() {
+        Arrays.fill(tree, 0);
+        for (int i = 1; i <= length; i++) {
+            tree[i] += present[i - 1] ? 1 : 0;
+            int parent = i + Integer.lowestOneBit(i);
+            if (parent <= length) tree[parent] += tree[i];
+        }
+    }
+
+    private void update(int i, int delta) {
+        for (; i <= length; i += Integer.lowestOneBit(i)) {
+            tree[i] += delta;
+        }
+    }
+
+    // liczba obecnych wśród pierwszych n pozycji tablicy
+    private int prefix(int n) {
+        int sum = 0;
+        for (int i = n; i > 0; i -= Integer.lowestOneBit(i)) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+}
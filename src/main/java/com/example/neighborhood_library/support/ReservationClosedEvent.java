@@ -0,0 +1,7 @@
+package com.example.neighborhood_library.support;
+
+/**
+ * Aktywna rezerwacja anulowana - ReservationExpiryTimer nie musi jej już wygaszać (po commicie).
+ */
+public record ReservationClosedEvent(long reservationId) {
+}
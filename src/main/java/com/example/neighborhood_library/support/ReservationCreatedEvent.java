@@ -0,0 +1,15 @@
+package com.example.neighborhood_library.support;
+
+import com.example.neighborhood_library.domain.Reservation;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Powstała aktywna rezerwacja - ReservationExpiryTimer planuje jej wygaśnięcie na pickupUntil (po commicie).
+ */
+public record ReservationCreatedEvent(long reservationId, OffsetDateTime pickupUntil) {
+
+    public static ReservationCreatedEvent of(Reservation reservation) {
+        return new ReservationCreatedEvent(reservation.getId(), reservation.getPickupUntil());
+    }
+}
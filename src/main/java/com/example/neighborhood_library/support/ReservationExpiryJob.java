@@ -1,22 +1,90 @@
 package com.example.neighborhood_library.support;
 
+import com.example.neighborhood_library.repo.ReleasedCopyRow;
 import com.example.neighborhood_library.repo.ReservationRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Wygasza przeterminowane rezerwacje porcjami - każda porcja w osobnej, krótkiej transakcji,
+ * więc po długim weekendzie nie blokujemy naraz tysięcy egzemplarzy (trigger przelicza status każdego).
+ * Na bieżąco wygasza ReservationExpiryTimer; ten przebieg to rzadka siatka bezpieczeństwa.
+ */
 @Component
 public class ReservationExpiryJob {
 
+    private static final Logger log = LoggerFactory.getLogger(ReservationExpiryJob.class);
+
     private final ReservationRepository reservationRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final JobCoordinator jobCoordinator;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
 
-    public ReservationExpiryJob(ReservationRepository reservationRepository) {
+    public ReservationExpiryJob(ReservationRepository reservationRepository,
+                                ApplicationEventPublisher eventPublisher,
+                                JobCoordinator jobCoordinator,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${app.reservations.expire-chunk-size:200}") int chunkSize) {
         this.reservationRepository = reservationRepository;
+        this.eventPublisher = eventPublisher;
+        this.jobCoordinator = jobCoordinator;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+    }
+
+    @Scheduled(fixedDelayString = "${app.reservations.expire-job-ms:900000}")
+    public void scheduledSweep() {
+        // kilka węzłów: przegląd robi jeden naraz (porcje i tak pomijają cudze blokady)
+        jobCoordinator.runExclusively(ScheduledJob.RESERVATION_EXPIRY, this::expireOverdueReservations);
+    }
+
+    /** Zwraca liczbę wygaszonych rezerwacji. */
+    public int expireOverdueReservations() {
+        long start = System.currentTimeMillis();
+        int total = 0;
+        int chunks = 0;
+        int expired;
+        do {
+            expired = transactionTemplate.execute(status ->
+                    publishReleased(reservationRepository.expireOverdueChunk(chunkSize)));
+            total += expired;
+            chunks++;
+            // niepełna porcja = koniec (albo reszta zablokowana przez inne transakcje - następny przebieg)
+        } while (expired == chunkSize);
+
+        if (total > 0) {
+            log.info("Expired {} reservations in {} chunks, {} ms", total, chunks, System.currentTimeMillis() - start);
+        }
+        return total;
+    }
+
+    /** Wygasza podane rezerwacje, o ile nadal są aktywne i po terminie; zwraca liczbę wygaszonych. */
+    public int expire(Collection<Long> reservationIds) {
+        return transactionTemplate.execute(status -> publishReleased(reservationRepository.expireDue(reservationIds)));
     }
 
-    @Scheduled(fixedDelayString = "${app.reservations.expire-job-ms:60000}")
-    @Transactional
-    public void expireOverdueReservations() {
-        reservationRepository.expireOverdue();
+    private int publishReleased(List<ReleasedCopyRow> released) {
+        Set<Long> publicationIds = new HashSet<>();
+        for (ReleasedCopyRow row : released) {
+            // przekazanie z kolejki w tej samej transakcji co wygaszenie
+            eventPublisher.publishEvent(new CopyReleasedEvent(row.getCopyId()));
+            publicationIds.add(row.getPublicationId());
+        }
+        for (Long publicationId : publicationIds) {
+            eventPublisher.publishEvent(new PublicationChangedEvent(publicationId));
+        }
+        return released.size();
     }
 }
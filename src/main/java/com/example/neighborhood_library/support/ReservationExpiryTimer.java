@@ -0,0 +1,167 @@
+package com.example.neighborhood_library.support;
+
+import com.example.neighborhood_library.domain.ReservationStatus;
+import com.example.neighborhood_library.repo.ReservationDeadlineRow;
+import com.example.neighborhood_library.repo.ReservationRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Wygasza rezerwacje dokładnie w chwili pickupUntil zamiast odpytywać tabelę co minutę.
+ * DelayQueue w pamięci: ładowana przy starcie z aktywnych rezerwacji, potem zdarzenia po commicie
+ * (nowa rezerwacja = termin, anulowanie = usunięcie). Wątek śpi do najbliższego terminu, więc
+ * bez rezerwacji do wygaszenia nie ma zapytań do bazy. Co przeoczy (restart, blokada przy ladzie),
+ * wyłapie rzadki ReservationExpiryJob.
+ */
+@Component
+public class ReservationExpiryTimer implements ApplicationRunner, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(ReservationExpiryTimer.class);
+
+    // zegar bazy (now() w zapytaniu) może być minimalnie za aplikacją
+    private static final Duration GRACE = Duration.ofSeconds(1);
+
+    private final ReservationRepository reservationRepository;
+    private final ReservationExpiryJob expiryJob;
+    private final Clock clock;
+    private final boolean enabled;
+    private final int batchSize;
+
+    private final DelayQueue<Deadline> queue = new DelayQueue<>();
+    // aktualny termin rezerwacji; wpis w kolejce bez odpowiednika tutaj = anulowany (usuwanie leniwe, O(1))
+    private final Map<Long, Deadline> deadlines = new ConcurrentHashMap<>();
+    private volatile Thread worker;
+
+    public ReservationExpiryTimer(ReservationRepository reservationRepository,
+                                  ReservationExpiryJob expiryJob,
+                                  Clock clock,
+                                  @Value("${app.reservations.expiry-timer.enabled:true}") boolean enabled,
+                                  @Value("${app.reservations.expire-chunk-size:200}") int batchSize) {
+        this.reservationRepository = reservationRepository;
+        this.expiryJob = expiryJob;
+        this.clock = clock;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void run(ApplicationArguments args) {
+        if (!enabled) return;
+
+        List<ReservationDeadlineRow> active = reservationRepository.findDeadlinesByStatus(ReservationStatus.ACTIVE);
+        active.forEach(row -> schedule(row.getId(), row.getPickupUntil()));
+        log.info("Reservation expiry timer loaded {} active reservations", active.size());
+
+        Thread thread = new Thread(this::loop, "reservation-expiry-timer");
+        thread.setDaemon(true);
+        thread.start();
+        worker = thread;
+    }
+
+    @Override
+    public void destroy() {
+        Thread thread = worker;
+        if (thread != null) thread.interrupt();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onReservationCreated(ReservationCreatedEvent event) {
+        if (enabled) schedule(event.reservationId(), event.pickupUntil());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onReservationClosed(ReservationClosedEvent event) {
+        deadlines.remove(event.reservationId());
+    }
+
+    public void schedule(long reservationId, OffsetDateTime pickupUntil) {
+        Deadline deadline = new Deadline(reservationId, pickupUntil.toInstant().plus(GRACE).toEpochMilli());
+        deadlines.put(reservationId, deadline);
+        queue.put(deadline);
+    }
+
+    public int pending() {
+        return deadlines.size();
+    }
+
+    /** Wygasza wszystko, czego termin już minął (bez czekania); zwraca liczbę wygaszonych. */
+    public int expireDue() {
+        int expired = 0;
+        List<Long> due;
+        while (!(due = drainDue(queue.poll())).isEmpty()) {
+            expired += expiryJob.expire(due);
+        }
+        return expired;
+    }
+
+    private void loop() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                List<Long> due = drainDue(queue.take());
+                if (!due.isEmpty()) {
+                    expiryJob.expire(due);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException e) {
+                // rezerwacje z tej porcji wygasi okresowy ReservationExpiryJob
+                log.warn("Reservation expiry timer failed", e);
+            }
+        }
+    }
+
+    // pierwszy termin + kolejne już wymagalne, do rozmiaru porcji; pomija anulowane/zastąpione wpisy
+    private List<Long> drainDue(Deadline first) {
+        List<Long> ids = new ArrayList<>();
+        for (Deadline d = first; d != null; d = ids.size() < batchSize ? queue.poll() : null) {
+            if (deadlines.remove(d.reservationId(), d)) {
+                ids.add(d.reservationId());
+            }
+        }
+        return ids;
+    }
+
+    private final class Deadline implements Delayed {
+        private final long reservationId;
+        private final long dueAtMillis;
+
+        Deadline(long reservationId, long dueAtMillis) {
+            this.reservationId = reservationId;
+            this.dueAtMillis = dueAtMillis;
+        }
+
+        long reservationId() {
+            return reservationId;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(dueAtMillis - clock.millis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(dueAtMillis, ((Deadline) other).dueAtMillis);
+        }
+    }
+}
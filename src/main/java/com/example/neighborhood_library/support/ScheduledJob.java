@@ -0,0 +1,14 @@
+package com.example.neighborhood_library.support;
+
+/**
+ * Zadanie okresowe koordynowane przez JobCoordinator: nazwa (wiersz w scheduled_job_runs) i stały klucz
+ * blokady doradczej. Klucz nadawany ręcznie, nie z hashCode nazwy - dwa zadania nie mogą się po cichu
+ * zablokować nawzajem (JobCoordinator odrzuca powtórzony klucz).
+ */
+public record ScheduledJob(String name, int lockKey) {
+
+    public static final ScheduledJob LOAN_NOTIFICATIONS = new ScheduledJob("loan-notifications", 1);
+    public static final ScheduledJob RESERVATION_EXPIRY = new ScheduledJob("reservation-expiry", 2);
+    public static final ScheduledJob AVAILABILITY_RECONCILE = new ScheduledJob("availability-reconcile", 3);
+    public static final ScheduledJob USER_CIRCULATION_RECONCILE = new ScheduledJob("user-circulation-reconcile", 4);
+}
@@ -0,0 +1,38 @@
+package com.example.neighborhood_library.support;
+
+import com.example.neighborhood_library.repo.UserCirculationRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Okresowo uzgadnia liczniki user_circulation z tabelami reservations i loans
+ * (np. po ręcznych poprawkach w bazie z wyłączonymi triggerami).
+ */
+@Component
+public class UserCirculationReconciliationJob {
+
+    private static final Logger log = LoggerFactory.getLogger(UserCirculationReconciliationJob.class);
+
+    private final UserCirculationRepository userCirculationRepository;
+    private final JobCoordinator jobCoordinator;
+
+    public UserCirculationReconciliationJob(UserCirculationRepository userCirculationRepository,
+                                            JobCoordinator jobCoordinator) {
+        this.userCirculationRepository = userCirculationRepository;
+        this.jobCoordinator = jobCoordinator;
+    }
+
+    @Scheduled(cron = "${app.circulation.counters-reconcile-cron:0 40 3 * * *}")
+    public void reconcile() {
+        jobCoordinator.runOncePerDayInTransaction(ScheduledJob.USER_CIRCULATION_RECONCILE, this::rebuildCounters);
+    }
+
+    private void rebuildCounters() {
+        int fixed = userCirculationRepository.rebuild();
+        if (fixed > 0) {
+            log.warn("User circulation counters out of sync, fixed {} rows", fixed);
+        }
+    }
+}
@@ -4,6 +4,7 @@ import com.example.neighborhood_library.service.CurrentUserService;
 import com.example.neighborhood_library.service.LibraryInfoService;
 import com.example.neighborhood_library.service.MessageService;
 import com.example.neighborhood_library.support.NotFoundException;
+import com.example.neighborhood_library.web.viewmodel.LibraryInfoVm;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ModelAttribute;
 
@@ -23,9 +24,9 @@ public class GlobalControllerAdvice {
     }
 
     // Dzięki temu obiekt "libraryInfo" będzie dostępny w KAŻDYM widoku Thymeleaf
-    // Pozwala to umieścić modal z informacjami w głównym layout.html
+    // Pozwala to umieścić modal z informacjami w głównym layout.html (snapshot z pamięci, bez zapytania)
     @ModelAttribute("libraryInfo")
-    public com.example.neighborhood_library.domain.LibraryInfo globalLibraryInfo() {
+    public LibraryInfoVm globalLibraryInfo() {
         return libraryInfoService.getInfo();
     }
 
@@ -33,9 +34,8 @@ public class GlobalControllerAdvice {
     @ModelAttribute("unreadMessagesCount")
     public long unreadMessagesCount() {
         try {
-            // Próbujemy pobrać zalogowanego użytkownika
-            var user = currentUserService.requireCurrentUser();
-            return messageService.countUnread(user.getId());
+            // Id z principala (bez zapytania), licznik z cache
+            return messageService.countUnread(currentUserService.requireCurrentUserId());
         } catch (NotFoundException | ClassCastException e) {
             // Jeśli użytkownik niezalogowany (anonymousUser) lub błąd
             return 0;
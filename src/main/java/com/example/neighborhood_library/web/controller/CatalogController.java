@@ -1,51 +1,115 @@
 package com.example.neighborhood_library.web.controller;
 
-import com.example.neighborhood_library.repo.CategoryRepository;
+import com.example.neighborhood_library.service.CatalogCategoryService;
+import com.example.neighborhood_library.service.CatalogPagingMode;
 import com.example.neighborhood_library.service.CatalogService;
+import com.example.neighborhood_library.service.CatalogSuggestIndex;
+import com.example.neighborhood_library.service.CurrentUserService;
+import com.example.neighborhood_library.service.HoldService;
 import com.example.neighborhood_library.service.ReservationService;
+import com.example.neighborhood_library.web.viewmodel.CatalogSlice;
+import com.example.neighborhood_library.web.viewmodel.PublicationListItemVm;
+import com.example.neighborhood_library.web.viewmodel.SuggestionVm;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
+import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
 @Controller
 @RequestMapping("/catalog")
 public class CatalogController {
 
     private final CatalogService catalogService;
     private final ReservationService reservationService;
-    private final CategoryRepository categoryRepository;
+    private final CatalogCategoryService catalogCategoryService;
+    private final CatalogSuggestIndex catalogSuggestIndex;
+    private final HoldService holdService;
+    private final CurrentUserService currentUserService;
+    private final CatalogPagingMode pagingMode;
 
     public CatalogController(CatalogService catalogService,
                              ReservationService reservationService,
-                             CategoryRepository categoryRepository) {
+                             CatalogCategoryService catalogCategoryService,
+                             CatalogSuggestIndex catalogSuggestIndex,
+                             HoldService holdService,
+                             CurrentUserService currentUserService,
+                             @Value("${app.catalog.paging:OFFSET}") CatalogPagingMode pagingMode) {
         this.catalogService = catalogService;
         this.reservationService = reservationService;
-        this.categoryRepository = categoryRepository;
+        this.catalogCategoryService = catalogCategoryService;
+        this.catalogSuggestIndex = catalogSuggestIndex;
+        this.holdService = holdService;
+        this.currentUserService = currentUserService;
+        this.pagingMode = pagingMode;
     }
 
     @GetMapping
     public String index(@RequestParam(value = "q", required = false) String q,
                         @RequestParam(value = "categoryId", required = false) Long categoryId,
                         @RequestParam(value = "page", required = false, defaultValue = "1") int page,
+                        @RequestParam(value = "after", required = false) String after,
                         Model model) {
 
         int pageSize = 10;
 
+        boolean empty;
+        boolean firstPage;
+        if (pagingMode == CatalogPagingMode.KEYSET) {
+            CatalogSlice slice = catalogService.searchAfter(q, categoryId, after, pageSize);
+            model.addAttribute("slice", slice);
+            empty = slice.isEmpty();
+            firstPage = slice.from() == 1;
+        } else {
+            Page<PublicationListItemVm> result = catalogService.search(q, categoryId, page, pageSize);
+            model.addAttribute("page", result);
+            empty = result.isEmpty();
+            firstPage = result.getNumber() == 0;
+        }
+
+        // Fasety tylko na pierwszej stronie (jedna agregacja po całym zbiorze trafień, jak liczba wyników)
+        if (firstPage && !empty) {
+            model.addAttribute("facets", catalogService.facets(q, categoryId));
+        }
+
         model.addAttribute("q", q);
         model.addAttribute("categoryId", categoryId);
-        model.addAttribute("categories", categoryRepository.findNonEmptyForCatalog());
-        model.addAttribute("page", catalogService.search(q, categoryId, page, pageSize));
+        model.addAttribute("categories", catalogCategoryService.nonEmptyCategories());
         model.addAttribute("activeNav", "catalog");
 
+        // Brak wyników: podpowiedź "Czy chodziło Ci o" + podobne pozycje (literówki)
+        if (empty && StringUtils.hasText(q)) {
+            model.addAttribute("suggestion", catalogService.didYouMean(q).orElse(null));
+            model.addAttribute("similar", catalogService.searchSimilar(q, categoryId, pageSize));
+        }
+
 
         return "catalog/index";
     }
 
+    // Podpowiedzi dla pola wyszukiwania (JSON) - z indeksu w pamięci, bez bazy
+    @GetMapping(value = "/suggest", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseBody
+    public List<SuggestionVm> suggest(@RequestParam(value = "q", required = false) String q) {
+        if (q == null || q.isBlank()) return List.of();
+        return catalogSuggestIndex.suggest(q, 8);
+    }
+
     @GetMapping("/{id}")
     public String details(@PathVariable("id") long id, Model model) {
         model.addAttribute("publication", catalogService.getDetails(id));
         model.addAttribute("activeNav", "catalog");
-        model.addAttribute("canReserve", reservationService.canReserve(id));
+        boolean canReserve = reservationService.canReserve(id);
+        model.addAttribute("canReserve", canReserve);
+        if (!canReserve) {
+            // zamiast odświeżania strony: kolejka oczekujących i wiadomość, gdy egzemplarz wróci
+            long userId = currentUserService.requireCurrentUserId();
+            model.addAttribute("holdPosition", holdService.position(id, userId).orElse(null));
+        }
 
         return "catalog/details";
     }
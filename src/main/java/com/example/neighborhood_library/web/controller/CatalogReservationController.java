@@ -1,8 +1,9 @@
 package com.example.neighborhood_library.web.controller;
 
-import com.example.neighborhood_library.domain.User;
 import com.example.neighborhood_library.service.CurrentUserService;
+import com.example.neighborhood_library.service.HoldService;
 import com.example.neighborhood_library.service.ReservationService;
+import com.example.neighborhood_library.support.NotFoundException;
 import com.example.neighborhood_library.support.ReservationBlockedException;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.*;
@@ -14,17 +15,20 @@ public class CatalogReservationController {
 
     private final ReservationService reservationService;
     private final CurrentUserService currentUserService;
+    private final HoldService holdService;
 
-    public CatalogReservationController(ReservationService reservationService, CurrentUserService currentUserService) {
+    public CatalogReservationController(ReservationService reservationService, CurrentUserService currentUserService,
+                                        HoldService holdService) {
         this.reservationService = reservationService;
         this.currentUserService = currentUserService;
+        this.holdService = holdService;
     }
 
     @PostMapping("/{publicationId}/reserve")
     public String reserve(@PathVariable Long publicationId, RedirectAttributes redirectAttributes) {
-        User currentUser = currentUserService.requireCurrentUser();
+        long currentUserId = currentUserService.requireCurrentUserId();
         try {
-            var reservation = reservationService.reservePublication(publicationId, currentUser.getId());
+            var reservation = reservationService.reservePublication(publicationId, currentUserId);
             redirectAttributes.addFlashAttribute("success", "Dokonano rezerwacji publikacji: " +
                 reservation.getCopy().getPublication().getTitle());
         } catch (IllegalStateException | ReservationBlockedException e) {
@@ -32,4 +36,29 @@ public class CatalogReservationController {
         }
         return "redirect:/catalog/" + publicationId;
     }
+
+    @PostMapping("/{publicationId}/hold")
+    public String hold(@PathVariable Long publicationId, RedirectAttributes redirectAttributes) {
+        long currentUserId = currentUserService.requireCurrentUserId();
+        try {
+            long position = holdService.placeHold(publicationId, currentUserId);
+            redirectAttributes.addFlashAttribute("success", "Dołączono do kolejki oczekujących (pozycja: " +
+                position + "). Gdy egzemplarz wróci, zarezerwujemy go dla Ciebie i wyślemy wiadomość.");
+        } catch (ReservationBlockedException | NotFoundException e) {
+            redirectAttributes.addFlashAttribute("error", e.getMessage());
+        }
+        return "redirect:/catalog/" + publicationId;
+    }
+
+    @PostMapping("/{publicationId}/hold/cancel")
+    public String cancelHold(@PathVariable Long publicationId, RedirectAttributes redirectAttributes) {
+        long currentUserId = currentUserService.requireCurrentUserId();
+        try {
+            holdService.cancelHold(publicationId, currentUserId);
+            redirectAttributes.addFlashAttribute("success", "Opuszczono kolejkę oczekujących.");
+        } catch (NotFoundException e) {
+            redirectAttributes.addFlashAttribute("error", e.getMessage());
+        }
+        return "redirect:/catalog/" + publicationId;
+    }
 }
@@ -1,6 +1,5 @@
 package com.example.neighborhood_library.web.controller;
 
-import com.example.neighborhood_library.domain.User;
 import com.example.neighborhood_library.service.CurrentUserService;
 import com.example.neighborhood_library.service.MessageService;
 import org.springframework.stereotype.Controller;
@@ -22,24 +21,24 @@ public class MessagesController {
 
     @GetMapping
     public String index(Model model) {
-        User user = currentUserService.requireCurrentUser();
-        model.addAttribute("messages", messageService.getMyMessages(user.getId()));
+        long userId = currentUserService.requireCurrentUserId();
+        model.addAttribute("messages", messageService.getMyMessages(userId));
         model.addAttribute("activeNav", "messages");
         return "my/messages";
     }
 
     @PostMapping("/{id}/read")
     public String markAsRead(@PathVariable Long id) {
-        User user = currentUserService.requireCurrentUser();
-        messageService.markAsRead(id, user.getId());
+        long userId = currentUserService.requireCurrentUserId();
+        messageService.markAsRead(id, userId);
         return "redirect:/my/messages";
     }
 
     @PostMapping("/{id}/delete")
     public String delete(@PathVariable Long id, RedirectAttributes ra) {
-        User user = currentUserService.requireCurrentUser();
+        long userId = currentUserService.requireCurrentUserId();
         try {
-            messageService.delete(id, user.getId());
+            messageService.delete(id, userId);
             ra.addFlashAttribute("success", "Wiadomość usunięta.");
         } catch (Exception e) {
             ra.addFlashAttribute("error", "Nie udało się usunąć wiadomości.");
@@ -2,6 +2,7 @@ package com.example.neighborhood_library.web.controller;
 
 import com.example.neighborhood_library.repo.LoanRepository;
 import com.example.neighborhood_library.service.CurrentUserService;
+import com.example.neighborhood_library.service.HoldService;
 import com.example.neighborhood_library.service.ReservationService;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
@@ -14,29 +15,33 @@ public class MyBooksController {
     private final CurrentUserService currentUserService;
     private final ReservationService reservationService;
     private final LoanRepository loanRepository;
+    private final HoldService holdService;
 
     public MyBooksController(CurrentUserService currentUserService,
                              ReservationService reservationService,
-                             LoanRepository loanRepository) {
+                             LoanRepository loanRepository,
+                             HoldService holdService) {
         this.currentUserService = currentUserService;
         this.reservationService = reservationService;
         this.loanRepository = loanRepository;
+        this.holdService = holdService;
     }
 
     @GetMapping("/my/books")
     public String myBooks(Model model) {
-        var user = currentUserService.requireCurrentUser();
+        long userId = currentUserService.requireCurrentUserId();
         model.addAttribute("activeNav", "my-books");
-        model.addAttribute("reservations", reservationService.myActiveReservations(user.getId()));
-        model.addAttribute("loans", loanRepository.findByUserIdAndReturnedAtIsNullOrderByLoanedAtDesc(user.getId()));
+        model.addAttribute("reservations", reservationService.myActiveReservations(userId));
+        model.addAttribute("loans", loanRepository.findByUserIdAndReturnedAtIsNullOrderByLoanedAtDesc(userId));
+        model.addAttribute("holds", holdService.myWaitingHolds(userId));
         return "my/books";
     }
 
     @PostMapping("/my/reservations/{reservationId}/cancel")
     public String cancel(@PathVariable Long reservationId, RedirectAttributes ra) {
-        var user = currentUserService.requireCurrentUser();
+        long userId = currentUserService.requireCurrentUserId();
         try {
-            reservationService.cancelByUser(reservationId, user.getId());
+            reservationService.cancelByUser(reservationId, userId);
             ra.addFlashAttribute("success", "Rezerwacja anulowana ✅");
         } catch (Exception ex) {
             ra.addFlashAttribute("error", ex.getMessage());
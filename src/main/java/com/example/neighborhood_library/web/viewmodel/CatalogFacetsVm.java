@@ -0,0 +1,15 @@
+package com.example.neighborhood_library.web.viewmodel;
+
+import java.util.List;
+
+/** Liczniki faset dla bieżącego zapytania (kategorie liczone bez filtra kategorii). */
+public record CatalogFacetsVm(
+        List<FacetValueVm> categories,
+        List<FacetValueVm> kinds,
+        List<FacetValueVm> decades,
+        long availableNow
+) {
+    public static CatalogFacetsVm empty() {
+        return new CatalogFacetsVm(List.of(), List.of(), List.of(), 0);
+    }
+}
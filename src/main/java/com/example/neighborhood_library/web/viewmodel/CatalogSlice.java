@@ -0,0 +1,27 @@
+package com.example.neighborhood_library.web.viewmodel;
+
+import java.util.List;
+
+/**
+ * Strona katalogu przy stronicowaniu kursorem.
+ * nextCursor == null => ostatnia strona; from = numer (od 1) pierwszej pozycji na stronie;
+ * total == null => liczba wyników nie była liczona (app.catalog.keyset-count=false).
+ */
+public record CatalogSlice(
+        List<PublicationListItemVm> items,
+        String nextCursor,
+        long from,
+        Long total
+) {
+    public boolean isEmpty() {
+        return items.isEmpty();
+    }
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+
+    public long to() {
+        return from + items.size() - 1;
+    }
+}
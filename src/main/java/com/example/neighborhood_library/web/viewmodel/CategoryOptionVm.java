@@ -0,0 +1,7 @@
+package com.example.neighborhood_library.web.viewmodel;
+
+public record CategoryOptionVm(
+        long id,
+        String name,
+        long liveTitles
+) {}
@@ -0,0 +1,7 @@
+package com.example.neighborhood_library.web.viewmodel;
+
+public record FacetValueVm(
+        String value,
+        String label,
+        long count
+) {}
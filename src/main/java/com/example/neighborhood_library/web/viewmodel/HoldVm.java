@@ -0,0 +1,11 @@
+package com.example.neighborhood_library.web.viewmodel;
+
+import java.time.OffsetDateTime;
+
+public record HoldVm(
+        long id,
+        long publicationId,
+        String title,
+        long position,
+        OffsetDateTime createdAt
+) {}
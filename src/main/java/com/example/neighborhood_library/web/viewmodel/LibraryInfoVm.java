@@ -0,0 +1,11 @@
+package com.example.neighborhood_library.web.viewmodel;
+
+/**
+ * Niezmienna kopia library_info (nagłówek każdej strony). version nadaje baza (trigger); 0 = placeholder.
+ */
+public record LibraryInfoVm(
+        String address,
+        String openingHours,
+        String rules,
+        long version
+) {}
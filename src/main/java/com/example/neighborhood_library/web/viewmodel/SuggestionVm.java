@@ -0,0 +1,11 @@
+package com.example.neighborhood_library.web.viewmodel;
+
+/** Podpowiedź wyszukiwania: tytuł (z id publikacji) albo autor (publicationId = null). */
+public record SuggestionVm(
+        String text,
+        String type,
+        Long publicationId
+) {
+    public static final String TITLE = "TITLE";
+    public static final String AUTHOR = "AUTHOR";
+}
@@ -0,0 +1,122 @@
+package com.example.neighborhood_library.repo;
+
+import com.example.neighborhood_library.domain.Copy;
+import com.example.neighborhood_library.domain.Publication;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Hibernate;
+import org.hibernate.SessionFactory;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Wymaga bazy z DB_INIT.SQL + DB_FUNCTIONS.SQL (jak NeighborhoodLibraryApplicationTestsIT).
+ * Szczegóły publikacji (3 autorów, 4 egzemplarze): dwa zapytania, bez iloczynu autorzy x egzemplarze,
+ * obie kolekcje zainicjalizowane na tej samej encji (jeden persistence context).
+ */
+@SpringBootTest
+@TestPropertySource(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                + "com.example.neighborhood_library.repo.PublicationRepositoryIT$SqlCapture"
+})
+class PublicationRepositoryIT {
+
+    private static final int AUTHORS = 3;
+    private static final int COPIES = 4;
+
+    @Autowired private PublicationRepository publicationRepository;
+    @Autowired private EntityManagerFactory entityManagerFactory;
+    @Autowired private JdbcTemplate jdbc;
+
+    private final String tag = "it-details-" + System.nanoTime();
+    private long categoryId;
+    private long publicationId;
+
+    @BeforeEach
+    void setUp() {
+        categoryId = jdbc.queryForObject(
+                "insert into categories(name) values (?) returning id", Long.class, tag);
+        publicationId = jdbc.queryForObject(
+                "insert into publications(kind, title, category_id) values ('BOOK', ?, ?) returning id",
+                Long.class, tag, categoryId);
+        for (int i = 0; i < AUTHORS; i++) {
+            Long authorId = jdbc.queryForObject(
+                    "insert into authors(first_name, last_name) values (?, ?) returning id",
+                    Long.class, "Autor" + i, tag);
+            jdbc.update("insert into publications_authors(publication_id, author_id) values (?, ?)",
+                    publicationId, authorId);
+        }
+        for (int i = 0; i < COPIES; i++) {
+            jdbc.update("insert into copies(publication_id, inventory_code) values (?, ?)",
+                    publicationId, tag + "-" + i);
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbc.update("delete from copies where publication_id = ?", publicationId);
+        jdbc.update("delete from publications where id = ?", publicationId);
+        jdbc.update("delete from authors where last_name = ?", tag);
+        jdbc.update("delete from categories where id = ?", categoryId);
+    }
+
+    @Test
+    void findByIdWithDetails_ShouldLoadBothCollections_InTwoQueriesWithoutCartesianProduct() {
+        // given
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        SqlCapture.STATEMENTS.clear();
+
+        // when
+        Publication p = publicationRepository.findByIdWithDetails(publicationId).orElseThrow();
+
+        // then: dwa zapytania i nic doładowywanego później
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals(2, statistics.getQueryExecutionCount());
+
+        // kolekcje zainicjalizowane na zwróconej encji = oba zapytania w tym samym persistence context
+        assertTrue(Hibernate.isInitialized(p.getPublicationAuthors()));
+        assertTrue(Hibernate.isInitialized(p.getCopies()));
+        assertEquals(Set.of("Autor0", "Autor1", "Autor2"), p.getPublicationAuthors().stream()
+                .map(pa -> pa.getAuthor().getFirstName()).collect(Collectors.toSet()));
+        assertEquals(COPIES, p.getCopies().size());
+        assertTrue(p.getCopies().stream().map(Copy::getInventoryCode).allMatch(code -> code.startsWith(tag)));
+
+        // te same zapytania SQL zwracają tyle wierszy, ile elementów kolekcji - nie AUTHORS x COPIES
+        List<String> statements = List.copyOf(SqlCapture.STATEMENTS);
+        assertEquals(2, statements.size());
+        List<Integer> rowCounts = statements.stream()
+                .map(sql -> jdbc.queryForList(sql, publicationId).size())
+                .sorted()
+                .toList();
+        assertEquals(List.of(AUTHORS, COPIES), rowCounts);
+    }
+
+    /** Zapamiętuje SQL zapytań o publikacje wysłany przez Hibernate. */
+    public static class SqlCapture implements StatementInspector {
+
+        static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            if (sql.toLowerCase().contains("from publications")) {
+                STATEMENTS.add(sql);
+            }
+            return sql;
+        }
+    }
+}
@@ -2,6 +2,8 @@ package com.example.neighborhood_library.service;
 
 import com.example.neighborhood_library.domain.Category;
 import com.example.neighborhood_library.repo.CategoryRepository;
+import com.example.neighborhood_library.support.CatalogCategoriesChangedEvent;
+import com.example.neighborhood_library.support.CategoryRenamedEvent;
 import com.example.neighborhood_library.support.NotFoundException;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -9,6 +11,7 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.test.util.ReflectionTestUtils;
 
@@ -24,6 +27,9 @@ class AdminCategoryServiceTest {
     @Mock
     private CategoryRepository categoryRepository;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     @InjectMocks
     private AdminCategoryService adminCategoryService;
 
@@ -41,6 +47,7 @@ class AdminCategoryServiceTest {
 
         Category savedCategory = categoryCaptor.getValue();
         assertEquals("Nowa Kategoria", savedCategory.getName());
+        verify(eventPublisher).publishEvent(new CatalogCategoriesChangedEvent());
     }
 
     @Test
@@ -62,6 +69,7 @@ class AdminCategoryServiceTest {
         // then
         verify(categoryRepository).save(existingCategory);
         assertEquals("Zmieniona Nazwa", existingCategory.getName());
+        verify(eventPublisher).publishEvent(new CategoryRenamedEvent(categoryId));
     }
 
     @Test
@@ -87,6 +95,7 @@ class AdminCategoryServiceTest {
 
         // then
         verify(categoryRepository).deleteById(categoryId);
+        verify(eventPublisher).publishEvent(new CatalogCategoriesChangedEvent());
     }
 
     @Test
@@ -101,5 +110,6 @@ class AdminCategoryServiceTest {
                 adminCategoryService.delete(categoryId)
         );
         assertEquals("Nie można usunąć kategorii, która ma przypisane publikacje.", exception.getMessage());
+        verifyNoInteractions(eventPublisher);
     }
 }
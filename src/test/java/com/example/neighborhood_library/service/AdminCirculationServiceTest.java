@@ -2,8 +2,9 @@ package com.example.neighborhood_library.service;
 
 import com.example.neighborhood_library.domain.*;
 import com.example.neighborhood_library.repo.LoanRepository;
-import com.example.neighborhood_library.repo.MessageRepository;
 import com.example.neighborhood_library.repo.ReservationRepository;
+import com.example.neighborhood_library.support.CopyReleasedEvent;
+import com.example.neighborhood_library.support.PublicationChangedEvent;
 import com.example.neighborhood_library.support.ReservationBlockedException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -11,6 +12,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.test.util.ReflectionTestUtils;
@@ -27,9 +29,10 @@ class AdminCirculationServiceTest {
 
     @Mock private ReservationRepository reservationRepository;
     @Mock private LoanRepository loanRepository;
-    @Mock private MessageRepository messageRepository;
+    @Mock private MessageOutbox messageOutbox;
     @Mock private CurrentUserService currentUserService;
     @Mock private OperationService operationService;
+    @Mock private ApplicationEventPublisher eventPublisher;
 
     private AdminCirculationService service;
     private final Instant fixedInstant = Instant.parse("2024-05-01T12:00:00Z");
@@ -41,10 +44,11 @@ class AdminCirculationServiceTest {
         service = new AdminCirculationService(
                 reservationRepository,
                 loanRepository,
-                messageRepository,
+                messageOutbox,
                 fixedClock,
                 currentUserService,
-                operationService
+                operationService,
+                eventPublisher
         );
     }
 
@@ -74,10 +78,10 @@ class AdminCirculationServiceTest {
         ReflectionTestUtils.setField(r, "id", reservationId);
         r.setStatus(ReservationStatus.ACTIVE);
         r.setUser(new User());
-        r.setCopy(new Copy());
+        r.setCopy(copyOfPublication(7L));
 
         when(reservationRepository.findById(reservationId)).thenReturn(Optional.of(r));
-        when(currentUserService.requireCurrentUser()).thenReturn(new User());
+        when(currentUserService.currentUserReference()).thenReturn(new User());
 
         // when
         service.cancelReservationByAdmin(reservationId);
@@ -85,8 +89,10 @@ class AdminCirculationServiceTest {
         // then
         assertEquals(ReservationStatus.CANCELLED_BY_ADMIN, r.getStatus());
         assertNotNull(r.getCancelledAt());
-        verify(reservationRepository).save(r);
+        verify(reservationRepository).saveAndFlush(r);
         verify(operationService).logAction(any(), any(), eq("RESERVATION_CANCELLED_BY_ADMIN"), any());
+        verify(eventPublisher).publishEvent(new CopyReleasedEvent(70L));
+        verify(eventPublisher).publishEvent(new PublicationChangedEvent(7L));
     }
 
     @Test
@@ -112,10 +118,8 @@ class AdminCirculationServiceTest {
         // given
         Long reservationId = 20L;
         User user = new User();
-        Copy copy = new Copy();
-        Publication pub = new Publication();
-        pub.setTitle("Test Title");
-        copy.setPublication(pub);
+        Copy copy = copyOfPublication(7L);
+        copy.getPublication().setTitle("Test Title");
         copy.setInventoryCode("LIB-001");
 
         Reservation r = new Reservation();
@@ -126,7 +130,7 @@ class AdminCirculationServiceTest {
         r.setPickupUntil(OffsetDateTime.now(fixedClock).plusDays(1));
 
         when(reservationRepository.findById(reservationId)).thenReturn(Optional.of(r));
-        when(currentUserService.requireCurrentUser()).thenReturn(new User());
+        when(currentUserService.currentUserReference()).thenReturn(new User());
 
         Loan mockSavedLoan = new Loan();
         mockSavedLoan.setDueDate(LocalDate.now(fixedClock).plusDays(30));
@@ -146,7 +150,8 @@ class AdminCirculationServiceTest {
         assertNotNull(capturedLoan.getLoanedAt());
 
         // 2. Sprawdzamy wysłanie wiadomości
-        verify(messageRepository).save(any(Message.class));
+        verify(messageOutbox).enqueue(eq(user), eq(MessageType.LOAN_CREATED), argThat(p ->
+                p.get(MessageRenderer.INVENTORY_CODE).equals(copy.getInventoryCode())));
 
         // 3. Sprawdzamy log
         verify(operationService).logAction(any(), eq(user), eq("LOAN_CREATED"), eq(copy));
@@ -187,18 +192,20 @@ class AdminCirculationServiceTest {
         Loan loan = new Loan();
         loan.setReturnedAt(null);
         loan.setUser(new User());
-        loan.setCopy(new Copy());
+        loan.setCopy(copyOfPublication(7L));
 
         when(loanRepository.findById(loanId)).thenReturn(Optional.of(loan));
-        when(currentUserService.requireCurrentUser()).thenReturn(new User());
+        when(currentUserService.currentUserReference()).thenReturn(new User());
 
         // when
         service.acceptReturn(loanId);
 
         // then
         assertNotNull(loan.getReturnedAt());
-        verify(loanRepository).save(loan);
+        verify(loanRepository).saveAndFlush(loan);
         verify(operationService).logAction(any(), any(), eq("LOAN_RETURNED"), any());
+        verify(eventPublisher).publishEvent(new CopyReleasedEvent(70L));
+        verify(eventPublisher).publishEvent(new PublicationChangedEvent(7L));
     }
 
     @Test
@@ -217,4 +224,13 @@ class AdminCirculationServiceTest {
         verify(loanRepository, never()).save(any()); // nie zapisujemy ponownie
         verifyNoInteractions(operationService);
     }
+
+    private static Copy copyOfPublication(long publicationId) {
+        Publication publication = new Publication();
+        ReflectionTestUtils.setField(publication, "id", publicationId);
+        Copy copy = new Copy();
+        ReflectionTestUtils.setField(copy, "id", publicationId * 10);
+        copy.setPublication(publication);
+        return copy;
+    }
 }
@@ -1,15 +1,21 @@
 package com.example.neighborhood_library.service;
 
+import com.example.neighborhood_library.domain.Copy;
 import com.example.neighborhood_library.domain.Loan;
+import com.example.neighborhood_library.domain.Publication;
 import com.example.neighborhood_library.repo.LoanRepository;
 import com.example.neighborhood_library.support.NotFoundException;
+import com.example.neighborhood_library.support.CopyReleasedEvent;
+import com.example.neighborhood_library.support.PublicationChangedEvent;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.time.OffsetDateTime;
 import java.util.Optional;
@@ -23,6 +29,8 @@ class AdminLoanServiceTest {
 
     @Mock
     private LoanRepository loanRepository;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
 
     @InjectMocks
     private AdminLoanService service;
@@ -47,6 +55,7 @@ class AdminLoanServiceTest {
         Long loanId = 1L;
         Loan loan = new Loan();
         loan.setReturnedAt(null);
+        loan.setCopy(copyOfPublication(7L));
 
         when(loanRepository.findById(loanId)).thenReturn(Optional.of(loan));
 
@@ -55,7 +64,9 @@ class AdminLoanServiceTest {
 
         // then
         assertNotNull(loan.getReturnedAt());
-        verify(loanRepository).save(loan);
+        verify(loanRepository).saveAndFlush(loan);
+        verify(eventPublisher).publishEvent(new CopyReleasedEvent(70L));
+        verify(eventPublisher).publishEvent(new PublicationChangedEvent(7L));
     }
 
     @Test
@@ -72,7 +83,7 @@ class AdminLoanServiceTest {
 
         // then
         // returnedAt shouldn't change (strictly speaking, we rely on it being non-null)
-        verify(loanRepository, never()).save(any());
+        verify(loanRepository, never()).saveAndFlush(any());
     }
 
     @Test
@@ -85,4 +96,13 @@ class AdminLoanServiceTest {
         assertThrows(NotFoundException.class, () -> service.acceptReturn(loanId));
         verify(loanRepository, never()).save(any());
     }
+
+    private static Copy copyOfPublication(long publicationId) {
+        Publication publication = new Publication();
+        ReflectionTestUtils.setField(publication, "id", publicationId);
+        Copy copy = new Copy();
+        ReflectionTestUtils.setField(copy, "id", publicationId * 10);
+        copy.setPublication(publication);
+        return copy;
+    }
 }
@@ -5,12 +5,16 @@ import com.example.neighborhood_library.repo.AuthorRepository;
 import com.example.neighborhood_library.repo.CategoryRepository;
 import com.example.neighborhood_library.repo.CopyRepository;
 import com.example.neighborhood_library.repo.PublicationRepository;
+import com.example.neighborhood_library.support.CatalogCategoriesChangedEvent;
+import com.example.neighborhood_library.support.PublicationChangedEvent;
+import com.example.neighborhood_library.support.PublicationEntryChangedEvent;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.test.util.ReflectionTestUtils;
 
 import java.util.Optional;
@@ -28,6 +32,7 @@ class AdminPublicationServiceTest {
     @Mock private CopyRepository copyRepository;
     @Mock private CurrentUserService currentUserService;
     @Mock private OperationService operationService;
+    @Mock private ApplicationEventPublisher eventPublisher;
 
     @InjectMocks
     private AdminPublicationService service;
@@ -68,6 +73,7 @@ class AdminPublicationServiceTest {
 
         // then
         assertEquals(100L, resultId);
+        verify(eventPublisher).publishEvent(new PublicationChangedEvent(100L));
 
         // 1. Verify Publication
         ArgumentCaptor<Publication> pubCaptor = ArgumentCaptor.forClass(Publication.class);
@@ -128,7 +134,7 @@ class AdminPublicationServiceTest {
 
         when(publicationRepository.findByIdWithDetails(pubId)).thenReturn(Optional.of(existingPub));
         when(categoryRepository.findById(categoryId)).thenReturn(Optional.of(newCategory));
-        when(currentUserService.requireCurrentUser()).thenReturn(new User());
+        when(currentUserService.currentUserReference()).thenReturn(new User());
 
         // Mock existing author check
         when(authorRepository.findByFirstNameAndLastName("Uncle", "Bob")).thenReturn(Optional.of(new Author()));
@@ -147,6 +153,7 @@ class AdminPublicationServiceTest {
         assertEquals(1, existingPub.getPublicationAuthors().size());
 
         verify(publicationRepository).save(existingPub);
+        verify(eventPublisher).publishEvent(new PublicationEntryChangedEvent(pubId));
         verify(operationService).logAction(any(), isNull(), eq("PUBLICATION_UPDATED"), isNull());
     }
 
@@ -158,7 +165,7 @@ class AdminPublicationServiceTest {
         Long pubId = 10L;
         Publication p = new Publication();
         when(publicationRepository.findById(pubId)).thenReturn(Optional.of(p));
-        when(currentUserService.requireCurrentUser()).thenReturn(new User());
+        when(currentUserService.currentUserReference()).thenReturn(new User());
 
         when(copyRepository.save(any(Copy.class))).thenAnswer(i -> {
             Copy c = i.getArgument(0);
@@ -187,11 +194,15 @@ class AdminPublicationServiceTest {
     void deleteCopy_ShouldSoftDelete_WhenStatusIsAvailable() {
         // given
         Long copyId = 55L;
+        Publication publication = new Publication();
+        ReflectionTestUtils.setField(publication, "id", 7L);
         Copy copy = new Copy();
         copy.setStatus(CopyStatus.AVAILABLE);
+        copy.setPublication(publication);
 
         when(copyRepository.findById(copyId)).thenReturn(Optional.of(copy));
-        when(currentUserService.requireCurrentUser()).thenReturn(new User());
+        when(copyRepository.countByPublicationIdAndDeletedAtIsNull(7L)).thenReturn(3L);
+        when(currentUserService.currentUserReference()).thenReturn(new User());
 
         // when
         service.deleteCopy(copyId);
@@ -200,9 +211,54 @@ class AdminPublicationServiceTest {
         assertEquals(CopyStatus.UNAVAILABLE, copy.getStatus());
         assertNotNull(copy.getDeletedAt());
         verify(copyRepository).save(copy);
+        verify(eventPublisher).publishEvent(new PublicationChangedEvent(7L));
+        verify(eventPublisher, never()).publishEvent(any(CatalogCategoriesChangedEvent.class));
+        verify(eventPublisher, never()).publishEvent(any(PublicationEntryChangedEvent.class));
         verify(operationService).logAction(any(), isNull(), eq("COPY_DELETED"), eq(copy));
     }
 
+    @Test
+    void deleteCopy_ShouldRefreshCatalogCategories_WhenLastLiveCopyIsDeleted() {
+        // given
+        Publication publication = new Publication();
+        ReflectionTestUtils.setField(publication, "id", 7L);
+        Copy copy = new Copy();
+        copy.setStatus(CopyStatus.AVAILABLE);
+        copy.setPublication(publication);
+
+        when(copyRepository.findById(55L)).thenReturn(Optional.of(copy));
+        when(copyRepository.countByPublicationIdAndDeletedAtIsNull(7L)).thenReturn(1L);
+        when(currentUserService.currentUserReference()).thenReturn(new User());
+
+        // when
+        service.deleteCopy(55L);
+
+        // then: tytuł znika też z podpowiedzi
+        verify(eventPublisher).publishEvent(new CatalogCategoriesChangedEvent());
+        verify(eventPublisher).publishEvent(new PublicationEntryChangedEvent(7L));
+    }
+
+    @Test
+    void addCopy_ShouldRefreshCatalogCategories_OnlyForFirstLiveCopy() {
+        // given
+        Publication p = new Publication();
+        when(publicationRepository.findById(10L)).thenReturn(Optional.of(p));
+        when(copyRepository.countByPublicationIdAndDeletedAtIsNull(10L)).thenReturn(0L, 1L);
+        when(currentUserService.currentUserReference()).thenReturn(new User());
+        when(copyRepository.save(any(Copy.class))).thenAnswer(i -> {
+            Copy c = i.getArgument(0);
+            ReflectionTestUtils.setField(c, "id", 999L);
+            return c;
+        });
+
+        // when
+        service.addCopy(10L);
+        service.addCopy(10L);
+
+        // then
+        verify(eventPublisher, times(1)).publishEvent(new CatalogCategoriesChangedEvent());
+    }
+
     @Test
     void deleteCopy_ShouldThrowException_WhenCopyIsLoaned() {
         // given
@@ -2,16 +2,20 @@ package com.example.neighborhood_library.service;
 
 import com.example.neighborhood_library.domain.*;
 import com.example.neighborhood_library.repo.LoanRepository;
-import com.example.neighborhood_library.repo.MessageRepository;
 import com.example.neighborhood_library.repo.ReservationRepository;
+import com.example.neighborhood_library.support.CopyReleasedEvent;
+import com.example.neighborhood_library.support.ReservationClosedEvent;
+import com.example.neighborhood_library.support.PublicationChangedEvent;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.time.OffsetDateTime;
 import java.util.Optional;
@@ -25,7 +29,8 @@ class AdminReservationServiceTest {
 
     @Mock private ReservationRepository reservationRepository;
     @Mock private LoanRepository loanRepository;
-    @Mock private MessageRepository messageRepository;
+    @Mock private MessageOutbox messageOutbox;
+    @Mock private ApplicationEventPublisher eventPublisher;
 
     @InjectMocks
     private AdminReservationService service;
@@ -51,7 +56,9 @@ class AdminReservationServiceTest {
         // given
         Long resId = 1L;
         Reservation r = new Reservation();
+        ReflectionTestUtils.setField(r, "id", resId);
         r.setStatus(ReservationStatus.ACTIVE);
+        r.setCopy(copyOfPublication(7L));
 
         when(reservationRepository.findById(resId)).thenReturn(Optional.of(r));
 
@@ -61,7 +68,9 @@ class AdminReservationServiceTest {
         // then
         assertEquals(ReservationStatus.CANCELLED_BY_ADMIN, r.getStatus());
         assertNotNull(r.getCancelledAt());
-        verify(reservationRepository).save(r);
+        verify(reservationRepository).saveAndFlush(r);
+        verify(eventPublisher).publishEvent(new CopyReleasedEvent(70L));
+        verify(eventPublisher).publishEvent(new ReservationClosedEvent(resId));
     }
 
     @Test
@@ -88,10 +97,9 @@ class AdminReservationServiceTest {
         // given
         Long resId = 10L;
         User user = new User();
-        Copy copy = new Copy();
-        Publication pub = new Publication();
-        pub.setTitle("Title");
-        copy.setPublication(pub);
+        Copy copy = copyOfPublication(7L);
+        copy.getPublication().setTitle("Title");
+        copy.setInventoryCode("LIB-001");
 
         Reservation r = new Reservation();
         r.setStatus(ReservationStatus.ACTIVE);
@@ -113,7 +121,7 @@ class AdminReservationServiceTest {
         assertEquals(copy, savedLoan.getCopy());
         assertEquals(r, savedLoan.getReservation());
 
-        verify(messageRepository).save(any(Message.class));
+        verify(messageOutbox).enqueue(any(User.class), eq(MessageType.LOAN_CREATED), anyMap());
     }
 
     @Test
@@ -140,4 +148,13 @@ class AdminReservationServiceTest {
         // Ensure no loan created
         verify(loanRepository, never()).saveAndFlush(any());
     }
+
+    private static Copy copyOfPublication(long publicationId) {
+        Publication publication = new Publication();
+        ReflectionTestUtils.setField(publication, "id", publicationId);
+        Copy copy = new Copy();
+        ReflectionTestUtils.setField(copy, "id", publicationId * 10);
+        copy.setPublication(publication);
+        return copy;
+    }
 }
@@ -0,0 +1,71 @@
+package com.example.neighborhood_library.service;
+
+import com.example.neighborhood_library.config.CacheConfig;
+import com.example.neighborhood_library.support.CategoryRenamedEvent;
+import com.example.neighborhood_library.support.InvalidationType;
+import com.example.neighborhood_library.support.PublicationChangedEvent;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CatalogCacheEvictionListenerTest {
+
+    private final CacheManager cacheManager =
+            new ConcurrentMapCacheManager(CacheConfig.PUBLICATION_DETAILS, CacheConfig.PUBLICATION_LIST_ITEMS,
+                    CacheConfig.CATALOG_CATEGORIES, CacheConfig.CATALOG_FACETS);
+    private final CatalogCacheEvictionListener listener = new CatalogCacheEvictionListener(cacheManager);
+
+    @Test
+    void onPublicationChanged_ShouldEvictOnlyThatPublication() {
+        // given
+        cacheManager.getCache(CacheConfig.PUBLICATION_DETAILS).put(1L, "details-1");
+        cacheManager.getCache(CacheConfig.PUBLICATION_DETAILS).put(2L, "details-2");
+        cacheManager.getCache(CacheConfig.PUBLICATION_LIST_ITEMS).put(1L, "item-1");
+        cacheManager.getCache(CacheConfig.CATALOG_FACETS).put("all", "facets");
+
+        // when
+        listener.onPublicationChanged(new PublicationChangedEvent(1L));
+
+        // then
+        assertNull(cacheManager.getCache(CacheConfig.CATALOG_FACETS).get("all"));
+        assertNull(cacheManager.getCache(CacheConfig.PUBLICATION_DETAILS).get(1L));
+        assertNull(cacheManager.getCache(CacheConfig.PUBLICATION_LIST_ITEMS).get(1L));
+        assertNotNull(cacheManager.getCache(CacheConfig.PUBLICATION_DETAILS).get(2L));
+    }
+
+    @Test
+    void invalidate_ShouldClearWholeCatalog_WhenCategoryRenamedOnOtherNode() {
+        // given
+        cacheManager.getCache(CacheConfig.PUBLICATION_DETAILS).put(1L, "details-1");
+        cacheManager.getCache(CacheConfig.PUBLICATION_LIST_ITEMS).put(2L, "item-2");
+        cacheManager.getCache(CacheConfig.CATALOG_CATEGORIES).put("all", "categories");
+
+        // when
+        listener.invalidate(InvalidationType.CATALOG, null);
+
+        // then
+        assertNull(cacheManager.getCache(CacheConfig.PUBLICATION_DETAILS).get(1L));
+        assertNull(cacheManager.getCache(CacheConfig.PUBLICATION_LIST_ITEMS).get(2L));
+        assertNull(cacheManager.getCache(CacheConfig.CATALOG_CATEGORIES).get("all"));
+    }
+
+    @Test
+    void onCategoryRenamed_ShouldClearWholeCatalog_AfterLocalCommit() {
+        // given
+        cacheManager.getCache(CacheConfig.PUBLICATION_DETAILS).put(1L, "details-1");
+        cacheManager.getCache(CacheConfig.PUBLICATION_LIST_ITEMS).put(2L, "item-2");
+        cacheManager.getCache(CacheConfig.CATALOG_CATEGORIES).put("all", "categories");
+        cacheManager.getCache(CacheConfig.CATALOG_FACETS).put("all", "facets");
+
+        // when
+        listener.onCategoryRenamed(new CategoryRenamedEvent(3L));
+
+        // then
+        assertNull(cacheManager.getCache(CacheConfig.PUBLICATION_DETAILS).get(1L));
+        assertNull(cacheManager.getCache(CacheConfig.PUBLICATION_LIST_ITEMS).get(2L));
+        assertNull(cacheManager.getCache(CacheConfig.CATALOG_CATEGORIES).get("all"));
+        assertNull(cacheManager.getCache(CacheConfig.CATALOG_FACETS).get("all"));
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.neighborhood_library.service;
+
+import com.example.neighborhood_library.repo.CategoryRepository;
+import com.example.neighborhood_library.repo.CategoryTitleCountRow;
+import com.example.neighborhood_library.web.viewmodel.CategoryOptionVm;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CatalogCategoryServiceTest {
+
+    @Mock private CategoryRepository categoryRepository;
+
+    @InjectMocks
+    private CatalogCategoryService service;
+
+    @Test
+    void nonEmptyCategories_ShouldMapRowsWithLiveTitleCounts() {
+        // given
+        CategoryTitleCountRow row = new CategoryTitleCountRow() {
+            public Long getId() { return 4L; }
+            public String getName() { return "Poezja"; }
+            public long getLiveTitles() { return 3; }
+        };
+        when(categoryRepository.findNonEmptyForCatalog()).thenReturn(List.of(row));
+
+        // when
+        List<CategoryOptionVm> result = service.nonEmptyCategories();
+
+        // then
+        assertEquals(List.of(new CategoryOptionVm(4L, "Poezja", 3)), result);
+    }
+}
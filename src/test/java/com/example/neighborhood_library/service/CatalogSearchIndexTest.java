@@ -0,0 +1,137 @@
+package com.example.neighborhood_library.service;
+
+import com.example.neighborhood_library.repo.PublicationIndexRow;
+import com.example.neighborhood_library.repo.PublicationRepository;
+import com.example.neighborhood_library.support.InvalidationType;
+import com.example.neighborhood_library.support.PublicationChangedEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CatalogSearchIndexTest {
+
+    @Mock private PublicationRepository publicationRepository;
+    @Mock private PlatformTransactionManager transactionManager;
+
+    private CatalogSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new CatalogSearchIndex(publicationRepository, CatalogSearchMode.MEMORY, transactionManager);
+    }
+
+    @AfterEach
+    void tearDown() {
+        index.destroy();
+    }
+
+    @Test
+    void rebuild_ShouldIndexTitlesAndAuthors_IgnoringCaseAndPolishCharacters() {
+        // given
+        when(publicationRepository.streamIndexRows()).thenReturn(Stream.of(
+                row(1, 10, "Wiedźmin", "Andrzej", "Sapkowski", true),
+                row(2, 20, "Solaris", "Stanisław", "Lem", true),
+                row(3, 20, "Cyberiada", "Stanisław", "Lem", true),
+                row(4, 20, "Bajki robotów", "Stanisław", "Lem", false)
+        ));
+
+        // when
+        index.rebuild();
+
+        // then
+        assertTrue(index.isReady());
+        assertArrayEquals(new int[] {1}, index.search("WIEDZ", null));
+        assertArrayEquals(new int[] {2, 3}, index.search("stanislaw lem", null));
+        assertArrayEquals(new int[] {2}, index.search("lem sol", 20L));
+        assertArrayEquals(new int[0], index.search("lem", 10L));
+        // pusty tekst = wszystkie widoczne z kategorii
+        assertArrayEquals(new int[] {2, 3}, index.search("", 20L));
+    }
+
+    @Test
+    void onPublicationChanged_ShouldReplaceDocumentIncrementally() {
+        // given
+        when(publicationRepository.streamIndexRows()).thenReturn(Stream.of(
+                row(1, 10, "Lalka", "Bolesław", "Prus", true)
+        ));
+        index.rebuild();
+        when(publicationRepository.findIndexRows(1L)).thenReturn(List.of(
+                row(1, 30, "Faraon", "Bolesław", "Prus", true)
+        ));
+
+        // when
+        index.onPublicationChanged(new PublicationChangedEvent(1L));
+
+        // then
+        assertArrayEquals(new int[0], index.search("lalka", null));
+        assertArrayEquals(new int[] {1}, index.search("faraon", 30L));
+        assertArrayEquals(new int[0], index.search("prus", 10L));
+    }
+
+    @Test
+    void invalidate_ShouldRebuildInBackground_WhenWholeTypeInvalidated() throws Exception {
+        // given
+        when(publicationRepository.streamIndexRows()).thenReturn(Stream.of(
+                row(1, 10, "Lalka", "Bolesław", "Prus", true)
+        ));
+        index.rebuild();
+        CountDownLatch release = new CountDownLatch(1);
+        when(publicationRepository.streamIndexRows()).thenAnswer(i -> {
+            release.await(5, TimeUnit.SECONDS);
+            return Stream.of(row(1, 10, "Faraon", "Bolesław", "Prus", true));
+        });
+
+        // when - wątek listenera nie czeka na przebudowę
+        index.invalidate(InvalidationType.PUBLICATION, null);
+
+        // then
+        assertArrayEquals(new int[] {1}, index.search("lalka", null));
+        release.countDown();
+        await(() -> index.search("faraon", null).length == 1);
+        assertArrayEquals(new int[0], index.search("lalka", null));
+    }
+
+    @Test
+    void onPublicationChanged_ShouldDoNothing_WhenIndexDisabled() {
+        index = new CatalogSearchIndex(publicationRepository, CatalogSearchMode.FULLTEXT, transactionManager);
+
+        index.onPublicationChanged(new PublicationChangedEvent(1L));
+
+        assertFalse(index.isReady());
+        verifyNoInteractions(publicationRepository);
+    }
+
+    static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condition not met in time");
+            Thread.sleep(10);
+        }
+    }
+
+    private static PublicationIndexRow row(long id, long categoryId, String title,
+                                           String firstName, String lastName, boolean visible) {
+        return new PublicationIndexRow() {
+            public Long getId() { return id; }
+            public Long getCategoryId() { return categoryId; }
+            public String getTitle() { return title; }
+            public String getFirstName() { return firstName; }
+            public String getLastName() { return lastName; }
+            public boolean getVisible() { return visible; }
+        };
+    }
+}
@@ -1,19 +1,41 @@
 package com.example.neighborhood_library.service;
 
+import com.example.neighborhood_library.config.CacheConfig;
 import com.example.neighborhood_library.domain.*;
+import com.example.neighborhood_library.repo.FacetCountRow;
+import com.example.neighborhood_library.repo.PublicationListRow;
+import com.example.neighborhood_library.repo.PublicationRankRow;
 import com.example.neighborhood_library.repo.PublicationRepository;
+import com.example.neighborhood_library.web.viewmodel.CatalogFacetsVm;
+import com.example.neighborhood_library.web.viewmodel.CatalogSlice;
+import com.example.neighborhood_library.web.viewmodel.FacetValueVm;
 import com.example.neighborhood_library.web.viewmodel.PublicationDetailsVm;
+import com.example.neighborhood_library.web.viewmodel.PublicationListItemVm;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.test.util.ReflectionTestUtils;
 
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -21,10 +43,17 @@ class CatalogServiceTest {
 
     @Mock
     private PublicationRepository publicationRepository;
+    @Mock
+    private CatalogSearchIndex searchIndex;
 
-    @InjectMocks
+    private final CacheManager cacheManager = new ConcurrentMapCacheManager(CacheConfig.PUBLICATION_LIST_ITEMS);
     private CatalogService catalogService;
 
+    @BeforeEach
+    void setUp() {
+        catalogService = new CatalogService(publicationRepository, searchIndex, CatalogSearchMode.FULLTEXT, 0.3, false, cacheManager);
+    }
+
     @Test
     void getDetails_ShouldMapEntityToViewModelCorrectly() {
         // given
@@ -69,4 +98,327 @@ class CatalogServiceTest {
 
         assertEquals(2, details.copies().size());
     }
+
+    @Test
+    void search_ShouldUseFullTextWithPrefixQuery_WhenModeIsFullText() {
+        // given
+        Pageable pageable = PageRequest.of(0, 10);
+        when(publicationRepository.searchIdsFullText("wiedźmin:* & sapk:*", 5L, pageable))
+                .thenReturn(new PageImpl<>(List.of(), pageable, 0));
+
+        // when
+        Page<PublicationListItemVm> page = catalogService.search("  Wiedźmin, Sapk ", 5L, 1, 10);
+
+        // then
+        assertTrue(page.isEmpty());
+        verify(publicationRepository, never()).searchIds(any(), any(), any());
+    }
+
+    @Test
+    void search_ShouldFallBackToLike_WhenQueryHasNoWords() {
+        // given
+        when(publicationRepository.searchIds(eq("%%"), eq(null), any()))
+                .thenReturn(Page.empty());
+
+        // when
+        catalogService.search("%%", null, 1, 10);
+
+        // then
+        verify(publicationRepository, never()).searchIdsFullText(anyString(), any(), any());
+    }
+
+    @Test
+    void search_ShouldUseLike_WhenModeIsLike() {
+        // given
+        catalogService = new CatalogService(publicationRepository, searchIndex, CatalogSearchMode.LIKE, 0.3, false, cacheManager);
+        when(publicationRepository.searchIds(eq("Lem"), eq(null), any())).thenReturn(Page.empty());
+
+        // when
+        catalogService.search("Lem", null, 1, 10);
+
+        // then
+        verify(publicationRepository).searchIds(eq("Lem"), eq(null), any());
+        verify(publicationRepository, never()).searchIdsFullText(anyString(), any(), any());
+    }
+
+    @Test
+    void search_ShouldPageOverMemoryIndexHits_WhenModeIsMemoryAndIndexReady() {
+        // given
+        catalogService = new CatalogService(publicationRepository, searchIndex, CatalogSearchMode.MEMORY, 0.3, false, cacheManager);
+        when(searchIndex.isReady()).thenReturn(true);
+        when(searchIndex.search("lem", null)).thenReturn(new int[] {1, 2, 3});
+        when(publicationRepository.findListRows(List.of(3L))).thenReturn(List.of());
+
+        // when
+        Page<PublicationListItemVm> page = catalogService.search("lem", null, 2, 2);
+
+        // then
+        assertEquals(3, page.getTotalElements());
+        verify(publicationRepository).findListRows(List.of(3L));
+        verify(publicationRepository, never()).searchIds(any(), any(), any());
+    }
+
+    @Test
+    void search_ShouldMapAggregatedRows_InRankingOrder() {
+        // given
+        Pageable pageable = PageRequest.of(0, 10);
+        when(publicationRepository.searchIdsFullText("lem:*", null, pageable))
+                .thenReturn(new PageImpl<>(List.of(8L, 3L), pageable, 2));
+        when(publicationRepository.findListRows(List.of(8L, 3L))).thenReturn(List.of(
+                listRow(3L, "Solaris", "BOOK", 2, 1, 0, 0),
+                listRow(8L, "Fantastyka", "MAGAZINE", 0, 0, 3, 1)
+        ));
+
+        // when
+        Page<PublicationListItemVm> page = catalogService.search("lem", null, 1, 10);
+
+        // then
+        List<PublicationListItemVm> items = page.getContent();
+        assertEquals(List.of(8L, 3L), items.stream().map(PublicationListItemVm::id).toList());
+        assertEquals("Czasopismo", items.get(0).kindLabel());
+        assertEquals(3, items.get(0).loaned());
+        assertEquals(1, items.get(0).unavailable());
+        assertEquals("Książka", items.get(1).kindLabel());
+        assertEquals(2, items.get(1).available());
+        assertEquals("Stanisław Lem", items.get(1).authors());
+    }
+
+    @Test
+    void search_ShouldServeListItemsFromCache_AndQueryOnlyMissingOnes() {
+        // given
+        Pageable pageable = PageRequest.of(0, 10);
+        when(publicationRepository.searchIdsFullText("lem:*", null, pageable))
+                .thenReturn(new PageImpl<>(List.of(3L), pageable, 1))
+                .thenReturn(new PageImpl<>(List.of(3L, 8L), pageable, 2));
+        when(publicationRepository.findListRows(List.of(3L)))
+                .thenReturn(List.of(listRow(3L, "Solaris", "BOOK", 1, 0, 0, 0)));
+        when(publicationRepository.findListRows(List.of(8L)))
+                .thenReturn(List.of(listRow(8L, "Fantastyka", "MAGAZINE", 1, 0, 0, 0)));
+
+        // when
+        catalogService.search("lem", null, 1, 10);
+        Page<PublicationListItemVm> second = catalogService.search("lem", null, 1, 10);
+
+        // then: id=3 z cache, z bazy tylko id=8
+        assertEquals(List.of(3L, 8L), second.getContent().stream().map(PublicationListItemVm::id).toList());
+        verify(publicationRepository).findListRows(List.of(3L));
+        verify(publicationRepository).findListRows(List.of(8L));
+    }
+
+    @Test
+    void toPrefixTsQuery_ShouldStripTsQueryOperators() {
+        assertEquals("a:* & b:*", CatalogService.toPrefixTsQuery("a & !b:*"));
+        assertNull(CatalogService.toPrefixTsQuery("&|!()"));
+    }
+
+    @Test
+    void didYouMean_ShouldReturnClosestTerm_WithConfiguredThreshold() {
+        // given
+        when(publicationRepository.findClosestTerm("Sienkiewcz")).thenReturn(Optional.of("Henryk Sienkiewicz"));
+
+        // when
+        Optional<String> suggestion = catalogService.didYouMean(" Sienkiewcz ");
+
+        // then
+        assertEquals(Optional.of("Henryk Sienkiewicz"), suggestion);
+        verify(publicationRepository).setTrigramThresholds(0.3);
+    }
+
+    @Test
+    void didYouMean_ShouldBeEmpty_WhenClosestTermEqualsQuery() {
+        when(publicationRepository.findClosestTerm("lalka")).thenReturn(Optional.of("Lalka"));
+
+        assertTrue(catalogService.didYouMean("lalka").isEmpty());
+    }
+
+    @Test
+    void searchSimilar_ShouldSkipDatabase_WhenQueryIsBlank() {
+        assertTrue(catalogService.searchSimilar("   ", null, 10).isEmpty());
+        verify(publicationRepository, never()).findSimilarIds(any(), any(), anyInt());
+    }
+
+    // --- Stronicowanie kursorem ---
+
+    @Test
+    void searchAfter_ShouldCountOnlyOnFirstPage_AndCarryTotalInCursor() {
+        // given: FULLTEXT z liczeniem wyników, 2 na stronę, trzecia pozycja potwierdza, że jest następna strona
+        catalogService = new CatalogService(publicationRepository, searchIndex, CatalogSearchMode.FULLTEXT, 0.3, true, cacheManager);
+        when(publicationRepository.searchFullTextAfter("lem:*", null, null, null, 3))
+                .thenReturn(List.of(rankRow(5L, 0.5f), rankRow(2L, 0.1f), rankRow(9L, 0.1f)));
+        when(publicationRepository.countFullText("lem:*", null)).thenReturn(7L);
+        when(publicationRepository.findListRows(any())).thenReturn(List.of());
+
+        // when
+        CatalogSlice first = catalogService.searchAfter("lem", null, null, 2);
+
+        // then
+        assertTrue(first.hasNext());
+        assertEquals(1, first.from());
+        assertEquals(Long.valueOf(7), first.total());
+        verify(publicationRepository).findListRows(List.of(5L, 2L));
+
+        // given: druga strona z kursora - kontynuacja od (0.1, 2), bez ponownego count
+        when(publicationRepository.searchFullTextAfter("lem:*", null, 0.1f, 2L, 3))
+                .thenReturn(List.of(rankRow(9L, 0.1f)));
+
+        // when
+        CatalogSlice second = catalogService.searchAfter("lem", null, first.nextCursor(), 2);
+
+        // then
+        assertFalse(second.hasNext());
+        assertEquals(3, second.from());
+        assertEquals(Long.valueOf(7), second.total());
+        verify(publicationRepository).countFullText(any(), any());
+    }
+
+    @Test
+    void searchAfter_ShouldSkipCount_ByDefault() {
+        // given
+        when(publicationRepository.searchFullTextAfter("lem:*", null, null, null, 3))
+                .thenReturn(List.of(rankRow(5L, 0.5f), rankRow(2L, 0.1f), rankRow(9L, 0.1f)));
+        when(publicationRepository.findListRows(any())).thenReturn(List.of());
+
+        // when
+        CatalogSlice first = catalogService.searchAfter("lem", null, null, 2);
+
+        // then: bez liczby wyników, także w kursorze
+        assertTrue(first.hasNext());
+        assertNull(first.total());
+        verify(publicationRepository, never()).countFullText(any(), any());
+
+        // given
+        when(publicationRepository.searchFullTextAfter("lem:*", null, 0.1f, 2L, 3))
+                .thenReturn(List.of(rankRow(9L, 0.1f)));
+
+        // when
+        CatalogSlice second = catalogService.searchAfter("lem", null, first.nextCursor(), 2);
+
+        // then
+        assertEquals(3, second.from());
+        assertNull(second.total());
+    }
+
+    @Test
+    void searchAfter_ShouldStartOver_WhenCursorIsGarbage() {
+        // given: puste zapytanie -> ścieżka LIKE (po id)
+        when(publicationRepository.searchIdsAfter(null, null, null, PageRequest.of(0, 10)))
+                .thenReturn(new SliceImpl<>(List.of()));
+
+        // when
+        CatalogSlice slice = catalogService.searchAfter(" ", null, "%%nie-kursor%%", 10);
+
+        // then
+        assertTrue(slice.isEmpty());
+        assertNull(slice.nextCursor());
+    }
+
+    @Test
+    void searchAfter_ShouldStartOver_WhenCursorIdIsOutOfRange() {
+        // given: spreparowany kursor z id > Integer.MAX_VALUE w trybie MEMORY
+        catalogService = new CatalogService(publicationRepository, searchIndex, CatalogSearchMode.MEMORY, 0.3, false, cacheManager);
+        when(searchIndex.isReady()).thenReturn(true);
+        when(searchIndex.search(null, null)).thenReturn(new int[] {1, 4, 6});
+        when(publicationRepository.findListRows(any())).thenReturn(List.of());
+        String cursor = new CatalogService.CatalogCursor(0f, Integer.MAX_VALUE + 1L, 2, 3).encode();
+
+        // when
+        CatalogSlice slice = catalogService.searchAfter(null, null, cursor, 2);
+
+        // then: pierwsza strona zamiast ArithmeticException
+        assertEquals(1, slice.from());
+        verify(publicationRepository).findListRows(List.of(1L, 4L));
+        assertNull(CatalogService.CatalogCursor.decode(
+                new CatalogService.CatalogCursor(0f, -5L, 0, 3).encode()));
+    }
+
+    @Test
+    void searchAfter_ShouldSeekInMemoryHits_WhenModeIsMemory() {
+        // given
+        catalogService = new CatalogService(publicationRepository, searchIndex, CatalogSearchMode.MEMORY, 0.3, false, cacheManager);
+        when(searchIndex.isReady()).thenReturn(true);
+        when(searchIndex.search(null, null)).thenReturn(new int[] {1, 4, 6, 8});
+        when(publicationRepository.findListRows(any())).thenReturn(List.of());
+        String cursor = new CatalogService.CatalogCursor(0f, 4L, 2, 4).encode();
+
+        // when
+        CatalogSlice slice = catalogService.searchAfter(null, null, cursor, 2);
+
+        // then
+        verify(publicationRepository).findListRows(List.of(6L, 8L));
+        assertFalse(slice.hasNext());
+        assertEquals(3, slice.from());
+        assertEquals(Long.valueOf(4), slice.total());
+    }
+
+    @Test
+    void facets_ShouldSplitGroupingSetsIntoFacets_FromOneQuery() {
+        // given
+        when(publicationRepository.countFacetsFullText("lem:*", 2L)).thenReturn(List.of(
+                facetRow("CATEGORY", "2", "Fantastyka", 5, 5),
+                facetRow("CATEGORY", "1", "Biografie", 1, 0),
+                facetRow("KIND", "BOOK", null, 6, 5),
+                facetRow("KIND", "MAGAZINE", null, 0, 0),
+                facetRow("DECADE", "1960", null, 4, 4),
+                facetRow("DECADE", "1980", null, 1, 1),
+                facetRow("DECADE", null, null, 1, 0),
+                facetRow("AVAILABLE", "false", null, 2, 2),
+                facetRow("AVAILABLE", "true", null, 4, 3)
+        ));
+
+        // when
+        CatalogFacetsVm facets = catalogService.facets("Lem", 2L);
+
+        // then
+        assertEquals(List.of("Biografie", "Fantastyka"), facets.categories().stream().map(FacetValueVm::label).toList());
+        assertEquals(1, facets.categories().get(0).count()); // kategorie bez filtra kategorii
+        assertEquals(List.of(new FacetValueVm("BOOK", "Książka", 5)), facets.kinds());
+        assertEquals(List.of("1980–1989", "1960–1969"), facets.decades().stream().map(FacetValueVm::label).toList());
+        assertEquals(3, facets.availableNow());
+        verify(publicationRepository, never()).countFacetsLike(any(), any());
+    }
+
+    @Test
+    void facets_ShouldUseLikeMatching_WhenQueryHasNoWords() {
+        // given
+        when(publicationRepository.countFacetsLike(null, null)).thenReturn(List.of());
+
+        // when
+        CatalogFacetsVm facets = catalogService.facets("   ", null);
+
+        // then
+        assertEquals(CatalogFacetsVm.empty(), facets);
+        verify(publicationRepository, never()).countFacetsFullText(anyString(), any());
+    }
+
+    private static FacetCountRow facetRow(String facet, String value, String label, long total, long inCategory) {
+        return new FacetCountRow() {
+            public String getFacet() { return facet; }
+            public String getValue() { return value; }
+            public String getLabel() { return label; }
+            public long getTotal() { return total; }
+            public long getInCategory() { return inCategory; }
+        };
+    }
+
+    private static PublicationListRow listRow(long id, String title, String kind,
+                                              long available, long reserved, long loaned, long unavailable) {
+        return new PublicationListRow() {
+            public Long getId() { return id; }
+            public String getTitle() { return title; }
+            public String getKind() { return kind; }
+            public String getCategoryName() { return "Fantastyka"; }
+            public String getAuthors() { return "Stanisław Lem"; }
+            public long getAvailable() { return available; }
+            public long getReserved() { return reserved; }
+            public long getLoaned() { return loaned; }
+            public long getUnavailable() { return unavailable; }
+        };
+    }
+
+    private static PublicationRankRow rankRow(long id, float rank) {
+        return new PublicationRankRow() {
+            public Long getId() { return id; }
+            public Float getRank() { return rank; }
+        };
+    }
 }
@@ -0,0 +1,152 @@
+package com.example.neighborhood_library.service;
+
+import com.example.neighborhood_library.repo.PublicationIndexRow;
+import com.example.neighborhood_library.repo.PublicationRepository;
+import com.example.neighborhood_library.support.InvalidationType;
+import com.example.neighborhood_library.support.PublicationEntryChangedEvent;
+import com.example.neighborhood_library.web.viewmodel.SuggestionVm;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CatalogSuggestIndexTest {
+
+    @Mock private PublicationRepository publicationRepository;
+    @Mock private PlatformTransactionManager transactionManager;
+
+    private CatalogSuggestIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new CatalogSuggestIndex(publicationRepository, transactionManager);
+    }
+
+    @AfterEach
+    void tearDown() {
+        index.destroy();
+    }
+
+    @Test
+    void suggest_ShouldMatchPrefixOfAnyWord_ForVisibleTitlesAndAuthors() {
+        // given
+        when(publicationRepository.streamIndexRows()).thenReturn(Stream.of(
+                row(1, "Wiedźmin: Ostatnie życzenie", "Andrzej", "Sapkowski", true),
+                row(2, "Solaris", "Stanisław", "Lem", true),
+                row(3, "Sól ziemi", null, null, true),
+                row(4, "Sonety krymskie", "Adam", "Mickiewicz", false)
+        ));
+
+        // when
+        index.rebuild();
+
+        // then
+        assertEquals(List.of(new SuggestionVm("Wiedźmin: Ostatnie życzenie", SuggestionVm.TITLE, 1L)),
+                index.suggest("zycz", 8));
+        assertEquals(List.of("Sól ziemi", "Solaris"), texts(index.suggest("So", 8)));
+        assertEquals(List.of("Stanisław Lem"), texts(index.suggest("lem", 8)));
+        assertEquals(List.of("Andrzej Sapkowski"), texts(index.suggest("andrzej sap", 8)));
+        assertTrue(index.suggest("mickiewicz", 8).isEmpty());
+        assertEquals(1, index.suggest("s", 1).size());
+    }
+
+    @Test
+    void onPublicationChanged_ShouldReplaceTitleAndDropAuthorWithoutTitles() {
+        // given
+        when(publicationRepository.streamIndexRows()).thenReturn(Stream.of(
+                row(1, "Lalka", "Bolesław", "Prus", true),
+                row(2, "Faraon", "Bolesław", "Prus", true),
+                row(3, "Ferdydurke", "Witold", "Gombrowicz", true)
+        ));
+        index.rebuild();
+        when(publicationRepository.findIndexRows(1L)).thenReturn(List.of(
+                row(1, "Lalka (wyd. II)", "Bolesław", "Prus", true)
+        ));
+        when(publicationRepository.findIndexRows(3L)).thenReturn(List.of(
+                row(3, "Ferdydurke", "Witold", "Gombrowicz", false)
+        ));
+
+        // when
+        index.onPublicationEntryChanged(new PublicationEntryChangedEvent(1L));
+        index.onPublicationEntryChanged(new PublicationEntryChangedEvent(3L));
+
+        // then
+        assertEquals(List.of("Lalka (wyd. II)"), texts(index.suggest("lalka", 8)));
+        assertEquals(List.of("Bolesław Prus"), texts(index.suggest("prus", 8)));
+        assertTrue(index.suggest("gombro", 8).isEmpty());
+        assertTrue(index.suggest("ferdy", 8).isEmpty());
+    }
+
+    @Test
+    void onPublicationEntryChanged_ShouldKeepIndex_WhenTitleAndAuthorsUnchanged() {
+        // given
+        when(publicationRepository.streamIndexRows()).thenReturn(Stream.of(
+                row(1, "Lalka", "Bolesław", "Prus", true)
+        ));
+        index.rebuild();
+        List<SuggestionVm> before = index.suggest("lalka", 8);
+        when(publicationRepository.findIndexRows(1L)).thenReturn(List.of(
+                row(1, "Lalka", "Bolesław", "Prus", true)
+        ));
+
+        // when - np. to samo zdarzenie z listenera i z NOTIFY
+        index.onPublicationEntryChanged(new PublicationEntryChangedEvent(1L));
+        index.invalidate(InvalidationType.PUBLICATION_ENTRY, 1L);
+
+        // then: te same wartości, nie nowe kopie
+        assertSame(before.get(0), index.suggest("lalka", 8).get(0));
+        assertEquals(List.of("Bolesław Prus"), texts(index.suggest("prus", 8)));
+    }
+
+    @Test
+    void invalidate_ShouldNotWaitForBackgroundRebuild_AndApplyChangeAfterIt() throws Exception {
+        // given: przebudowa w tle zablokowana w trakcie czytania strumienia
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(publicationRepository.streamIndexRows()).thenAnswer(i -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return Stream.of(row(1, "Lalka", "Bolesław", "Prus", true));
+        });
+        when(publicationRepository.findIndexRows(1L)).thenReturn(List.of(
+                row(1, "Lalka (wyd. II)", "Bolesław", "Prus", true)
+        ));
+        index.invalidate(InvalidationType.PUBLICATION_ENTRY, null);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        // when - zmiana z innego węzła w trakcie przebudowy
+        index.invalidate(InvalidationType.PUBLICATION_ENTRY, 1L);
+
+        // then: odłożona i naniesiona po przebudowie
+        verify(publicationRepository, never()).findIndexRows(anyLong());
+        release.countDown();
+        CatalogSearchIndexTest.await(() -> texts(index.suggest("lalka", 8)).equals(List.of("Lalka (wyd. II)")));
+    }
+
+    private static List<String> texts(List<SuggestionVm> suggestions) {
+        return suggestions.stream().map(SuggestionVm::text).toList();
+    }
+
+    private static PublicationIndexRow row(long id, String title, String firstName, String lastName, boolean visible) {
+        return new PublicationIndexRow() {
+            public Long getId() { return id; }
+            public Long getCategoryId() { return 1L; }
+            public String getTitle() { return title; }
+            public String getFirstName() { return firstName; }
+            public String getLastName() { return lastName; }
+            public boolean getVisible() { return visible; }
+        };
+    }
+}
@@ -1,18 +1,26 @@
 package com.example.neighborhood_library.service;
 
+import com.example.neighborhood_library.config.LibraryUserPrincipal;
+import com.example.neighborhood_library.domain.AccountRole;
 import com.example.neighborhood_library.domain.User;
+import com.example.neighborhood_library.domain.UserStatus;
 import com.example.neighborhood_library.repo.UserRepository;
 import com.example.neighborhood_library.support.NotFoundException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
 
 import java.util.Optional;
 
@@ -23,17 +31,21 @@ import static org.mockito.Mockito.*;
 class CurrentUserServiceTest {
 
     @Mock private UserRepository userRepository;
-    @InjectMocks private CurrentUserService currentUserService;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private CurrentUserService currentUserService;
 
     @BeforeEach
     void setUp() {
         // Czyścimy kontekst przed każdym testem, żeby nie było "brudów" z innych testów
         SecurityContextHolder.clearContext();
+        currentUserService = new CurrentUserService(userRepository, meterRegistry);
     }
 
     @AfterEach
     void tearDown() {
         SecurityContextHolder.clearContext();
+        RequestContextHolder.resetRequestAttributes();
     }
 
     @Test
@@ -75,4 +87,69 @@ class CurrentUserServiceTest {
         // when & then
         assertThrows(NotFoundException.class, () -> currentUserService.requireCurrentUser());
     }
+
+    @Test
+    void requireCurrentUser_ShouldQueryOncePerRequest() {
+        // given
+        User user = loggedIn(7L);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+        when(userRepository.findById(7L)).thenReturn(Optional.of(user));
+
+        // when - advice, kontroler, serwis
+        User first = currentUserService.requireCurrentUser();
+        User second = currentUserService.requireCurrentUser();
+        User actor = currentUserService.currentUserReference();
+
+        // then
+        assertSame(first, second);
+        assertSame(first, actor);
+        verify(userRepository, times(1)).findById(7L);
+        assertEquals(1.0, lookups("database"));
+        assertEquals(2.0, lookups("request"));
+    }
+
+    @Test
+    void requireCurrentUserId_ShouldReadPrincipal_WithoutQuery() {
+        // given
+        loggedIn(7L);
+
+        // when
+        long id = currentUserService.requireCurrentUserId();
+
+        // then
+        assertEquals(7L, id);
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    void currentUserReference_ShouldUseJpaReference_WhenUserNotLoadedYet() {
+        // given
+        loggedIn(7L);
+        User reference = new User();
+        when(userRepository.getReferenceById(7L)).thenReturn(reference);
+
+        // when
+        User actor = currentUserService.currentUserReference();
+
+        // then
+        assertSame(reference, actor);
+        verify(userRepository, never()).findById(any());
+        assertEquals(1.0, lookups("reference"));
+    }
+
+    private User loggedIn(long id) {
+        User user = new User();
+        ReflectionTestUtils.setField(user, "id", id);
+        user.setLogin("user" + id);
+        user.setStatus(UserStatus.ACTIVE);
+        user.setAccountRole(AccountRole.USER);
+        LibraryUserPrincipal principal = new LibraryUserPrincipal(user);
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+        return user;
+    }
+
+    private double lookups(String source) {
+        return meterRegistry.counter("library.current_user.lookups", "source", source).count();
+    }
 }
@@ -0,0 +1,109 @@
+package com.example.neighborhood_library.service;
+
+import com.example.neighborhood_library.repo.HoldQueueRow;
+import com.example.neighborhood_library.repo.HoldRepository;
+import com.example.neighborhood_library.support.HoldQueueChangedEvent;
+import com.example.neighborhood_library.support.InvalidationType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class HoldQueueIndexTest {
+
+    @Mock private HoldRepository holdRepository;
+    @Mock private PlatformTransactionManager transactionManager;
+
+    private HoldQueueIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new HoldQueueIndex(holdRepository, transactionManager);
+    }
+
+    @AfterEach
+    void tearDown() {
+        index.destroy();
+    }
+
+    @Test
+    void position_ShouldCountEarlierWaitingHoldsOfSamePublication() {
+        // given
+        when(holdRepository.streamWaitingQueue()).thenReturn(Stream.of(
+                row(100, 10, true), row(105, 10, true), row(110, 10, true),
+                row(101, 11, true)
+        ));
+
+        // when
+        index.rebuild();
+
+        // then
+        assertEquals(1, index.position(10L, 100L));
+        assertEquals(3, index.position(10L, 110L));
+        assertEquals(1, index.position(11L, 101L));
+        assertEquals(4, index.position(10L, 120L)); // nowy hold, którego zmiana jeszcze nie dotarła
+        assertEquals(1, index.position(12L, 130L));
+    }
+
+    @Test
+    void onHoldQueueChanged_ShouldApplyCurrentStateOfHold() {
+        // given
+        when(holdRepository.streamWaitingQueue()).thenReturn(Stream.of(row(100, 10, true), row(105, 10, true)));
+        index.rebuild();
+        when(holdRepository.findQueueRow(100L)).thenReturn(Optional.of(row(100, 10, false)));
+        when(holdRepository.findQueueRow(107L)).thenReturn(Optional.of(row(107, 10, true)));
+
+        // when - anulowanie pierwszego, dołączenie nowego (także powtórzone z NOTIFY)
+        index.onHoldQueueChanged(new HoldQueueChangedEvent(100L));
+        index.onHoldQueueChanged(new HoldQueueChangedEvent(107L));
+        index.invalidate(InvalidationType.HOLD, 107L);
+
+        // then
+        assertEquals(1, index.position(10L, 105L));
+        assertEquals(2, index.position(10L, 107L));
+        assertEquals(3, index.position(10L, 200L));
+    }
+
+    @Test
+    void invalidate_ShouldApplyChangeMadeDuringRebuild_AfterIt() throws Exception {
+        // given: przebudowa w tle zablokowana w trakcie czytania strumienia (stan sprzed zmiany)
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(holdRepository.streamWaitingQueue()).thenAnswer(i -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return Stream.of(row(100, 10, true), row(105, 10, true));
+        });
+        when(holdRepository.findQueueRow(100L)).thenReturn(Optional.of(row(100, 10, false)));
+        index.invalidate(InvalidationType.HOLD, null);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        // when - zmiana z innego węzła w trakcie przebudowy
+        index.invalidate(InvalidationType.HOLD, 100L);
+        release.countDown();
+
+        // then: naniesiona na zbudowany stan
+        CatalogSearchIndexTest.await(() -> index.position(10L, 105L) == 1);
+        verify(holdRepository, atLeast(2)).findQueueRow(100L);
+    }
+
+    private static HoldQueueRow row(long id, long publicationId, boolean waiting) {
+        return new HoldQueueRow() {
+            public Long getId() { return id; }
+            public Long getPublicationId() { return publicationId; }
+            public boolean getWaiting() { return waiting; }
+        };
+    }
+}
@@ -0,0 +1,239 @@
+package com.example.neighborhood_library.service;
+
+import com.example.neighborhood_library.domain.*;
+import com.example.neighborhood_library.repo.HandOffRow;
+import com.example.neighborhood_library.repo.HoldRepository;
+import com.example.neighborhood_library.repo.PublicationAvailabilityRepository;
+import com.example.neighborhood_library.repo.PublicationRepository;
+import com.example.neighborhood_library.repo.ReservationRepository;
+import com.example.neighborhood_library.repo.UserRepository;
+import com.example.neighborhood_library.support.CopyReleasedEvent;
+import com.example.neighborhood_library.support.HoldQueueChangedEvent;
+import com.example.neighborhood_library.support.NotFoundException;
+import com.example.neighborhood_library.support.ReservationBlockedException;
+import com.example.neighborhood_library.support.ReservationCreatedEvent;
+import com.example.neighborhood_library.web.viewmodel.HoldVm;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class HoldServiceTest {
+
+    @Mock private HoldRepository holdRepository;
+    @Mock private HoldQueueIndex holdQueueIndex;
+    @Mock private PublicationRepository publicationRepository;
+    @Mock private UserRepository userRepository;
+    @Mock private ReservationRepository reservationRepository;
+    @Mock private MessageOutbox messageOutbox;
+    @Mock private PublicationAvailabilityRepository publicationAvailabilityRepository;
+    @Mock private OperationService operationService;
+    @Mock private ApplicationEventPublisher eventPublisher;
+
+    private final Clock fixedClock = Clock.fixed(Instant.parse("2024-06-01T10:00:00Z"), ZoneOffset.UTC);
+
+    private HoldService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new HoldService(holdRepository, holdQueueIndex, publicationRepository, userRepository, reservationRepository,
+                messageOutbox, publicationAvailabilityRepository, operationService, eventPublisher, fixedClock, 3);
+    }
+
+    @Test
+    void placeHold_ShouldQueueUser_AndReturnPosition() {
+        // given
+        User user = new User();
+        when(publicationRepository.findById(10L)).thenReturn(Optional.of(new Publication()));
+        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+        when(publicationAvailabilityRepository.hasAvailableCopy(10L)).thenReturn(false);
+        when(holdRepository.save(any(Hold.class))).thenAnswer(i -> {
+            Hold h = i.getArgument(0);
+            ReflectionTestUtils.setField(h, "id", 500L);
+            return h;
+        });
+        when(holdQueueIndex.position(10L, 500L)).thenReturn(3L);
+
+        // when
+        long position = service.placeHold(10L, 1L);
+
+        // then
+        assertEquals(3L, position);
+        verify(eventPublisher).publishEvent(new HoldQueueChangedEvent(500L));
+        ArgumentCaptor<Hold> captor = ArgumentCaptor.forClass(Hold.class);
+        verify(holdRepository).save(captor.capture());
+        assertEquals(HoldStatus.WAITING, captor.getValue().getStatus());
+        assertEquals(user, captor.getValue().getUser());
+        verify(operationService).logAction(user, user, "HOLD_PLACED", null);
+    }
+
+    @Test
+    void placeHold_ShouldLockCopyReleases_BeforeCheckingAndQueueing() {
+        // given
+        when(publicationRepository.findById(10L)).thenReturn(Optional.of(new Publication()));
+        when(userRepository.findById(1L)).thenReturn(Optional.of(new User()));
+        when(publicationAvailabilityRepository.hasAvailableCopy(10L)).thenReturn(null); // brak egzemplarzy
+        when(holdRepository.save(any(Hold.class))).thenAnswer(i -> {
+            Hold h = i.getArgument(0);
+            ReflectionTestUtils.setField(h, "id", 500L);
+            return h;
+        });
+
+        // when
+        service.placeHold(10L, 1L);
+
+        // then
+        var inOrder = inOrder(publicationAvailabilityRepository, holdRepository);
+        inOrder.verify(publicationAvailabilityRepository).lockCopyReleases(10L);
+        inOrder.verify(publicationAvailabilityRepository).hasAvailableCopy(10L);
+        inOrder.verify(holdRepository).save(any(Hold.class));
+    }
+
+    @Test
+    void placeHold_ShouldRefuse_WhenCopyIsAvailable() {
+        // given
+        when(publicationRepository.findById(10L)).thenReturn(Optional.of(new Publication()));
+        when(userRepository.findById(1L)).thenReturn(Optional.of(new User()));
+        when(publicationAvailabilityRepository.hasAvailableCopy(10L)).thenReturn(true);
+
+        // when & then
+        assertThrows(ReservationBlockedException.class, () -> service.placeHold(10L, 1L));
+        verify(holdRepository, never()).save(any());
+    }
+
+    @Test
+    void placeHold_ShouldRefuse_WhenAlreadyWaiting() {
+        // given
+        when(publicationRepository.findById(10L)).thenReturn(Optional.of(new Publication()));
+        when(userRepository.findById(1L)).thenReturn(Optional.of(new User()));
+        when(holdRepository.existsByPublicationIdAndUserIdAndStatus(10L, 1L, HoldStatus.WAITING)).thenReturn(true);
+
+        // when & then
+        ReservationBlockedException ex = assertThrows(ReservationBlockedException.class,
+                () -> service.placeHold(10L, 1L));
+        assertEquals("Już czekasz w kolejce po tę publikację.", ex.getMessage());
+    }
+
+    @Test
+    void cancelHold_ShouldThrowNotFound_WhenUserIsNotWaiting() {
+        when(holdRepository.findByPublicationIdAndUserIdAndStatus(10L, 1L, HoldStatus.WAITING))
+                .thenReturn(Optional.empty());
+
+        assertThrows(NotFoundException.class, () -> service.cancelHold(10L, 1L));
+    }
+
+    @Test
+    void cancelHold_ShouldLeaveQueue() {
+        // given
+        Hold hold = hold(500L, 10L, "Solaris");
+        when(holdRepository.findByPublicationIdAndUserIdAndStatus(10L, 1L, HoldStatus.WAITING))
+                .thenReturn(Optional.of(hold));
+
+        // when
+        service.cancelHold(10L, 1L);
+
+        // then
+        assertEquals(HoldStatus.CANCELLED, hold.getStatus());
+        verify(eventPublisher).publishEvent(new HoldQueueChangedEvent(500L));
+    }
+
+    @Test
+    void position_ShouldBeEmpty_WhenUserIsNotWaiting() {
+        when(holdRepository.findByPublicationIdAndUserIdAndStatus(10L, 1L, HoldStatus.WAITING))
+                .thenReturn(Optional.empty());
+
+        assertTrue(service.position(10L, 1L).isEmpty());
+        verifyNoInteractions(holdQueueIndex);
+    }
+
+    @Test
+    void onCopyReleased_ShouldMessagePatron_WhenCopyWasHandedOff() {
+        // given
+        User user = new User();
+        Publication publication = new Publication();
+        publication.setTitle("Solaris");
+        Copy copy = new Copy();
+        copy.setPublication(publication);
+        copy.setInventoryCode("LIB-2024-000070");
+        Reservation reservation = new Reservation();
+        ReflectionTestUtils.setField(reservation, "id", 900L);
+        reservation.setUser(user);
+        reservation.setCopy(copy);
+        reservation.setPickupUntil(OffsetDateTime.parse("2024-06-04T10:00:00Z"));
+
+        when(holdRepository.handOff(70L, 3)).thenReturn(Optional.of(handOffRow(5L, 1L, 900L)));
+        when(reservationRepository.findById(900L)).thenReturn(Optional.of(reservation));
+
+        // when
+        service.onCopyReleased(new CopyReleasedEvent(70L));
+
+        // then
+        verify(messageOutbox).enqueue(user, MessageType.HOLD_READY, Map.of(
+                MessageRenderer.TITLE, "Solaris",
+                MessageRenderer.INVENTORY_CODE, "LIB-2024-000070",
+                MessageRenderer.PICKUP_UNTIL, "2024-06-04 10:00"));
+        verify(operationService).logAction(user, user, "RESERVATION_CREATED_FROM_HOLD", copy);
+        verify(eventPublisher).publishEvent(ReservationCreatedEvent.of(reservation));
+        verify(eventPublisher).publishEvent(new HoldQueueChangedEvent(5L));
+    }
+
+    @Test
+    void onCopyReleased_ShouldDoNothing_WhenNobodyIsWaiting() {
+        when(holdRepository.handOff(70L, 3)).thenReturn(Optional.empty());
+
+        service.onCopyReleased(new CopyReleasedEvent(70L));
+
+        verifyNoInteractions(reservationRepository, messageOutbox, operationService, eventPublisher);
+    }
+
+    @Test
+    void myWaitingHolds_ShouldTakePositionsFromQueueIndex() {
+        // given
+        when(holdRepository.findByUserIdAndStatusOrderByCreatedAtAsc(1L, HoldStatus.WAITING))
+                .thenReturn(List.of(hold(500L, 10L, "Solaris"), hold(501L, 11L, "Eden")));
+        when(holdQueueIndex.position(10L, 500L)).thenReturn(4L);
+        when(holdQueueIndex.position(11L, 501L)).thenReturn(1L);
+
+        // when
+        List<HoldVm> holds = service.myWaitingHolds(1L);
+
+        // then
+        assertEquals(List.of(4L, 1L), holds.stream().map(HoldVm::position).toList());
+        assertEquals("Solaris", holds.get(0).title());
+    }
+
+    private static Hold hold(long id, long publicationId, String title) {
+        Publication publication = new Publication();
+        ReflectionTestUtils.setField(publication, "id", publicationId);
+        publication.setTitle(title);
+        Hold hold = new Hold();
+        ReflectionTestUtils.setField(hold, "id", id);
+        hold.setPublication(publication);
+        return hold;
+    }
+
+    private static HandOffRow handOffRow(long holdId, long userId, long reservationId) {
+        return new HandOffRow() {
+            public Long getHoldId() { return holdId; }
+            public Long getUserId() { return userId; }
+            public Long getReservationId() { return reservationId; }
+        };
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.neighborhood_library.service;
+
+import com.example.neighborhood_library.NeighborhoodLibraryApplication;
+import com.example.neighborhood_library.support.PgNotificationListener;
+import com.example.neighborhood_library.web.viewmodel.LibraryInfoVm;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Wymaga bazy z DB_INIT.SQL + DB_FUNCTIONS.SQL (jak NeighborhoodLibraryApplicationTestsIT).
+ * Dwa konteksty = dwa węzły: zmiana na jednym trafia do snapshotu drugiego przez NOTIFY w ciągu sekundy.
+ */
+class LibraryInfoServiceIT {
+
+    private ConfigurableApplicationContext nodeA;
+    private ConfigurableApplicationContext nodeB;
+    private LibraryInfoVm original;
+
+    @BeforeEach
+    void setUp() throws InterruptedException {
+        nodeA = startNode();
+        nodeB = startNode();
+        original = nodeA.getBean(LibraryInfoService.class).getInfo();
+        awaitListening(nodeB);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (original.version() > 0) {
+            nodeA.getBean(LibraryInfoService.class)
+                    .updateInfo(original.address(), original.openingHours(), original.rules());
+        }
+        nodeA.close();
+        nodeB.close();
+    }
+
+    @Test
+    void updateInfo_ShouldReachOtherNodeSnapshot_WithinASecond() throws InterruptedException {
+        LibraryInfoService serviceB = nodeB.getBean(LibraryInfoService.class);
+        serviceB.getInfo(); // snapshot B wczytany przed zmianą
+        String address = "ul. Testowa " + System.nanoTime();
+
+        nodeA.getBean(LibraryInfoService.class).updateInfo(address, "8-16", "Cisza");
+
+        long deadline = System.currentTimeMillis() + 1000;
+        while (!address.equals(serviceB.getInfo().address()) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(address, serviceB.getInfo().address());
+        assertEquals("8-16", serviceB.getInfo().openingHours());
+    }
+
+    private static void awaitListening(ConfigurableApplicationContext node) throws InterruptedException {
+        PgNotificationListener listener = node.getBean(PgNotificationListener.class);
+        for (int i = 0; i < 100 && !listener.isConnected(); i++) {
+            Thread.sleep(50);
+        }
+        assertTrue(listener.isConnected());
+    }
+
+    private static ConfigurableApplicationContext startNode() {
+        return new SpringApplicationBuilder(NeighborhoodLibraryApplication.class)
+                .properties(
+                        "server.port=0",
+                        "app.reservations.expiry-timer.enabled=false")
+                .run();
+    }
+}
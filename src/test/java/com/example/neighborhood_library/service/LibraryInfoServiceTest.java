@@ -2,44 +2,50 @@ package com.example.neighborhood_library.service;
 
 import com.example.neighborhood_library.domain.LibraryInfo;
 import com.example.neighborhood_library.repo.LibraryInfoRepository;
+import com.example.neighborhood_library.support.InvalidationType;
+import com.example.neighborhood_library.support.LibraryInfoChangedEvent;
+import com.example.neighborhood_library.web.viewmodel.LibraryInfoVm;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.test.util.ReflectionTestUtils;
 
 import java.util.Optional;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.mockito.Mockito.verify;
-import static org.mockito.Mockito.when;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
 class LibraryInfoServiceTest {
 
+    private static final long V1 = 1;
+    private static final long V2 = 2;
+
     @Mock
     private LibraryInfoRepository repository;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     @InjectMocks
     private LibraryInfoService service;
 
     @Test
     void getInfo_ShouldReturnExistingInfo_WhenPresent() {
         // given
-        LibraryInfo info = new LibraryInfo();
-        info.setAddress("Existing Address");
-        ReflectionTestUtils.setField(info, "id", (short) 1);
-
-        when(repository.findById(1L)).thenReturn(Optional.of(info));
+        when(repository.findById(1L)).thenReturn(Optional.of(info("Existing Address", V1)));
 
         // when
-        LibraryInfo result = service.getInfo();
+        LibraryInfoVm result = service.getInfo();
 
         // then
-        assertEquals("Existing Address", result.getAddress());
-        assertEquals((short) 1, result.getId());
+        assertEquals("Existing Address", result.address());
+        assertEquals(V1, result.version());
     }
 
     @Test
@@ -48,22 +54,34 @@ class LibraryInfoServiceTest {
         when(repository.findById(1L)).thenReturn(Optional.empty());
 
         // when
-        LibraryInfo result = service.getInfo();
+        LibraryInfoVm result = service.getInfo();
 
         // then
-        assertEquals("Brak danych", result.getAddress());
-        assertEquals("Brak danych", result.getOpeningHours());
-        assertEquals("Brak danych", result.getRules());
+        assertEquals("Brak danych", result.address());
+        assertEquals("Brak danych", result.openingHours());
+        assertEquals("Brak danych", result.rules());
     }
 
     @Test
-    void updateInfo_ShouldUpdateExistingRecord() {
+    void getInfo_ShouldServeSnapshot_WithoutQueryingAgain() {
         // given
-        LibraryInfo existing = new LibraryInfo();
-        existing.setAddress("Old");
-        ReflectionTestUtils.setField(existing, "id", (short) 1);
+        when(repository.findById(1L)).thenReturn(Optional.of(info("Address", V1)));
+
+        // when
+        LibraryInfoVm first = service.getInfo();
+        LibraryInfoVm second = service.getInfo();
+
+        // then
+        assertSame(first, second);
+        verify(repository, times(1)).findById(1L);
+    }
 
+    @Test
+    void updateInfo_ShouldUpdateExistingRecord() {
+        // given
+        LibraryInfo existing = info("Old", V1);
         when(repository.findById(1L)).thenReturn(Optional.of(existing));
+        when(repository.saveAndFlush(existing)).thenReturn(existing);
 
         // when
         service.updateInfo("New Address", "9-17", "No running");
@@ -72,23 +90,83 @@ class LibraryInfoServiceTest {
         assertEquals("New Address", existing.getAddress());
         assertEquals("9-17", existing.getOpeningHours());
         assertEquals("No running", existing.getRules());
-        verify(repository).save(existing);
+        verify(repository).saveAndFlush(existing);
+        verify(eventPublisher).publishEvent(any(LibraryInfoChangedEvent.class));
     }
 
     @Test
     void updateInfo_ShouldCreateNewRecord_WhenNoneExists() {
         // given
         when(repository.findById(1L)).thenReturn(Optional.empty());
+        when(repository.saveAndFlush(any(LibraryInfo.class))).thenAnswer(i -> i.getArgument(0));
 
         // when
         service.updateInfo("New Address", "9-17", "No running");
 
         // then
         ArgumentCaptor<LibraryInfo> captor = ArgumentCaptor.forClass(LibraryInfo.class);
-        verify(repository).save(captor.capture());
+        verify(repository).saveAndFlush(captor.capture());
 
         LibraryInfo saved = captor.getValue();
         assertEquals((short) 1, saved.getId()); // Musi wymusić ID=1
         assertEquals("New Address", saved.getAddress());
     }
+
+    @Test
+    void onLibraryInfoChanged_ShouldReplaceSnapshot_AndNeverGoBackToOlderVersion() {
+        // given
+        when(repository.findById(1L)).thenReturn(Optional.of(info("Old", V1)));
+        service.getInfo();
+
+        // when
+        service.onLibraryInfoChanged(new LibraryInfoChangedEvent(new LibraryInfoVm("New", "9-17", "-", V2)));
+        service.onLibraryInfoChanged(new LibraryInfoChangedEvent(new LibraryInfoVm("Stale", "9-17", "-", V1)));
+
+        // then
+        assertEquals("New", service.getInfo().address());
+    }
+
+    @Test
+    void invalidate_ShouldReload_WhenOtherNodeSavedNewerVersion() {
+        // given
+        when(repository.findById(1L)).thenReturn(Optional.of(info("Old", V1)), Optional.of(info("New", V2)));
+        service.getInfo();
+
+        // when
+        service.invalidate(InvalidationType.LIBRARY_INFO, null);
+
+        // then
+        assertEquals("New", service.getInfo().address());
+        verify(repository, times(2)).findById(1L);
+    }
+
+    @Test
+    void invalidate_ShouldKeepNewerSnapshot_WhenReloadReturnsOlderRow() {
+        // given - własna zmiana V2 już w pamięci, odczyt z repliki/opóźniony widzi jeszcze V1
+        service.onLibraryInfoChanged(new LibraryInfoChangedEvent(new LibraryInfoVm("New", "9-17", "-", V2)));
+        when(repository.findById(1L)).thenReturn(Optional.of(info("Old", V1)));
+
+        // when
+        service.invalidate(InvalidationType.LIBRARY_INFO, null);
+
+        // then
+        assertEquals("New", service.getInfo().address());
+    }
+
+    @Test
+    void invalidate_ShouldDoNothing_BeforeFirstRead() {
+        service.invalidate(InvalidationType.LIBRARY_INFO, null);
+
+        verifyNoInteractions(repository);
+    }
+
+    private static LibraryInfo info(String address, long version) {
+        LibraryInfo info = new LibraryInfo();
+        ReflectionTestUtils.setField(info, "id", (short) 1);
+        ReflectionTestUtils.setField(info, "version", version);
+        info.setAddress(address);
+        info.setOpeningHours("9-17");
+        info.setRules("-");
+        return info;
+    }
 }
@@ -3,12 +3,14 @@ package com.example.neighborhood_library.service;
 import com.example.neighborhood_library.domain.Message;
 import com.example.neighborhood_library.domain.User;
 import com.example.neighborhood_library.repo.MessageRepository;
+import com.example.neighborhood_library.support.MessagesChangedEvent;
 import com.example.neighborhood_library.support.NotFoundException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.test.util.ReflectionTestUtils;
 
 import java.time.Clock;
@@ -23,6 +25,7 @@ import static org.mockito.Mockito.*;
 class MessageServiceTest {
 
     @Mock private MessageRepository messageRepository;
+    @Mock private ApplicationEventPublisher eventPublisher;
 
     private final Instant fixedInstant = Instant.parse("2024-01-01T12:00:00Z");
     private final Clock fixedClock = Clock.fixed(fixedInstant, ZoneId.systemDefault());
@@ -31,7 +34,7 @@ class MessageServiceTest {
 
     @BeforeEach
     void setUp() {
-        service = new MessageService(messageRepository, fixedClock);
+        service = new MessageService(messageRepository, eventPublisher, fixedClock);
     }
 
     @Test
@@ -55,6 +58,7 @@ class MessageServiceTest {
         // then
         assertNotNull(msg.getReadAt());
         verify(messageRepository).save(msg);
+        verify(eventPublisher).publishEvent(MessagesChangedEvent.of(userId));
     }
 
     @Test
@@ -80,6 +84,7 @@ class MessageServiceTest {
         assertNotNull(msg.getReadAt(), "Musi oznaczyć jako przeczytane przed ukryciem");
         assertNotNull(msg.getHiddenAt(), "Musi ustawić flagę ukrycia");
         verify(messageRepository).save(msg);
+        verify(eventPublisher).publishEvent(MessagesChangedEvent.of(userId));
     }
 
     @Test
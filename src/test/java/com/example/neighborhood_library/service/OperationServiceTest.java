@@ -1,81 +1,143 @@
 package com.example.neighborhood_library.service;
 
 import com.example.neighborhood_library.domain.Copy;
-import com.example.neighborhood_library.domain.OperationHistory;
 import com.example.neighborhood_library.domain.User;
+import com.example.neighborhood_library.repo.NewOperation;
 import com.example.neighborhood_library.repo.OperationHistoryRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
-import static org.mockito.Mockito.verify;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
 class OperationServiceTest {
 
+    private static final Instant NOW = Instant.parse("2024-06-01T10:00:00Z");
+
     @Mock
     private OperationHistoryRepository historyRepository;
 
-    @InjectMocks
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
     private OperationService operationService;
 
+    @BeforeEach
+    void setUp() {
+        operationService = new OperationService(historyRepository, Clock.fixed(NOW, ZoneOffset.UTC), meterRegistry);
+    }
+
+    @AfterEach
+    void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        TransactionSynchronizationManager.unbindResourceIfPossible(operationService);
+    }
+
     @Test
-    void logAction_ShouldCreateAndSaveOperationHistory() {
+    void logAction_ShouldMapFieldsToEntry() {
         // given
-        User actor = new User(); // wykonujący akcję
-        User target = new User(); // cel akcji
-        String actionName = "TEST_ACTION";
+        User actor = user(1L); // wykonujący akcję
+        User target = user(2L); // cel akcji
         Copy copy = new Copy(); // powiązany egzemplarz
+        ReflectionTestUtils.setField(copy, "id", 30L);
 
-        // when
-        operationService.logAction(actor, target, actionName, copy);
+        // when - bez aktywnej transakcji zapis od razu
+        operationService.logAction(actor, target, "TEST_ACTION", copy);
 
         // then
-        ArgumentCaptor<OperationHistory> captor = ArgumentCaptor.forClass(OperationHistory.class);
-        verify(historyRepository).save(captor.capture());
+        assertEquals(List.of(new NewOperation(1L, 2L, "TEST_ACTION", 30L, NOW)), captureInsert());
+    }
 
-        OperationHistory savedEntry = captor.getValue();
+    @Test
+    void logAction_ShouldHandleNullOptionalFields() {
+        // when - target i copy mogą być null
+        operationService.logAction(user(1L), null, "SYSTEM_ACTION", null);
 
-        // Weryfikacja poprawności mapowania pól
-        assertEquals(actor, savedEntry.getActor());
-        assertEquals(target, savedEntry.getTargetUser());
+        // then
+        assertEquals(List.of(new NewOperation(1L, null, "SYSTEM_ACTION", null, NOW)), captureInsert());
+    }
 
-        // POPRAWKA: getAction() zamiast getActionType()
-        assertEquals(actionName, savedEntry.getAction());
-        assertEquals(copy, savedEntry.getCopy());
+    @Test
+    void logAction_ShouldWriteAllEntriesOfTransactionInOneInsert_BeforeCommit() {
+        // given
+        TransactionSynchronizationManager.initSynchronization();
 
-        // Timestamp jest ustawiany w @PrePersist (czyli przez JPA),
-        // ale w teście jednostkowym z Mockito metoda prePersist się nie wykona automatycznie.
-        // Konstruktor OperationHistory nie ustawia happenedAt.
-        // Dlatego w teście unitowym to pole będzie nullem tuż po stworzeniu obiektu przez "new".
-        assertNull(savedEntry.getHappenedAt(),
-                "W teście unitowym happenedAt jest null, bo @PrePersist nie działa poza kontenerem JPA");
+        // when
+        operationService.logAction(user(1L), user(2L), "USER_BANNED", null);
+        operationService.logAction(user(1L), null, "COPY_CREATED", null);
+
+        // then - nic przed commitem
+        verifyNoInteractions(historyRepository);
+        assertEquals(2, meterRegistry.get("library.operations_history.staged").gauge().value());
+
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        assertEquals(1, synchronizations.size());
+        synchronizations.get(0).beforeCommit(false);
+        synchronizations.get(0).afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+
+        List<NewOperation> written = captureInsert();
+        assertEquals(List.of("USER_BANNED", "COPY_CREATED"), written.stream().map(NewOperation::action).toList());
+        assertEquals(0, meterRegistry.get("library.operations_history.staged").gauge().value());
+        assertEquals(1, meterRegistry.get("library.operations_history.flush").timer().count());
+        assertEquals(2, meterRegistry.get("library.operations_history.batch_size").summary().totalAmount());
+        assertFalse(TransactionSynchronizationManager.hasResource(operationService));
     }
 
     @Test
-    void logAction_ShouldHandleNullOptionalFields() {
+    void logAction_ShouldWriteNothing_WhenTransactionRolledBack() {
         // given
-        User actor = new User();
-        String actionName = "SYSTEM_ACTION";
+        TransactionSynchronizationManager.initSynchronization();
+        operationService.logAction(user(1L), null, "COPY_DELETED", null);
 
         // when
-        // target i copy mogą być null
-        operationService.logAction(actor, null, actionName, null);
+        TransactionSynchronizationManager.getSynchronizations().get(0)
+                .afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
 
         // then
-        ArgumentCaptor<OperationHistory> captor = ArgumentCaptor.forClass(OperationHistory.class);
-        verify(historyRepository).save(captor.capture());
+        verifyNoInteractions(historyRepository);
+        assertEquals(0, meterRegistry.get("library.operations_history.staged").gauge().value());
+        assertFalse(TransactionSynchronizationManager.hasResource(operationService));
+    }
 
-        OperationHistory savedEntry = captor.getValue();
-        assertEquals(actor, savedEntry.getActor());
-        assertNull(savedEntry.getTargetUser());
+    @Test
+    void logAction_ShouldFailCommit_WhenInsertFails() {
+        // given - wyjątek z beforeCommit wycofuje transakcję biznesową
+        TransactionSynchronizationManager.initSynchronization();
+        operationService.logAction(user(1L), null, "LOAN_CREATED", null);
+        doThrow(new IllegalStateException("db down")).when(historyRepository).insertBatch(any());
+
+        // when & then
+        assertThrows(IllegalStateException.class, () ->
+                TransactionSynchronizationManager.getSynchronizations().get(0).beforeCommit(false));
+    }
 
+    @SuppressWarnings("unchecked")
+    private List<NewOperation> captureInsert() {
+        ArgumentCaptor<List<NewOperation>> captor = ArgumentCaptor.forClass(List.class);
+        verify(historyRepository).insertBatch(captor.capture());
+        return captor.getValue();
+    }
 
-        assertEquals(actionName, savedEntry.getAction());
-        assertNull(savedEntry.getCopy());
+    private static User user(long id) {
+        User user = new User();
+        ReflectionTestUtils.setField(user, "id", id);
+        return user;
     }
 }
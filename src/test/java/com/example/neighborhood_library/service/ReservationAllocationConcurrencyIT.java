@@ -0,0 +1,175 @@
+package com.example.neighborhood_library.service;
+
+import com.example.neighborhood_library.domain.Reservation;
+import com.example.neighborhood_library.support.ReservationBlockedException;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Wymaga bazy z DB_INIT.SQL + DB_FUNCTIONS.SQL (jak NeighborhoodLibraryApplicationTestsIT).
+ * Setki równoległych rezerwacji jednego tytułu: każdy egzemplarz przydzielony dokładnie raz,
+ * a nadmiarowe żądania dostają odmowę. Osobno: rezerwacja, której transakcja po przydziale egzemplarza
+ * jest jeszcze otwarta (trzyma swój egzemplarz i swoją deltę liczników), nie blokuje kolejnej rezerwacji tytułu.
+ */
+@SpringBootTest
+@TestPropertySource(properties = "app.reservations.copy-allocation=SKIP_LOCKED")
+class ReservationAllocationConcurrencyIT {
+
+    private static final Logger log = LoggerFactory.getLogger(ReservationAllocationConcurrencyIT.class);
+
+    private static final int COPIES = 40;
+    private static final int REQUESTS = 300;
+    private static final int THREADS = 32;
+
+    @Autowired private ReservationService reservationService;
+    @Autowired private JdbcTemplate jdbc;
+    @Autowired private PlatformTransactionManager transactionManager;
+    @Autowired private EntityManager entityManager;
+
+    private final String tag = "it-alloc-" + System.nanoTime();
+    private long categoryId;
+    private long publicationId;
+    private final List<Long> userIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        categoryId = jdbc.queryForObject(
+                "insert into categories(name) values (?) returning id", Long.class, tag);
+        publicationId = jdbc.queryForObject(
+                "insert into publications(kind, title, category_id) values ('BOOK', ?, ?) returning id",
+                Long.class, tag, categoryId);
+        for (int i = 0; i < COPIES; i++) {
+            jdbc.update("insert into copies(publication_id, inventory_code) values (?, ?)",
+                    publicationId, tag + "-" + i);
+        }
+        for (int i = 0; i < REQUESTS; i++) {
+            userIds.add(jdbc.queryForObject("""
+                    insert into users(first_name, last_name, login, password_hash, phone, address, status)
+                    values ('Test', 'Test', ?, 'x', '000', '-', 'ACTIVE') returning id
+                    """, Long.class, tag + "-" + i));
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbc.update("delete from operations_history where copy_id in (select id from copies where publication_id = ?)",
+                publicationId);
+        jdbc.update("delete from reservations where copy_id in (select id from copies where publication_id = ?)",
+                publicationId);
+        jdbc.update("delete from copies where publication_id = ?", publicationId);
+        jdbc.update("delete from publications where id = ?", publicationId);
+        jdbc.update("delete from categories where id = ?", categoryId);
+        jdbc.update("delete from users where login like ?", tag + "-%");
+    }
+
+    @Test
+    void parallelReservations_ShouldAllocateEachCopyOnce() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        Set<Long> allocated = ConcurrentHashMap.newKeySet();
+        AtomicInteger duplicates = new AtomicInteger();
+        AtomicInteger refused = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (Long userId : userIds) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                try {
+                    Reservation r = reservationService.reservePublication(publicationId, userId);
+                    if (!allocated.add(r.getCopy().getId())) duplicates.incrementAndGet();
+                } catch (ReservationBlockedException ex) {
+                    refused.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Future<?> f : futures) {
+            f.get(60, TimeUnit.SECONDS); // inny wyjątek niż odmowa = błąd testu
+        }
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+        pool.shutdown();
+
+        assertEquals(0, duplicates.get());
+        assertEquals(COPIES, allocated.size());
+        assertEquals(REQUESTS - COPIES, refused.get());
+        assertEquals(COPIES, jdbc.queryForObject("""
+                select count(distinct r.copy_id) from reservations r
+                join copies c on c.id = r.copy_id
+                where c.publication_id = ? and r.status = 'ACTIVE'
+                """, Integer.class, publicationId));
+        assertEquals(0, jdbc.queryForObject(
+                "select available from publication_availability_live where publication_id = ?",
+                Integer.class, publicationId));
+
+        log.info("SKIP_LOCKED: {} reservations in {} ms ({}/s)",
+                REQUESTS, elapsedMs, Math.round(REQUESTS * 1000.0 / Math.max(elapsedMs, 1)));
+    }
+
+    @Test
+    void reservation_ShouldCommit_WhileAnotherReservationOfTitleIsStillOpen() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        CountDownLatch allocated = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            // A: przydziela egzemplarz, zapisuje (trigger copies -> delta liczników) i trzyma transakcję otwartą
+            Future<Long> first = pool.submit(() -> tx.execute(status -> {
+                Reservation r = reservationService.reservePublication(publicationId, userIds.get(0));
+                entityManager.flush();
+                assertEquals(1, jdbc.queryForObject("""
+                        select count(*) from publication_availability_delta
+                        where publication_id = ? and tx_id = txid_current()
+                        """, Integer.class, publicationId));
+                allocated.countDown();
+                try {
+                    assertTrue(release.await(60, TimeUnit.SECONDS));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException(e);
+                }
+                return r.getCopy().getId();
+            }));
+            assertTrue(allocated.await(30, TimeUnit.SECONDS), "Pierwsza rezerwacja nie przydzieliła egzemplarza");
+
+            // B: ten sam tytuł, inny użytkownik - musi się zatwierdzić, zanim A skończy
+            Future<Long> second = pool.submit(() -> tx.execute(status ->
+                    reservationService.reservePublication(publicationId, userIds.get(1)).getCopy().getId()));
+            Long secondCopy = second.get(10, TimeUnit.SECONDS); // TimeoutException = B czeka na blokadę A
+            assertFalse(first.isDone());
+            assertEquals(COPIES - 1, jdbc.queryForObject(
+                    "select available from publication_availability_live where publication_id = ?",
+                    Integer.class, publicationId));
+
+            release.countDown();
+            Long firstCopy = first.get(30, TimeUnit.SECONDS);
+            assertNotEquals(firstCopy, secondCopy);
+            assertEquals(COPIES - 2, jdbc.queryForObject(
+                    "select available from publication_availability_live where publication_id = ?",
+                    Integer.class, publicationId));
+        } finally {
+            release.countDown();
+            pool.shutdownNow();
+        }
+    }
+}
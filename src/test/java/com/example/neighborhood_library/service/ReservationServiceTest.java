@@ -2,16 +2,26 @@ package com.example.neighborhood_library.service;
 
 import com.example.neighborhood_library.domain.*;
 import com.example.neighborhood_library.repo.CopyRepository;
+import com.example.neighborhood_library.repo.PublicationAvailabilityRepository;
 import com.example.neighborhood_library.repo.ReservationRepository;
+import com.example.neighborhood_library.repo.UserCirculationRepository;
 import com.example.neighborhood_library.repo.UserRepository;
 import com.example.neighborhood_library.support.NotFoundException;
+import com.example.neighborhood_library.support.CopyReleasedEvent;
+import com.example.neighborhood_library.support.PublicationChangedEvent;
+import com.example.neighborhood_library.support.AccountNotActiveException;
+import com.example.neighborhood_library.support.CirculationLimitExceededException;
 import com.example.neighborhood_library.support.ReservationBlockedException;
+import com.example.neighborhood_library.support.ReservationClosedEvent;
+import com.example.neighborhood_library.support.ReservationCreatedEvent;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.time.Clock;
 import java.time.Instant;
@@ -29,6 +39,9 @@ class ReservationServiceTest {
     @Mock private CopyRepository copyRepository;
     @Mock private UserRepository userRepository;
     @Mock private OperationService operationService;
+    @Mock private PublicationAvailabilityRepository publicationAvailabilityRepository;
+    @Mock private UserCirculationRepository userCirculationRepository;
+    @Mock private ApplicationEventPublisher eventPublisher;
 
     private final Instant fixedInstant = Instant.parse("2024-06-01T10:00:00Z");
     private final Clock fixedClock = Clock.fixed(fixedInstant, ZoneId.systemDefault());
@@ -42,10 +55,28 @@ class ReservationServiceTest {
                 copyRepository,
                 userRepository,
                 fixedClock,
-                operationService
+                operationService,
+                publicationAvailabilityRepository,
+                userCirculationRepository,
+                eventPublisher,
+                CopyAllocationMode.SKIP_LOCKED
         );
     }
 
+    // --- Can Reserve ---
+
+    @Test
+    void canReserve_ShouldReadAvailabilityCounters() {
+        when(publicationAvailabilityRepository.hasAvailableCopy(100L)).thenReturn(true);
+        when(publicationAvailabilityRepository.hasAvailableCopy(101L)).thenReturn(false);
+
+        assertTrue(service.canReserve(100L));
+        assertFalse(service.canReserve(101L));
+        // brak wiersza liczników
+        assertFalse(service.canReserve(102L));
+        verifyNoInteractions(copyRepository);
+    }
+
     // --- Reserve Publication ---
 
     @Test
@@ -54,15 +85,15 @@ class ReservationServiceTest {
         Long pubId = 100L;
         Long userId = 1L;
 
-        Copy availableCopy = new Copy();
+        Copy availableCopy = copyOfPublication(pubId);
         User user = new User();
 
-        when(copyRepository.findFirstByPublicationIdAndStatusOrderByIdAsc(pubId, CopyStatus.AVAILABLE))
+        when(copyRepository.lockFirstAvailableCopy(pubId))
                 .thenReturn(Optional.of(availableCopy));
         when(userRepository.findById(userId)).thenReturn(Optional.of(user));
 
         // Mock save returning object
-        when(reservationRepository.save(any(Reservation.class))).thenAnswer(i -> i.getArgument(0));
+        when(reservationRepository.save(any(Reservation.class))).thenAnswer(i -> withId(i.getArgument(0), 900L));
 
         // when
         Reservation result = service.reservePublication(pubId, userId);
@@ -72,6 +103,8 @@ class ReservationServiceTest {
         assertEquals(user, result.getUser());
         assertEquals(availableCopy, result.getCopy());
         assertEquals(ReservationStatus.ACTIVE, result.getStatus());
+        verify(eventPublisher).publishEvent(new PublicationChangedEvent(pubId));
+        verify(eventPublisher).publishEvent(new ReservationCreatedEvent(900L, result.getPickupUntil()));
 
         // Check dates from clock
         assertNotNull(result.getReservedAt());
@@ -81,13 +114,33 @@ class ReservationServiceTest {
         verify(operationService).logAction(user, user, "RESERVATION_CREATED", availableCopy);
     }
 
+    @Test
+    void reservePublication_ShouldWaitForFirstCopyLock_WhenAllocationIsBlocking() {
+        // given
+        service = new ReservationService(reservationRepository, copyRepository, userRepository, fixedClock,
+                operationService, publicationAvailabilityRepository, userCirculationRepository, eventPublisher,
+                CopyAllocationMode.BLOCKING);
+        Copy copy = copyOfPublication(100L);
+        when(copyRepository.findFirstByPublicationIdAndStatusOrderByIdAsc(100L, CopyStatus.AVAILABLE))
+                .thenReturn(Optional.of(copy));
+        when(userRepository.findById(1L)).thenReturn(Optional.of(new User()));
+        when(reservationRepository.save(any(Reservation.class))).thenAnswer(i -> withId(i.getArgument(0), 900L));
+
+        // when
+        Reservation result = service.reservePublication(100L, 1L);
+
+        // then
+        assertEquals(copy, result.getCopy());
+        verify(copyRepository, never()).lockFirstAvailableCopy(any());
+    }
+
     @Test
     void reservePublication_ShouldThrowException_WhenNoCopyAvailable() {
         // given
         Long pubId = 100L;
         Long userId = 1L;
 
-        when(copyRepository.findFirstByPublicationIdAndStatusOrderByIdAsc(pubId, CopyStatus.AVAILABLE))
+        when(copyRepository.lockFirstAvailableCopy(pubId))
                 .thenReturn(Optional.empty());
 
         // when & then
@@ -107,12 +160,12 @@ class ReservationServiceTest {
         Copy copy = new Copy();
         User user = new User();
 
-        when(copyRepository.findFirstByPublicationIdAndStatusOrderByIdAsc(pubId, CopyStatus.AVAILABLE))
+        when(copyRepository.lockFirstAvailableCopy(pubId))
                 .thenReturn(Optional.of(copy));
         when(userRepository.findById(userId)).thenReturn(Optional.of(user));
 
         // Simulate DB trigger exception
-        doThrow(new DataIntegrityViolationException("bla bla limit exceeded bla"))
+        doThrow(new CirculationLimitExceededException("limit", null))
                 .when(reservationRepository).save(any(Reservation.class));
 
         // when & then
@@ -127,11 +180,11 @@ class ReservationServiceTest {
         // given
         Long pubId = 100L;
         Long userId = 1L;
-        when(copyRepository.findFirstByPublicationIdAndStatusOrderByIdAsc(pubId, CopyStatus.AVAILABLE))
+        when(copyRepository.lockFirstAvailableCopy(pubId))
                 .thenReturn(Optional.of(new Copy()));
         when(userRepository.findById(userId)).thenReturn(Optional.of(new User()));
 
-        doThrow(new DataIntegrityViolationException("User is not active"))
+        doThrow(new AccountNotActiveException("not active", null))
                 .when(reservationRepository).save(any());
 
         // when & then
@@ -141,6 +194,36 @@ class ReservationServiceTest {
         assertTrue(ex.getMessage().contains("nie jest aktywne"));
     }
 
+    @Test
+    void reservePublication_ShouldRejectWithoutLockingCopy_WhenLimitIsAlreadyReached() {
+        // given
+        when(userCirculationRepository.isAtLimit(1L)).thenReturn(true);
+
+        // when & then
+        ReservationBlockedException ex = assertThrows(ReservationBlockedException.class, () ->
+                service.reservePublication(100L, 1L)
+        );
+        assertTrue(ex.getMessage().contains("Limit przekroczony"));
+        verifyNoInteractions(copyRepository);
+        verify(reservationRepository, never()).save(any());
+    }
+
+    @Test
+    void reservePublication_ShouldReportGenericFailure_ForOtherDatabaseErrors() {
+        // given
+        when(copyRepository.lockFirstAvailableCopy(100L)).thenReturn(Optional.of(copyOfPublication(100L)));
+        when(userRepository.findById(1L)).thenReturn(Optional.of(new User()));
+        // treść komunikatu nie ma już znaczenia - liczy się typ wyjątku
+        doThrow(new DataIntegrityViolationException("limit exceeded"))
+                .when(reservationRepository).save(any());
+
+        // when & then
+        ReservationBlockedException ex = assertThrows(ReservationBlockedException.class, () ->
+                service.reservePublication(100L, 1L)
+        );
+        assertEquals("Nie udało się utworzyć rezerwacji.", ex.getMessage());
+    }
+
     // --- Cancel By User ---
 
     @Test
@@ -149,10 +232,10 @@ class ReservationServiceTest {
         Long resId = 55L;
         Long userId = 1L;
         User user = new User();
-        Reservation r = new Reservation();
+        Reservation r = withId(new Reservation(), resId);
         r.setStatus(ReservationStatus.ACTIVE);
         r.setUser(user);
-        r.setCopy(new Copy());
+        r.setCopy(copyOfPublication(7L));
 
         when(reservationRepository.findByIdAndUserId(resId, userId)).thenReturn(Optional.of(r));
 
@@ -162,8 +245,10 @@ class ReservationServiceTest {
         // then
         assertEquals(ReservationStatus.CANCELLED_BY_USER, r.getStatus());
         assertNotNull(r.getCancelledAt());
-        verify(reservationRepository).save(r);
+        verify(reservationRepository).saveAndFlush(r);
         verify(operationService).logAction(user, user, "RESERVATION_CANCELLED", r.getCopy());
+        verify(eventPublisher).publishEvent(new CopyReleasedEvent(70L));
+        verify(eventPublisher).publishEvent(new ReservationClosedEvent(resId));
     }
 
     @Test
@@ -195,4 +280,18 @@ class ReservationServiceTest {
         // when & then
         assertThrows(NotFoundException.class, () -> service.cancelByUser(resId, userId));
     }
+
+    private static Reservation withId(Reservation reservation, long id) {
+        ReflectionTestUtils.setField(reservation, "id", id);
+        return reservation;
+    }
+
+    private static Copy copyOfPublication(long publicationId) {
+        Publication publication = new Publication();
+        ReflectionTestUtils.setField(publication, "id", publicationId);
+        Copy copy = new Copy();
+        ReflectionTestUtils.setField(copy, "id", publicationId * 10);
+        copy.setPublication(publication);
+        return copy;
+    }
 }
@@ -0,0 +1,49 @@
+package com.example.neighborhood_library.service;
+
+import com.example.neighborhood_library.config.CacheConfig;
+import com.example.neighborhood_library.support.MessagesChangedEvent;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UnreadMessagesCacheEvictionListenerTest {
+
+    private final CacheManager cacheManager = new ConcurrentMapCacheManager(CacheConfig.UNREAD_MESSAGES);
+    private final UnreadMessagesCacheEvictionListener listener = new UnreadMessagesCacheEvictionListener(cacheManager);
+    private final Cache cache = cacheManager.getCache(CacheConfig.UNREAD_MESSAGES);
+
+    @Test
+    void onMessagesChanged_ShouldEvictOnlyRecipients() {
+        // given
+        cache.put(1L, 3L);
+        cache.put(2L, 0L);
+        cache.put(3L, 5L);
+
+        // when
+        listener.onMessagesChanged(new MessagesChangedEvent(Set.of(1L, 3L)));
+
+        // then
+        assertNull(cache.get(1L));
+        assertNull(cache.get(3L));
+        assertNotNull(cache.get(2L));
+    }
+
+    @Test
+    void onMessagesChanged_ShouldClearCache_ForBulkInsert() {
+        // given
+        cache.put(1L, 3L);
+        cache.put(2L, 0L);
+
+        // when
+        listener.onMessagesChanged(MessagesChangedEvent.allUsers());
+
+        // then
+        assertNull(cache.get(1L));
+        assertNull(cache.get(2L));
+    }
+}
@@ -1,7 +1,6 @@
 package com.example.neighborhood_library.service;
 
 import com.example.neighborhood_library.domain.*;
-import com.example.neighborhood_library.repo.MessageRepository;
 import com.example.neighborhood_library.repo.UserRepository;
 import com.example.neighborhood_library.web.dto.EditProfileForm;
 import org.junit.jupiter.api.Test;
@@ -21,7 +20,7 @@ import static org.mockito.Mockito.*;
 class UserAdminServiceTest {
 
     @Mock private UserRepository userRepository;
-    @Mock private MessageRepository messageRepository;
+    @Mock private MessageOutbox messageOutbox;
     @Mock private CurrentUserService currentUserService;
     @Mock private OperationService operationService;
 
@@ -38,7 +37,7 @@ class UserAdminServiceTest {
         user.setStatus(UserStatus.INACTIVE);
 
         when(userRepository.findById(userId)).thenReturn(Optional.of(user));
-        when(currentUserService.requireCurrentUser()).thenReturn(new User());
+        when(currentUserService.currentUserReference()).thenReturn(new User());
 
         // when
         service.activateUser(userId);
@@ -65,7 +64,8 @@ class UserAdminServiceTest {
         target.setAccountRole(AccountRole.USER);
         target.setStatus(UserStatus.ACTIVE);
 
-        when(currentUserService.requireCurrentUser()).thenReturn(admin);
+        when(currentUserService.requireCurrentUserId()).thenReturn(adminId);
+        when(currentUserService.currentUserReference()).thenReturn(admin);
         when(userRepository.findById(targetId)).thenReturn(Optional.of(target));
 
         // when
@@ -76,7 +76,7 @@ class UserAdminServiceTest {
         verify(userRepository).save(target);
 
         // Weryfikacja wysłania wiadomości
-        verify(messageRepository).save(any(Message.class));
+        verify(messageOutbox).enqueue(eq(target), eq(MessageType.ACCOUNT_BANNED), any());
 
         // Weryfikacja logu
         verify(operationService).logAction(admin, target, "USER_BANNED", null);
@@ -89,7 +89,7 @@ class UserAdminServiceTest {
         User admin = new User();
         ReflectionTestUtils.setField(admin, "id", adminId);
 
-        when(currentUserService.requireCurrentUser()).thenReturn(admin);
+        when(currentUserService.requireCurrentUserId()).thenReturn(adminId);
 
         // when & then
         IllegalArgumentException ex = assertThrows(IllegalArgumentException.class, () ->
@@ -113,7 +113,7 @@ class UserAdminServiceTest {
         ReflectionTestUtils.setField(targetAdmin, "id", targetId);
         targetAdmin.setAccountRole(AccountRole.ADMIN); // TARGET IS ADMIN
 
-        when(currentUserService.requireCurrentUser()).thenReturn(admin);
+        when(currentUserService.requireCurrentUserId()).thenReturn(adminId);
         when(userRepository.findById(targetId)).thenReturn(Optional.of(targetAdmin));
 
         // when & then
@@ -134,7 +134,7 @@ class UserAdminServiceTest {
         User target = new User();
         target.setStatus(UserStatus.BANNED);
 
-        when(currentUserService.requireCurrentUser()).thenReturn(new User());
+        when(currentUserService.currentUserReference()).thenReturn(new User());
         when(userRepository.findById(targetId)).thenReturn(Optional.of(target));
 
         // when
@@ -143,7 +143,7 @@ class UserAdminServiceTest {
         // then
         assertEquals(UserStatus.ACTIVE, target.getStatus());
         verify(userRepository).save(target);
-        verify(messageRepository).save(any(Message.class));
+        verify(messageOutbox).enqueue(eq(target), eq(MessageType.ACCOUNT_UNBANNED), any());
     }
 
     // --- Update User ---
@@ -162,7 +162,7 @@ class UserAdminServiceTest {
         form.setAddress("Street");
 
         when(userRepository.findById(targetId)).thenReturn(Optional.of(target));
-        when(currentUserService.requireCurrentUser()).thenReturn(new User());
+        when(currentUserService.currentUserReference()).thenReturn(new User());
 
         // when
         service.updateUser(targetId, form);
@@ -0,0 +1,69 @@
+package com.example.neighborhood_library.support;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BackgroundRebuildTest {
+
+    @Test
+    void request_ShouldCoalesceRequests_MadeDuringRun_IntoOneMoreRun() throws Exception {
+        // given: pierwszy bieg wisi, aż go zwolnimy
+        AtomicInteger runs = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch twoRuns = new CountDownLatch(2);
+        try (BackgroundRebuild rebuild = new BackgroundRebuild("test-rebuild", () -> {
+            if (runs.incrementAndGet() == 1) {
+                started.countDown();
+                await(release);
+            }
+            twoRuns.countDown();
+        })) {
+            rebuild.request();
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            // when
+            rebuild.request();
+            rebuild.request();
+            rebuild.request();
+            release.countDown();
+
+            // then
+            assertTrue(twoRuns.await(5, TimeUnit.SECONDS));
+            Thread.sleep(100);
+            assertEquals(2, runs.get());
+        }
+    }
+
+    @Test
+    void request_ShouldKeepWorking_AfterFailedRun() throws Exception {
+        // given
+        CountDownLatch secondRun = new CountDownLatch(1);
+        AtomicInteger runs = new AtomicInteger();
+        try (BackgroundRebuild rebuild = new BackgroundRebuild("test-rebuild", () -> {
+            if (runs.incrementAndGet() == 1) throw new IllegalStateException("boom");
+            secondRun.countDown();
+        })) {
+            // when
+            rebuild.request();
+            while (runs.get() == 0) Thread.sleep(10);
+            rebuild.request();
+
+            // then
+            assertTrue(secondRun.await(5, TimeUnit.SECONDS));
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package com.example.neighborhood_library.support;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CacheInvalidationBusTest {
+
+    // 2024-06-01T10:00:00Z w mikrosekundach
+    private static final long NOW_MICROS = 1_717_236_000_000_000L;
+
+    @Mock private JdbcTemplate jdbcTemplate;
+    @Mock private ObjectProvider<LocalCacheInvalidator> invalidators;
+    @Mock private ObjectProvider<PgNotificationListener> listener;
+    @Mock private LocalCacheInvalidator catalog;
+    @Mock private LocalCacheInvalidator libraryInfo;
+
+    private final Clock fixedClock = Clock.fixed(Instant.parse("2024-06-01T10:00:00Z"), ZoneOffset.UTC);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private CacheInvalidationBus bus;
+
+    @BeforeEach
+    void setUp() {
+        bus = new CacheInvalidationBus(jdbcTemplate, invalidators, listener, fixedClock, meterRegistry);
+    }
+
+    @AfterEach
+    void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        TransactionSynchronizationManager.unbindResourceIfPossible(bus);
+    }
+
+    @Test
+    void onNotification_ShouldInvalidateOnlyMatchingCaches_AndRecordLag() {
+        // given
+        registered();
+
+        // when - wysłane 250 ms temu
+        bus.onNotification("PUBLICATION:42:" + (NOW_MICROS - 250_000));
+
+        // then
+        verify(catalog).invalidate(InvalidationType.PUBLICATION, 42L);
+        verify(libraryInfo, never()).invalidate(any(), any());
+        var lag = meterRegistry.get("library.cache.invalidation.lag").timer();
+        assertEquals(1, lag.count());
+        assertEquals(250, lag.totalTime(TimeUnit.MILLISECONDS), 0.001);
+    }
+
+    @Test
+    void onNotification_ShouldPassNullId_ForWholeType() {
+        // given
+        registered();
+
+        // when
+        bus.onNotification("LIBRARY_INFO:*:" + NOW_MICROS);
+
+        // then
+        verify(libraryInfo).invalidate(InvalidationType.LIBRARY_INFO, null);
+        verify(catalog, never()).invalidate(any(), any());
+    }
+
+    @Test
+    void onNotification_ShouldContinue_WhenOneInvalidatorFails() {
+        // given
+        LocalCacheInvalidator other = mock(LocalCacheInvalidator.class);
+        when(other.invalidationTypes()).thenReturn(EnumSet.of(InvalidationType.PUBLICATION));
+        when(catalog.invalidationTypes()).thenReturn(EnumSet.of(InvalidationType.PUBLICATION));
+        doThrow(new IllegalStateException("boom")).when(catalog).invalidate(any(), any());
+        when(invalidators.orderedStream()).thenAnswer(i -> List.of(catalog, other).stream());
+
+        // when
+        bus.onNotification("PUBLICATION:1:" + NOW_MICROS);
+
+        // then
+        verify(other).invalidate(InvalidationType.PUBLICATION, 1L);
+    }
+
+    @Test
+    void onNotification_ShouldIgnoreMalformedPayload() {
+        bus.onNotification("garbage");
+
+        verifyNoInteractions(invalidators);
+    }
+
+    @Test
+    void onReconnect_ShouldInvalidateEverything() {
+        // given
+        registered();
+
+        // when
+        bus.onReconnect();
+
+        // then
+        verify(catalog).invalidate(InvalidationType.PUBLICATION, null);
+        verify(catalog).invalidate(InvalidationType.CATALOG, null);
+        verify(libraryInfo).invalidate(InvalidationType.LIBRARY_INFO, null);
+    }
+
+    @Test
+    void publish_ShouldNotifyImmediately_WithoutTransaction() {
+        bus.publish(InvalidationType.CATALOG_CATEGORIES, null);
+
+        verify(jdbcTemplate).query(eq("select pg_notify(?, ?)"), any(ResultSetExtractor.class),
+                eq("cache_invalidation"), eq("CATALOG_CATEGORIES:*:" + NOW_MICROS));
+    }
+
+    @Test
+    void publish_ShouldSendOncePerKey_BeforeCommit() {
+        // given
+        TransactionSynchronizationManager.initSynchronization();
+
+        // when
+        bus.publish(InvalidationType.PUBLICATION, 7L);
+        bus.publish(InvalidationType.PUBLICATION, 7L);
+        bus.publish(InvalidationType.PUBLICATION, 8L);
+
+        // then - nic przed commitem
+        verifyNoInteractions(jdbcTemplate);
+
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        assertEquals(1, synchronizations.size());
+        synchronizations.get(0).beforeCommit(false);
+        synchronizations.get(0).afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+
+        verify(jdbcTemplate).query(anyString(), any(ResultSetExtractor.class),
+                eq("cache_invalidation"), eq("PUBLICATION:7:" + NOW_MICROS));
+        verify(jdbcTemplate).query(anyString(), any(ResultSetExtractor.class),
+                eq("cache_invalidation"), eq("PUBLICATION:8:" + NOW_MICROS));
+        verifyNoMoreInteractions(jdbcTemplate);
+        assertFalse(TransactionSynchronizationManager.hasResource(bus));
+    }
+
+    @Test
+    void publish_ShouldSendNothing_WhenTransactionRolledBack() {
+        // given
+        TransactionSynchronizationManager.initSynchronization();
+        bus.publish(InvalidationType.PUBLICATION, 7L);
+
+        // when
+        TransactionSynchronizationManager.getSynchronizations().get(0)
+                .afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        // then
+        verifyNoInteractions(jdbcTemplate);
+        assertFalse(TransactionSynchronizationManager.hasResource(bus));
+    }
+
+    @Test
+    void onPublicationChanged_ShouldPublishThatPublication() {
+        bus.onPublicationChanged(new PublicationChangedEvent(5L));
+
+        verify(jdbcTemplate).query(anyString(), any(ResultSetExtractor.class),
+                eq("cache_invalidation"), eq("PUBLICATION:5:" + NOW_MICROS));
+    }
+
+    @Test
+    void onPublicationEntryChanged_ShouldPublishThatEntry() {
+        bus.onPublicationEntryChanged(new PublicationEntryChangedEvent(5L));
+
+        verify(jdbcTemplate).query(anyString(), any(ResultSetExtractor.class),
+                eq("cache_invalidation"), eq("PUBLICATION_ENTRY:5:" + NOW_MICROS));
+    }
+
+    @Test
+    void onHoldQueueChanged_ShouldPublishThatHold() {
+        bus.onHoldQueueChanged(new HoldQueueChangedEvent(9L));
+
+        verify(jdbcTemplate).query(anyString(), any(ResultSetExtractor.class),
+                eq("cache_invalidation"), eq("HOLD:9:" + NOW_MICROS));
+    }
+
+    @Test
+    void onCategoryRenamed_ShouldPublishWholeCatalog() {
+        bus.onCategoryRenamed(new CategoryRenamedEvent(3L));
+
+        verify(jdbcTemplate).query(anyString(), any(ResultSetExtractor.class),
+                eq("cache_invalidation"), eq("CATALOG:*:" + NOW_MICROS));
+    }
+
+    private void registered() {
+        lenient().when(catalog.invalidationTypes()).thenReturn(EnumSet.of(
+                InvalidationType.PUBLICATION, InvalidationType.CATALOG, InvalidationType.CATALOG_CATEGORIES));
+        lenient().when(libraryInfo.invalidationTypes()).thenReturn(EnumSet.of(InvalidationType.LIBRARY_INFO));
+        when(invalidators.orderedStream()).thenAnswer(i -> List.of(catalog, libraryInfo).stream());
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.neighborhood_library.support;
+
+import com.example.neighborhood_library.NeighborhoodLibraryApplication;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Wymaga bazy z DB_INIT.SQL + DB_FUNCTIONS.SQL (jak NeighborhoodLibraryApplicationTestsIT).
+ * Dwa konteksty aplikacji = dwa węzły na jednej bazie: zadanie wykonuje dokładnie jeden z nich.
+ */
+class JobCoordinatorIT {
+
+    private final ScheduledJob job = new ScheduledJob("it-job-" + System.nanoTime(), 1000);
+
+    private ConfigurableApplicationContext nodeA;
+    private ConfigurableApplicationContext nodeB;
+
+    @BeforeEach
+    void setUp() {
+        nodeA = startNode("node-a");
+        nodeB = startNode("node-b");
+    }
+
+    @AfterEach
+    void tearDown() {
+        nodeA.getBean(JdbcTemplate.class).update("delete from scheduled_job_runs where job_name = ?", job.name());
+        nodeA.close();
+        nodeB.close();
+    }
+
+    @Test
+    void runExclusively_ShouldRunJobOnOneNodeOnly_WhenBothFireTogether() throws Exception {
+        JobCoordinator coordinatorA = nodeA.getBean(JobCoordinator.class);
+        JobCoordinator coordinatorB = nodeB.getBean(JobCoordinator.class);
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger executions = new AtomicInteger();
+        Runnable task = () -> {
+            executions.incrementAndGet();
+            running.countDown();
+            await(release);
+        };
+
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            Future<Boolean> first = pool.submit(() -> coordinatorA.runExclusively(job, task));
+            assertTrue(running.await(10, TimeUnit.SECONDS));
+
+            // węzeł B w trakcie przebiegu A: pomija, nie czeka
+            assertFalse(coordinatorB.runExclusively(job, task));
+
+            release.countDown();
+            assertTrue(first.get(10, TimeUnit.SECONDS));
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(1, executions.get());
+
+        Map<String, Object> run = nodeB.getBean(JdbcTemplate.class)
+                .queryForMap("select node, outcome, run_count, duration_ms from scheduled_job_runs where job_name = ?",
+                        job.name());
+        assertEquals("node-a", run.get("node"));
+        assertEquals("SUCCEEDED", run.get("outcome"));
+        assertEquals(1L, ((Number) run.get("run_count")).longValue());
+        assertNotNull(run.get("duration_ms"));
+
+        // po zwolnieniu blokady drugi węzeł może przejąć zadanie
+        assertTrue(coordinatorB.runExclusively(job, () -> {}));
+    }
+
+    @Test
+    void runOncePerDay_ShouldRunOnce_WhenSecondNodeFiresAfterFirstFinished() {
+        AtomicInteger executions = new AtomicInteger();
+
+        assertTrue(nodeA.getBean(JobCoordinator.class).runOncePerDay(job, executions::incrementAndGet));
+        // cron węzła B spóźniony (rozjechany zegar) - blokada już wolna, ale dzień zamknięty
+        assertFalse(nodeB.getBean(JobCoordinator.class).runOncePerDay(job, executions::incrementAndGet));
+
+        assertEquals(1, executions.get());
+    }
+
+    private static ConfigurableApplicationContext startNode(String nodeId) {
+        return new SpringApplicationBuilder(NeighborhoodLibraryApplication.class)
+                .properties(
+                        "server.port=0",
+                        "app.jobs.node-id=" + nodeId,
+                        "app.reservations.expiry-timer.enabled=false")
+                .run();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
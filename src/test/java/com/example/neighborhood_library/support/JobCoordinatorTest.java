@@ -0,0 +1,194 @@
+package com.example.neighborhood_library.support;
+
+import com.example.neighborhood_library.domain.JobOutcome;
+import com.example.neighborhood_library.domain.ScheduledJobRun;
+import com.example.neighborhood_library.repo.ScheduledJobRunRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class JobCoordinatorTest {
+
+    @Mock private DataSource dataSource;
+    @Mock private Connection connection;
+    @Mock private PreparedStatement tryLock;
+    @Mock private PreparedStatement unlock;
+    @Mock private ResultSet tryLockResult;
+    @Mock private ResultSet unlockResult;
+    @Mock private ScheduledJobRunRepository jobRunRepository;
+    @Mock private PlatformTransactionManager transactionManager;
+
+    private static final ScheduledJob JOB = new ScheduledJob("job", 42);
+
+    private final Clock fixedClock = Clock.fixed(Instant.parse("2024-06-01T10:00:00Z"), ZoneOffset.UTC);
+
+    private JobCoordinator coordinator;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement("select pg_try_advisory_lock(?, ?)")).thenReturn(tryLock);
+        when(tryLock.executeQuery()).thenReturn(tryLockResult);
+        when(tryLockResult.next()).thenReturn(true);
+        coordinator = new JobCoordinator(dataSource, jobRunRepository, transactionManager, fixedClock, "node-a");
+    }
+
+    @Test
+    void runExclusively_ShouldRunJobAndRecordSuccess_WhenLockAcquired() throws Exception {
+        // given
+        lockAcquired();
+        when(jobRunRepository.findById("job")).thenReturn(Optional.empty());
+        List<ScheduledJobRun> saved = captureSaves();
+        AtomicInteger runs = new AtomicInteger();
+
+        // when
+        boolean ran = coordinator.runExclusively(JOB, runs::incrementAndGet);
+
+        // then
+        assertTrue(ran);
+        assertEquals(1, runs.get());
+        assertEquals(JobOutcome.SUCCEEDED, saved.get(1).getOutcome());
+        assertEquals("node-a", saved.get(1).getNode());
+        assertEquals(1, saved.get(1).getRunCount());
+        assertNotNull(saved.get(1).getDurationMs());
+        verify(unlock).executeQuery();
+        verify(connection).close();
+    }
+
+    @Test
+    void runExclusively_ShouldSkipJob_WhenAnotherNodeHoldsTheLock() throws Exception {
+        // given
+        when(tryLockResult.getBoolean(1)).thenReturn(false);
+        AtomicInteger runs = new AtomicInteger();
+
+        // when
+        boolean ran = coordinator.runExclusively(JOB, runs::incrementAndGet);
+
+        // then
+        assertFalse(ran);
+        assertEquals(0, runs.get());
+        verifyNoInteractions(jobRunRepository);
+        verify(connection, never()).prepareStatement("select pg_advisory_unlock(?, ?)");
+        verify(connection).close();
+    }
+
+    @Test
+    void runExclusively_ShouldRecordFailureAndReleaseLock_WhenJobThrows() throws Exception {
+        // given
+        lockAcquired();
+        when(jobRunRepository.findById("job")).thenReturn(Optional.empty());
+        List<ScheduledJobRun> saved = captureSaves();
+
+        // when & then
+        assertThrows(IllegalStateException.class, () ->
+                coordinator.runExclusively(JOB, () -> { throw new IllegalStateException("boom"); }));
+        assertEquals(JobOutcome.FAILED, saved.get(1).getOutcome());
+        assertTrue(saved.get(1).getError().contains("boom"));
+        verify(unlock).executeQuery();
+    }
+
+    @Test
+    void runOncePerDay_ShouldSkip_WhenOtherNodeAlreadyCompletedToday() throws Exception {
+        // given - cron drugiego węzła odpalił po zakończeniu przebiegu pierwszego (blokada już wolna)
+        lockAcquired();
+        ScheduledJobRun done = new ScheduledJobRun("job");
+        done.setCompletedWindow(LocalDate.of(2024, 6, 1));
+        when(jobRunRepository.findById("job")).thenReturn(Optional.of(done));
+        AtomicInteger runs = new AtomicInteger();
+
+        // when
+        boolean ran = coordinator.runOncePerDay(JOB, runs::incrementAndGet);
+
+        // then
+        assertFalse(ran);
+        assertEquals(0, runs.get());
+        verify(jobRunRepository, never()).save(any());
+        verify(unlock).executeQuery();
+    }
+
+    @Test
+    void runOncePerDay_ShouldRunAndCloseWindow_WhenLastCompletedYesterday() throws Exception {
+        // given
+        lockAcquired();
+        ScheduledJobRun yesterday = new ScheduledJobRun("job");
+        yesterday.setCompletedWindow(LocalDate.of(2024, 5, 31));
+        when(jobRunRepository.findById("job")).thenReturn(Optional.of(yesterday));
+        List<ScheduledJobRun> saved = captureSaves();
+
+        // when
+        boolean ran = coordinator.runOncePerDay(JOB, () -> {});
+
+        // then
+        assertTrue(ran);
+        assertEquals(LocalDate.of(2024, 6, 1), saved.get(1).getCompletedWindow());
+    }
+
+    @Test
+    void runOncePerDay_ShouldLeaveWindowOpen_WhenJobFails() throws Exception {
+        // given
+        lockAcquired();
+        when(jobRunRepository.findById("job")).thenReturn(Optional.empty());
+        List<ScheduledJobRun> saved = captureSaves();
+
+        // when & then
+        assertThrows(IllegalStateException.class, () ->
+                coordinator.runOncePerDay(JOB, () -> { throw new IllegalStateException("boom"); }));
+        assertNull(saved.get(1).getCompletedWindow());
+    }
+
+    @Test
+    void runExclusively_ShouldReject_WhenTwoJobsShareLockKey() throws Exception {
+        // given
+        when(tryLockResult.getBoolean(1)).thenReturn(false);
+        coordinator.runExclusively(JOB, () -> {});
+
+        // when & then
+        assertThrows(IllegalStateException.class, () ->
+                coordinator.runExclusively(new ScheduledJob("other-job", 42), () -> {}));
+    }
+
+    private void lockAcquired() throws Exception {
+        when(tryLockResult.getBoolean(1)).thenReturn(true);
+        when(connection.prepareStatement("select pg_advisory_unlock(?, ?)")).thenReturn(unlock);
+        when(unlock.executeQuery()).thenReturn(unlockResult);
+    }
+
+    // kopie stanu przy każdym zapisie (ten sam obiekt jest zapisywany dwa razy)
+    private List<ScheduledJobRun> captureSaves() {
+        List<ScheduledJobRun> snapshots = new ArrayList<>();
+        when(jobRunRepository.save(any(ScheduledJobRun.class))).thenAnswer(i -> {
+            ScheduledJobRun run = i.getArgument(0);
+            ScheduledJobRun copy = new ScheduledJobRun(run.getJobName());
+            copy.setNode(run.getNode());
+            copy.setOutcome(run.getOutcome());
+            copy.setError(run.getError());
+            copy.setRunCount(run.getRunCount());
+            copy.setDurationMs(run.getDurationMs());
+            copy.setCompletedWindow(run.getCompletedWindow());
+            snapshots.add(copy);
+            return run;
+        });
+        return snapshots;
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.neighborhood_library.support;
+
+import com.example.neighborhood_library.repo.LoanRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LoanNotificationJobTest {
+
+    @Mock private LoanRepository loanRepository;
+    @Mock private JobCoordinator jobCoordinator;
+    @Mock private ApplicationEventPublisher eventPublisher;
+    @Mock private PlatformTransactionManager transactionManager;
+    @Mock private TransactionStatus transactionStatus;
+
+    private final Clock fixedClock = Clock.fixed(Instant.parse("2024-06-10T06:00:00Z"), ZoneOffset.UTC);
+    private final LocalDate today = LocalDate.of(2024, 6, 10);
+
+    private LoanNotificationJob job;
+
+    @BeforeEach
+    void setUp() {
+        when(transactionManager.getTransaction(any())).thenReturn(transactionStatus);
+        job = new LoanNotificationJob(loanRepository, jobCoordinator, eventPublisher, transactionManager, fixedClock, 100, 7);
+    }
+
+    @Test
+    void notifyBorrowers_ShouldSendInChunks_UntilChunkIsNotFull() {
+        // given
+        when(loanRepository.notifyDueSoon(today, today, today.plusDays(3), 100)).thenReturn(100L, 100L, 5L);
+        when(loanRepository.notifyOverdue(today.minusDays(8), today.minusDays(1), 100)).thenReturn(0L);
+
+        // when
+        job.notifyBorrowers();
+
+        // then
+        verify(loanRepository, times(3)).notifyDueSoon(today, today, today.plusDays(3), 100);
+        verify(loanRepository, times(1)).notifyOverdue(today.minusDays(8), today.minusDays(1), 100);
+        verify(transactionManager, times(4)).commit(transactionStatus);
+        verify(eventPublisher).publishEvent(MessagesChangedEvent.allUsers());
+    }
+
+    @Test
+    void notifyBorrowers_ShouldOnlyLookAtExactDays_WhenCatchUpIsDisabled() {
+        // given
+        job = new LoanNotificationJob(loanRepository, jobCoordinator, eventPublisher, transactionManager, fixedClock, 100, 0);
+
+        // when
+        job.notifyBorrowers();
+
+        // then
+        verify(loanRepository).notifyDueSoon(today, today.plusDays(3), today.plusDays(3), 100);
+        verify(loanRepository).notifyOverdue(today.minusDays(1), today.minusDays(1), 100);
+    }
+}
@@ -0,0 +1,209 @@
+package com.example.neighborhood_library.support;
+
+import com.example.neighborhood_library.domain.MessageType;
+import com.example.neighborhood_library.domain.OutboxMessage;
+import com.example.neighborhood_library.repo.MessageOutboxRepository;
+import com.example.neighborhood_library.repo.MessageRepository;
+import com.example.neighborhood_library.repo.NewMessage;
+import com.example.neighborhood_library.repo.OutboxBacklogRow;
+import com.example.neighborhood_library.service.MessageRenderer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MessageOutboxDispatcherTest {
+
+    @Mock private MessageOutboxRepository outboxRepository;
+    @Mock private MessageRepository messageRepository;
+    @Mock private ApplicationEventPublisher eventPublisher;
+    @Mock private PlatformTransactionManager transactionManager;
+    @Mock private TransactionStatus transactionStatus;
+
+    private final Clock fixedClock = Clock.fixed(Instant.parse("2024-06-10T06:00:00Z"), ZoneOffset.UTC);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private MessageOutboxDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(transactionManager.getTransaction(any())).thenReturn(transactionStatus);
+        dispatcher = new MessageOutboxDispatcher(outboxRepository, messageRepository, new MessageRenderer(), eventPublisher,
+                transactionManager, fixedClock, meterRegistry, 2, 3, 3, Duration.ofSeconds(5), Duration.ofSeconds(12));
+    }
+
+    @Test
+    void dispatchBatch_ShouldInsertRenderedMessagesAndDeleteEvents() {
+        // given
+        OutboxMessage event = event(1L, MessageType.LOAN_CREATED, Map.of(
+                MessageRenderer.TITLE, "Solaris",
+                MessageRenderer.INVENTORY_CODE, "LIB-001",
+                MessageRenderer.DUE_DATE, "2024-07-10"));
+        when(outboxRepository.claimDue(2)).thenReturn(List.of(event));
+
+        // when
+        int claimed = dispatcher.dispatchBatch();
+
+        // then
+        assertEquals(1, claimed);
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<NewMessage>> captor = ArgumentCaptor.forClass(List.class);
+        verify(messageRepository).insertBatch(captor.capture());
+        NewMessage m = captor.getValue().get(0);
+        assertEquals(42L, m.userId());
+        assertEquals("Wypożyczenie utworzone", m.title());
+        assertEquals("Wypożyczono: Solaris (egz. LIB-001). Termin zwrotu: 2024-07-10.", m.body());
+        assertEquals(event.getCreatedAt(), m.createdAt());
+        verify(outboxRepository).deleteAllByIdInBatch(List.of(1L));
+        verify(eventPublisher).publishEvent(MessagesChangedEvent.of(42L));
+        assertEquals(1.0, meterRegistry.counter("library.outbox.dispatched").count());
+    }
+
+    @Test
+    void dispatchBatch_ShouldBackOffEvent_WhenItCannotBeRendered() {
+        // given - brak tytułu w payload
+        OutboxMessage broken = event(1L, MessageType.HOLD_READY, Map.of());
+        broken.setAttempts(1);
+        when(outboxRepository.claimDue(2)).thenReturn(List.of(broken));
+
+        // when
+        dispatcher.dispatchBatch();
+
+        // then
+        assertEquals(2, broken.getAttempts());
+        assertEquals(OffsetDateTime.now(fixedClock).plusSeconds(10), broken.getNextAttemptAt());
+        assertNotNull(broken.getLastError());
+        assertNull(broken.getFailedAt());
+        verify(outboxRepository).deleteAllByIdInBatch(Collections.emptyList());
+        verifyNoInteractions(eventPublisher);
+        assertEquals(1.0, meterRegistry.counter("library.outbox.retried").count());
+    }
+
+    @Test
+    void dispatchBatch_ShouldGiveUp_AfterMaxAttempts() {
+        // given
+        OutboxMessage broken = event(1L, MessageType.DUE_SOON, Map.of());
+        broken.setAttempts(2);
+        when(outboxRepository.claimDue(2)).thenReturn(List.of(broken));
+
+        // when
+        dispatcher.dispatchBatch();
+
+        // then
+        assertEquals(OffsetDateTime.now(fixedClock), broken.getFailedAt());
+        assertEquals(1.0, meterRegistry.counter("library.outbox.failed").count());
+    }
+
+    @Test
+    void dispatchBatch_ShouldRollBack_WhenInsertFails() {
+        // given
+        when(outboxRepository.claimDue(2)).thenReturn(List.of(
+                event(1L, MessageType.ACCOUNT_BANNED, Map.of())));
+        doThrow(new DataAccessResourceFailureException("connection lost"))
+                .when(messageRepository).insertBatch(anyList());
+
+        // when
+        int claimed = dispatcher.dispatchBatch();
+
+        // then
+        assertEquals(0, claimed);
+        verify(transactionManager).rollback(transactionStatus);
+        verify(outboxRepository, never()).deleteAllByIdInBatch(any());
+    }
+
+    @Test
+    void dispatchBatch_ShouldRetryOneByOne_AndBackOffOnlyTheEventThatBreaksInsert() {
+        // given - wiadomość dla użytkownika 43 łamie ograniczenie, cała porcja się wycofuje
+        OutboxMessage good = event(1L, MessageType.ACCOUNT_BANNED, Map.of());
+        OutboxMessage poison = event(2L, MessageType.ACCOUNT_UNBANNED, Map.of());
+        poison.setUserId(43L);
+        OutboxMessage poisonReloaded = event(2L, MessageType.ACCOUNT_UNBANNED, Map.of());
+        when(outboxRepository.claimDue(2)).thenReturn(List.of(good, poison));
+        when(outboxRepository.claimDue(1)).thenReturn(List.of(good), List.of(poison), List.of());
+        doAnswer(i -> {
+            List<NewMessage> messages = i.getArgument(0);
+            if (messages.stream().anyMatch(m -> m.userId() == 43L)) {
+                throw new DataIntegrityViolationException("messages_user_fk");
+            }
+            return null;
+        }).when(messageRepository).insertBatch(anyList());
+        when(outboxRepository.findById(2L)).thenReturn(Optional.of(poisonReloaded));
+
+        // when
+        int claimed = dispatcher.dispatchBatch();
+
+        // then
+        assertEquals(2, claimed);
+        verify(outboxRepository).deleteAllByIdInBatch(List.of(1L));
+        assertEquals(1, poisonReloaded.getAttempts());
+        assertEquals("messages_user_fk", poisonReloaded.getLastError());
+        assertEquals(OffsetDateTime.now(fixedClock).plusSeconds(5), poisonReloaded.getNextAttemptAt());
+        assertEquals(1.0, meterRegistry.counter("library.outbox.dispatched").count());
+        assertEquals(1.0, meterRegistry.counter("library.outbox.retried").count());
+    }
+
+    @Test
+    void dispatch_ShouldStopAtMaxBatches_AndPublishBacklog() {
+        // given - kolejka pełniejsza niż limit przebiegu
+        when(outboxRepository.claimDue(2)).thenAnswer(i -> LongStream.of(1, 2)
+                .mapToObj(id -> event(id, MessageType.ACCOUNT_UNBANNED, Map.of()))
+                .toList());
+        OutboxBacklogRow backlog = mock(OutboxBacklogRow.class);
+        when(backlog.getPending()).thenReturn(7L);
+        when(backlog.getLagSeconds()).thenReturn(30.0);
+        when(outboxRepository.backlog()).thenReturn(backlog);
+
+        // when
+        dispatcher.dispatch();
+
+        // then
+        verify(outboxRepository, times(3)).claimDue(2);
+        assertEquals(7.0, meterRegistry.get("library.outbox.pending").gauge().value());
+        assertEquals(30.0, meterRegistry.get("library.outbox.lag").gauge().value());
+    }
+
+    @Test
+    void backoff_ShouldDoubleUpToMax() {
+        assertEquals(Duration.ofSeconds(5), dispatcher.backoff(1));
+        assertEquals(Duration.ofSeconds(10), dispatcher.backoff(2));
+        assertEquals(Duration.ofSeconds(12), dispatcher.backoff(3));
+        assertEquals(Duration.ofSeconds(12), dispatcher.backoff(40));
+    }
+
+    private OutboxMessage event(long id, MessageType type, Map<String, String> payload) {
+        OutboxMessage event = new OutboxMessage();
+        ReflectionTestUtils.setField(event, "id", id);
+        event.setUserId(42L);
+        event.setType(type);
+        event.setPayload(payload);
+        event.setCreatedAt(OffsetDateTime.parse("2024-06-10T05:59:00Z"));
+        event.setNextAttemptAt(event.getCreatedAt());
+        return event;
+    }
+}
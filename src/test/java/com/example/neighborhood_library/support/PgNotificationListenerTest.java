@@ -0,0 +1,72 @@
+package com.example.neighborhood_library.support;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PgNotificationListenerTest {
+
+    @Mock private DataSource dataSource;
+    @Mock private Connection connection;
+    @Mock private Statement statement;
+    @Mock private PGConnection pgConnection;
+    @Mock private PgNotificationHandler handler;
+
+    private PgNotificationListener listener;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        when(handler.channel()).thenReturn("cache_invalidation");
+        when(connection.createStatement()).thenReturn(statement);
+        when(connection.unwrap(PGConnection.class)).thenReturn(pgConnection);
+        listener = new PgNotificationListener(dataSource, List.of(handler), true, 10,
+                Duration.ofSeconds(5), Duration.ZERO);
+        ReflectionTestUtils.setField(listener, "running", true);
+    }
+
+    @Test
+    void listen_ShouldFail_WhenConnectionSilentlyDropped() throws Exception {
+        // given - brak powiadomień i brak błędu z odczytu, ale serwer nie odpowiada
+        when(pgConnection.getNotifications(anyInt())).thenReturn(null);
+        when(connection.isValid(anyInt())).thenReturn(false);
+
+        // when & then - wyjątek = pętla zestawia połączenie od nowa
+        assertThrows(SQLException.class, () -> listener.listen(connection));
+        verify(statement).execute("LISTEN cache_invalidation");
+        verify(handler).onReconnect();
+    }
+
+    @Test
+    void listen_ShouldDispatchNotifications_WhileConnectionHealthy() throws Exception {
+        // given - jedno powiadomienie, potem połączenie pada
+        PGNotification notification = mock(PGNotification.class);
+        when(notification.getName()).thenReturn("cache_invalidation");
+        when(notification.getParameter()).thenReturn("PUBLICATION:1:0");
+        when(pgConnection.getNotifications(anyInt())).thenReturn(new PGNotification[] {notification}, null);
+        when(connection.isValid(anyInt())).thenReturn(true, false);
+
+        // when
+        assertThrows(SQLException.class, () -> listener.listen(connection));
+
+        // then
+        verify(handler).onNotification("PUBLICATION:1:0");
+        verify(connection, times(2)).isValid(anyInt());
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.neighborhood_library.support;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RankedIdSetTest {
+
+    @Test
+    void countLess_ShouldSkipRemovedIds_AndWorkForIdsOutsideSet() {
+        // given
+        RankedIdSet set = new RankedIdSet();
+        for (long id = 10; id <= 50; id += 10) set.add(id);
+
+        // when
+        set.remove(20L);
+
+        // then
+        assertEquals(0, set.countLess(10L));
+        assertEquals(1, set.countLess(30L));
+        assertEquals(2, set.countLess(35L)); // 35 nie należy do zbioru
+        assertEquals(4, set.countLess(1000L));
+        assertFalse(set.contains(20L));
+        assertEquals(4, set.size());
+    }
+
+    @Test
+    void add_ShouldKeepOrder_WhenIdArrivesOutOfOrder() {
+        // given
+        RankedIdSet set = new RankedIdSet();
+        set.add(1L);
+        set.add(5L);
+
+        // when - mniejsze id zatwierdzone później
+        assertTrue(set.add(3L));
+        assertFalse(set.add(3L));
+
+        // then
+        assertEquals(1, set.countLess(3L));
+        assertEquals(2, set.countLess(5L));
+    }
+
+    @Test
+    void operations_ShouldMatchSortedSet_UnderRandomAddsAndRemoves() {
+        RankedIdSet set = new RankedIdSet();
+        TreeSet<Long> expected = new TreeSet<>();
+        Random random = new Random(42);
+        long next = 0;
+
+        for (int i = 0; i < 20_000; i++) {
+            int op = random.nextInt(10);
+            if (op < 5) {
+                next += 1 + random.nextInt(3);
+                assertEquals(expected.add(next), set.add(next));
+            } else if (op < 6) {
+                long id = random.nextLong(next + 1);
+                assertEquals(expected.add(id), set.add(id));
+            } else {
+                long id = random.nextLong(next + 1);
+                assertEquals(expected.remove(id), set.remove(id));
+            }
+            long probe = random.nextLong(next + 2);
+            assertEquals(expected.headSet(probe).size(), set.countLess(probe));
+            assertEquals(expected.size(), set.size());
+        }
+    }
+}
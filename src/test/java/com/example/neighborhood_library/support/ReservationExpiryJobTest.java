@@ -0,0 +1,74 @@
+package com.example.neighborhood_library.support;
+
+import com.example.neighborhood_library.repo.ReleasedCopyRow;
+import com.example.neighborhood_library.repo.ReservationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReservationExpiryJobTest {
+
+    @Mock private ReservationRepository reservationRepository;
+    @Mock private ApplicationEventPublisher eventPublisher;
+    @Mock private JobCoordinator jobCoordinator;
+    @Mock private PlatformTransactionManager transactionManager;
+    @Mock private TransactionStatus transactionStatus;
+
+    private ReservationExpiryJob job;
+
+    @BeforeEach
+    void setUp() {
+        when(transactionManager.getTransaction(any())).thenReturn(transactionStatus);
+        job = new ReservationExpiryJob(reservationRepository, eventPublisher, jobCoordinator, transactionManager, 2);
+    }
+
+    @Test
+    void expireOverdueReservations_ShouldCommitEachChunk_UntilChunkIsNotFull() {
+        // given
+        when(reservationRepository.expireOverdueChunk(2)).thenReturn(
+                List.of(row(1L, 10L), row(2L, 10L)),
+                List.of(row(3L, 20L)));
+
+        // when
+        int expired = job.expireOverdueReservations();
+
+        // then
+        assertEquals(3, expired);
+        verify(reservationRepository, times(2)).expireOverdueChunk(2);
+        verify(transactionManager, times(2)).commit(transactionStatus);
+        verify(eventPublisher).publishEvent(new CopyReleasedEvent(1L));
+        verify(eventPublisher).publishEvent(new CopyReleasedEvent(2L));
+        verify(eventPublisher).publishEvent(new CopyReleasedEvent(3L));
+        // jedna publikacja zmieniona w porcji = jedno zdarzenie
+        verify(eventPublisher, times(1)).publishEvent(new PublicationChangedEvent(10L));
+        verify(eventPublisher, times(1)).publishEvent(new PublicationChangedEvent(20L));
+    }
+
+    @Test
+    void expireOverdueReservations_ShouldStopAfterEmptyChunk() {
+        when(reservationRepository.expireOverdueChunk(2)).thenReturn(List.of());
+
+        assertEquals(0, job.expireOverdueReservations());
+        verify(reservationRepository, times(1)).expireOverdueChunk(2);
+        verifyNoInteractions(eventPublisher);
+    }
+
+    private static ReleasedCopyRow row(long copyId, long publicationId) {
+        return new ReleasedCopyRow() {
+            public Long getCopyId() { return copyId; }
+            public Long getPublicationId() { return publicationId; }
+        };
+    }
+}
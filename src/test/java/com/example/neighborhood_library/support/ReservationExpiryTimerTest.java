@@ -0,0 +1,84 @@
+package com.example.neighborhood_library.support;
+
+import com.example.neighborhood_library.repo.ReservationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReservationExpiryTimerTest {
+
+    @Mock private ReservationRepository reservationRepository;
+    @Mock private ReservationExpiryJob expiryJob;
+
+    private final Clock fixedClock = Clock.fixed(Instant.parse("2024-06-01T10:00:00Z"), ZoneOffset.UTC);
+    private final OffsetDateTime now = OffsetDateTime.now(fixedClock);
+
+    private ReservationExpiryTimer timer;
+
+    @BeforeEach
+    void setUp() {
+        timer = new ReservationExpiryTimer(reservationRepository, expiryJob, fixedClock, true, 200);
+    }
+
+    @Test
+    void expireDue_ShouldExpireOnlyReservationsPastTheirDeadline() {
+        // given
+        timer.schedule(1L, now.minusMinutes(5));
+        timer.schedule(2L, now.minusSeconds(30));
+        timer.schedule(3L, now.plusHours(1));
+        when(expiryJob.expire(List.of(1L, 2L))).thenReturn(2);
+
+        // when
+        int expired = timer.expireDue();
+
+        // then
+        assertEquals(2, expired);
+        assertEquals(1, timer.pending());
+        verify(expiryJob, times(1)).expire(any());
+    }
+
+    @Test
+    void expireDue_ShouldSkipCancelledReservations() {
+        // given
+        timer.schedule(1L, now.minusMinutes(5));
+        timer.onReservationClosed(new ReservationClosedEvent(1L));
+
+        // when & then
+        assertEquals(0, timer.expireDue());
+        verifyNoInteractions(expiryJob);
+    }
+
+    @Test
+    void expireDue_ShouldUseLatestDeadline_WhenReservationIsRescheduled() {
+        // given
+        timer.schedule(1L, now.minusMinutes(5));
+        timer.onReservationCreated(new ReservationCreatedEvent(1L, now.plusDays(1)));
+
+        // when & then
+        assertEquals(0, timer.expireDue());
+        assertEquals(1, timer.pending());
+        verifyNoInteractions(expiryJob);
+    }
+
+    @Test
+    void expireDue_ShouldWaitForGracePeriod_AtExactDeadline() {
+        // termin "teraz": baza mogłaby jeszcze nie uznać rezerwacji za przeterminowaną
+        timer.schedule(1L, now);
+
+        assertEquals(0, timer.expireDue());
+        verifyNoInteractions(expiryJob);
+    }
+}
@@ -47,7 +47,7 @@ class AuthControllerTest {
         // Symulujemy zachowanie dla niezalogowanego użytkownika (domyślne w AuthController)
         // GlobalControllerAdvice prawdopodobnie łapie ten wyjątek i zwraca 0 wiadomości
         doThrow(new NotFoundException("Brak zalogowanego użytkownika"))
-                .when(currentUserService).requireCurrentUser();
+                .when(currentUserService).requireCurrentUserId();
     }
 
     // --- GET /register ---
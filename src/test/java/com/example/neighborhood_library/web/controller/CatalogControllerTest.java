@@ -2,14 +2,22 @@ package com.example.neighborhood_library.web.controller;
 
 import com.example.neighborhood_library.config.SecurityConfig;
 import com.example.neighborhood_library.domain.User;
-import com.example.neighborhood_library.repo.CategoryRepository;
+import com.example.neighborhood_library.service.CatalogCategoryService;
+import com.example.neighborhood_library.service.CatalogPagingMode;
 import com.example.neighborhood_library.service.CatalogService;
+import com.example.neighborhood_library.service.CatalogSuggestIndex;
 import com.example.neighborhood_library.service.CurrentUserService;
+import com.example.neighborhood_library.service.HoldService;
 import com.example.neighborhood_library.service.LibraryInfoService;
 import com.example.neighborhood_library.service.MessageService;
 import com.example.neighborhood_library.service.ReservationService;
 import com.example.neighborhood_library.web.viewmodel.PublicationDetailsVm;
 import com.example.neighborhood_library.web.viewmodel.PublicationListItemVm;
+import com.example.neighborhood_library.web.viewmodel.SuggestionVm;
+import com.example.neighborhood_library.web.viewmodel.CatalogFacetsVm;
+import com.example.neighborhood_library.web.viewmodel.CatalogSlice;
+import com.example.neighborhood_library.web.viewmodel.CategoryOptionVm;
+import com.example.neighborhood_library.web.viewmodel.FacetValueVm;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -18,14 +26,18 @@ import org.springframework.context.annotation.Import;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.security.test.context.support.WithMockUser; // <--- Import
+import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.test.web.servlet.MockMvc;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
 
 import static org.mockito.ArgumentMatchers.*;
+import static org.hamcrest.Matchers.containsString;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
@@ -34,14 +46,19 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 @WebMvcTest(CatalogController.class)
 @Import(SecurityConfig.class)
 @WithMockUser(username = "user", roles = "USER") // <--- KLUCZOWE: Wszyscy wchodzący tu są zalogowani
+@TestPropertySource(properties = "app.catalog.paging=OFFSET")
 class CatalogControllerTest {
 
     @Autowired
     private MockMvc mockMvc;
+    @Autowired
+    private CatalogController catalogController;
 
     @MockitoBean
     private CatalogService catalogService;
-    @MockitoBean private CategoryRepository categoryRepository;
+    @MockitoBean private CatalogCategoryService catalogCategoryService;
+    @MockitoBean private CatalogSuggestIndex catalogSuggestIndex;
+    @MockitoBean private HoldService holdService;
     @MockitoBean private ReservationService reservationService;
 
     // --- Boilerplate dla GlobalControllerAdvice ---
@@ -54,7 +71,7 @@ class CatalogControllerTest {
         // Ponieważ jesteśmy zalogowani (@WithMockUser), GlobalControllerAdvice może chcieć pobrać usera
         User user = new User();
         ReflectionTestUtils.setField(user, "id", 1L);
-        when(currentUserService.requireCurrentUser()).thenReturn(user);
+        when(currentUserService.requireCurrentUserId()).thenReturn(user.getId());
     }
 
     @Test
@@ -63,14 +80,16 @@ class CatalogControllerTest {
         Page<PublicationListItemVm> emptyPage = new PageImpl<>(Collections.emptyList());
         when(catalogService.search(any(), any(), anyInt(), anyInt())).thenReturn(emptyPage);
 
-        when(categoryRepository.findNonEmptyForCatalog()).thenReturn(Collections.emptyList());
+        when(catalogCategoryService.nonEmptyCategories())
+                .thenReturn(List.of(new CategoryOptionVm(1L, "Fantastyka", 12)));
 
         // when
         mockMvc.perform(get("/catalog"))
                 .andExpect(status().isOk())
                 .andExpect(view().name("catalog/index"))
                 .andExpect(model().attributeExists("page"))
-                .andExpect(model().attributeExists("categories"));
+                .andExpect(model().attributeExists("categories"))
+                .andExpect(content().string(containsString("Fantastyka (12)")));
     }
 
     @Test
@@ -92,6 +111,83 @@ class CatalogControllerTest {
         verify(catalogService).search(eq(query), eq(catId), anyInt(), anyInt());
     }
 
+    @Test
+    void search_ShouldOfferSuggestionAndSimilar_WhenNothingFound() throws Exception {
+        // given
+        when(catalogService.search(eq("Sienkiewcz"), any(), anyInt(), anyInt())).thenReturn(Page.empty());
+        when(catalogService.didYouMean("Sienkiewcz")).thenReturn(Optional.of("Henryk Sienkiewicz"));
+        when(catalogService.searchSimilar(eq("Sienkiewcz"), any(), anyInt())).thenReturn(List.of());
+
+        // when & then
+        mockMvc.perform(get("/catalog").param("q", "Sienkiewcz"))
+                .andExpect(status().isOk())
+                .andExpect(model().attribute("suggestion", "Henryk Sienkiewicz"))
+                .andExpect(model().attributeExists("similar"));
+    }
+
+    @Test
+    void index_ShouldExposeFacets_OnFirstPageWithResults() throws Exception {
+        // given
+        PublicationListItemVm item = new PublicationListItemVm(
+                3L, "Solaris", "Książka", "Stanisław Lem", "Fantastyka", 1, 0, 0, 0);
+        when(catalogService.search(eq("lem"), any(), anyInt(), anyInt())).thenReturn(new PageImpl<>(List.of(item)));
+        CatalogFacetsVm facets = new CatalogFacetsVm(
+                List.of(new FacetValueVm("1", "Fantastyka", 4)),
+                List.of(new FacetValueVm("BOOK", "Książka", 4)),
+                List.of(new FacetValueVm("1960", "1960–1969", 3)),
+                2);
+        when(catalogService.facets("lem", null)).thenReturn(facets);
+
+        // when & then
+        mockMvc.perform(get("/catalog").param("q", "lem"))
+                .andExpect(status().isOk())
+                .andExpect(model().attribute("facets", facets))
+                .andExpect(content().string(containsString("1960–1969 (3)")))
+                .andExpect(content().string(containsString("Fantastyka (4)")));
+    }
+
+    @Test
+    void suggest_ShouldReturnJsonFromPrefixIndex() throws Exception {
+        // given
+        when(catalogSuggestIndex.suggest("sol", 8))
+                .thenReturn(List.of(new SuggestionVm("Solaris", SuggestionVm.TITLE, 3L)));
+
+        // when & then
+        mockMvc.perform(get("/catalog/suggest").param("q", "sol"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].text").value("Solaris"))
+                .andExpect(jsonPath("$[0].type").value("TITLE"))
+                .andExpect(jsonPath("$[0].publicationId").value(3));
+
+        mockMvc.perform(get("/catalog/suggest").param("q", "  "))
+                .andExpect(status().isOk())
+                .andExpect(content().json("[]"));
+    }
+
+    @Test
+    void index_ShouldUseCursorAndExposeSlice_WhenKeysetPaging() throws Exception {
+        // given
+        PublicationListItemVm item = new PublicationListItemVm(
+                3L, "Solaris", "Książka", "Stanisław Lem", "Fantastyka", 1, 0, 0, 0);
+        CatalogSlice slice = new CatalogSlice(List.of(item), "next-token", 11, 25L);
+        when(catalogService.searchAfter("lem", null, "abc", 10)).thenReturn(slice);
+        ReflectionTestUtils.setField(catalogController, "pagingMode", CatalogPagingMode.KEYSET);
+
+        try {
+            // when & then
+            mockMvc.perform(get("/catalog").param("q", "lem").param("after", "abc"))
+                    .andExpect(status().isOk())
+                    .andExpect(model().attribute("slice", slice))
+                    .andExpect(model().attributeDoesNotExist("page"))
+                    .andExpect(content().string(containsString("after=next-token")));
+
+            verify(catalogService, never()).search(any(), any(), anyInt(), anyInt());
+            verify(catalogService, never()).facets(any(), any());
+        } finally {
+            ReflectionTestUtils.setField(catalogController, "pagingMode", CatalogPagingMode.OFFSET);
+        }
+    }
+
     @Test
     void details_ShouldReturnDetailsView_WhenPublicationExists() throws Exception {
         // given
@@ -108,4 +204,22 @@ class CatalogControllerTest {
                 .andExpect(view().name("catalog/details"))
                 .andExpect(model().attribute("publication", details));
     }
+
+    @Test
+    void details_ShouldShowQueuePosition_WhenNoCopyIsAvailable() throws Exception {
+        // given
+        PublicationDetailsVm details = new PublicationDetailsVm(
+                10L, "Tytuł", "Książka", "Autor", "ISBN", (short) 2020, "Kategoria", List.of()
+        );
+        when(catalogService.getDetails(10L)).thenReturn(details);
+        when(reservationService.canReserve(10L)).thenReturn(false);
+        when(holdService.position(10L, 1L)).thenReturn(Optional.of(2L));
+
+        // when & then
+        mockMvc.perform(get("/catalog/{id}", 10L))
+                .andExpect(status().isOk())
+                .andExpect(model().attribute("holdPosition", 2L))
+                .andExpect(content().string(containsString("pozycja 2")))
+                .andExpect(content().string(containsString("Opuść kolejkę")));
+    }
 }
@@ -3,9 +3,11 @@ package com.example.neighborhood_library.web.controller;
 import com.example.neighborhood_library.config.SecurityConfig;
 import com.example.neighborhood_library.domain.User;
 import com.example.neighborhood_library.service.CurrentUserService;
+import com.example.neighborhood_library.service.HoldService;
 import com.example.neighborhood_library.service.LibraryInfoService;
 import com.example.neighborhood_library.service.MessageService;
 import com.example.neighborhood_library.service.ReservationService;
+import com.example.neighborhood_library.support.ReservationBlockedException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -34,6 +36,9 @@ class CatalogReservationControllerTest {
     @MockitoBean
     private CurrentUserService currentUserService;
 
+    @MockitoBean
+    private HoldService holdService;
+
     // --- Mocki dla GlobalControllerAdvice (jeśli jest w projekcie) ---
     @MockitoBean private LibraryInfoService libraryInfoService;
     @MockitoBean private MessageService messageService;
@@ -45,7 +50,7 @@ class CatalogReservationControllerTest {
         ReflectionTestUtils.setField(u, "id", 100L);
         u.setLogin("user1");
 
-        when(currentUserService.requireCurrentUser()).thenReturn(u);
+        when(currentUserService.requireCurrentUserId()).thenReturn(u.getId());
     }
 
     @Test
@@ -90,4 +95,40 @@ class CatalogReservationControllerTest {
         verify(reservationService).reservePublication(10L, 100L);
         verifyNoMoreInteractions(reservationService);
     }
+
+    @Test
+    @WithMockUser(username = "user1", roles = "USER")
+    void hold_ShouldJoinQueue_AndRedirectWithPosition() throws Exception {
+        // given
+        when(holdService.placeHold(10L, 100L)).thenReturn(3L);
+
+        // when + then
+        mockMvc.perform(post("/catalog/10/hold").with(csrf()))
+                .andExpect(status().is3xxRedirection())
+                .andExpect(redirectedUrl("/catalog/10"))
+                .andExpect(flash().attribute("success", org.hamcrest.Matchers.containsString("pozycja: 3")));
+    }
+
+    @Test
+    @WithMockUser(username = "user1", roles = "USER")
+    void hold_ShouldRedirectWithErrorFlash_WhenCopyIsAvailable() throws Exception {
+        // given
+        when(holdService.placeHold(10L, 100L))
+                .thenThrow(new ReservationBlockedException("Jest wolny egzemplarz — zarezerwuj go bezpośrednio."));
+
+        // when + then
+        mockMvc.perform(post("/catalog/10/hold").with(csrf()))
+                .andExpect(status().is3xxRedirection())
+                .andExpect(flash().attribute("error", "Jest wolny egzemplarz — zarezerwuj go bezpośrednio."));
+    }
+
+    @Test
+    @WithMockUser(username = "user1", roles = "USER")
+    void cancelHold_ShouldLeaveQueue() throws Exception {
+        mockMvc.perform(post("/catalog/10/hold/cancel").with(csrf()))
+                .andExpect(status().is3xxRedirection())
+                .andExpect(flash().attribute("success", "Opuszczono kolejkę oczekujących."));
+
+        verify(holdService).cancelHold(10L, 100L);
+    }
 }
@@ -48,7 +48,7 @@ class HomeControllerTest {
     void home_ShouldBeAccessible_ForAnonymous_AndReturnView() throws Exception {
         // jeśli advice próbowałby wymusić currentUser na anonimizmie, realnie powinno to być obsłużone
         // (rzucamy tak jak w realu CurrentUserService)
-        when(currentUserService.requireCurrentUser())
+        when(currentUserService.requireCurrentUserId())
                 .thenThrow(new NotFoundException("Brak zalogowanego użytkownika"));
 
         mockMvc.perform(get("/"))
@@ -64,7 +64,7 @@ class HomeControllerTest {
         ReflectionTestUtils.setField(u, "id", 100L);
         u.setLogin("user1");
 
-        when(currentUserService.requireCurrentUser()).thenReturn(u);
+        when(currentUserService.requireCurrentUserId()).thenReturn(u.getId());
 
         mockMvc.perform(get("/"))
                 .andExpect(status().isOk())
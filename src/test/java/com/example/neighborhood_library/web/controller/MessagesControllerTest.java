@@ -94,7 +94,7 @@ class MessagesControllerTest {
     @Test
     @WithMockUser(username = "user1", roles = "USER")
     void index_ShouldReturnViewAndModel_ForUser() throws Exception {
-        when(currentUserService.requireCurrentUser()).thenReturn(user);
+        when(currentUserService.requireCurrentUserId()).thenReturn(user.getId());
         when(messageService.getMyMessages(100L)).thenReturn(List.of());
 
         mockMvc.perform(get("/my/messages"))
@@ -114,7 +114,7 @@ class MessagesControllerTest {
     @Test
     @WithMockUser(username = "user1", roles = "USER")
     void markAsRead_ShouldCallServiceAndRedirect_ForUser() throws Exception {
-        when(currentUserService.requireCurrentUser()).thenReturn(user);
+        when(currentUserService.requireCurrentUserId()).thenReturn(user.getId());
 
         mockMvc.perform(post("/my/messages/55/read").with(csrf()))
                 .andExpect(status().is3xxRedirection())
@@ -131,7 +131,7 @@ class MessagesControllerTest {
     @Test
     @WithMockUser(username = "user1", roles = "USER")
     void delete_ShouldRedirectWithSuccessFlash_WhenOk() throws Exception {
-        when(currentUserService.requireCurrentUser()).thenReturn(user);
+        when(currentUserService.requireCurrentUserId()).thenReturn(user.getId());
 
         mockMvc.perform(post("/my/messages/77/delete").with(csrf()))
                 .andExpect(status().is3xxRedirection())
@@ -147,7 +147,7 @@ class MessagesControllerTest {
     @Test
     @WithMockUser(username = "user1", roles = "USER")
     void delete_ShouldRedirectWithErrorFlash_WhenServiceThrows() throws Exception {
-        when(currentUserService.requireCurrentUser()).thenReturn(user);
+        when(currentUserService.requireCurrentUserId()).thenReturn(user.getId());
         doThrow(new RuntimeException("boom")).when(messageService).delete(77L, 100L);
 
         mockMvc.perform(post("/my/messages/77/delete").with(csrf()))
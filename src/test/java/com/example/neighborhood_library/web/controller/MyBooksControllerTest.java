@@ -5,6 +5,7 @@ import com.example.neighborhood_library.domain.Loan;
 import com.example.neighborhood_library.domain.Reservation;
 import com.example.neighborhood_library.domain.User;
 import com.example.neighborhood_library.service.CurrentUserService;
+import com.example.neighborhood_library.service.HoldService;
 import com.example.neighborhood_library.service.LibraryInfoService;
 import com.example.neighborhood_library.service.MessageService;
 import com.example.neighborhood_library.service.ReservationService;
@@ -44,6 +45,7 @@ class MyBooksControllerTest {
 
     @MockitoBean private CurrentUserService currentUserService;
     @MockitoBean private ReservationService reservationService;
+    @MockitoBean private HoldService holdService;
     @MockitoBean
     private LoanRepository loanRepository;
 
@@ -80,7 +82,7 @@ class MyBooksControllerTest {
     @Test
     @WithMockUser(username = "user1", roles = "USER")
     void myBooks_ShouldReturnViewAndPopulateModel_ForUser() throws Exception {
-        when(currentUserService.requireCurrentUser()).thenReturn(user);
+        when(currentUserService.requireCurrentUserId()).thenReturn(user.getId());
 
         List<Reservation> reservations = List.of(); // puste -> Thymeleaf nie wejdzie w r.copy.publication.*
         List<Loan> loans = List.of();               // analogicznie dla wypożyczeń
@@ -93,7 +95,8 @@ class MyBooksControllerTest {
                 .andExpect(view().name("my/books"))
                 .andExpect(model().attribute("activeNav", "my-books"))
                 .andExpect(model().attribute("reservations", reservations))
-                .andExpect(model().attribute("loans", loans));
+                .andExpect(model().attribute("loans", loans))
+                .andExpect(model().attribute("holds", List.of()));
 
         verify(reservationService).myActiveReservations(100L);
         verify(loanRepository).findByUserIdAndReturnedAtIsNullOrderByLoanedAtDesc(100L);
@@ -119,7 +122,7 @@ class MyBooksControllerTest {
     @Test
     @WithMockUser(username = "user1", roles = "USER")
     void cancel_ShouldRedirectWithSuccessFlash_WhenOk() throws Exception {
-        when(currentUserService.requireCurrentUser()).thenReturn(user);
+        when(currentUserService.requireCurrentUserId()).thenReturn(user.getId());
 
         mockMvc.perform(post("/my/reservations/55/cancel").with(csrf()))
                 .andExpect(status().is3xxRedirection())
@@ -137,7 +140,7 @@ class MyBooksControllerTest {
     @Test
     @WithMockUser(username = "user1", roles = "USER")
     void cancel_ShouldRedirectWithErrorFlash_WhenServiceThrows() throws Exception {
-        when(currentUserService.requireCurrentUser()).thenReturn(user);
+        when(currentUserService.requireCurrentUserId()).thenReturn(user.getId());
         doThrow(new IllegalStateException("Nie można anulować"))
                 .when(reservationService).cancelByUser(55L, 100L);
 